@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the gc profiler, so the allocation rate is reported
+ * next to the throughput. Accepts the usual JMH command line options, for
+ * example "-p size=1000,10000 load" to run the parse of the smaller trees only.
+ * <br>
+ * Install the project with "mvn install" first, then "mvn package" in the
+ * benchmarks directory builds target/benchmarks.jar that runs this class.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Application entry point.
+     *
+     * @param args the JMH command line options
+     * @throws CommandLineOptionException if the options are invalid
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
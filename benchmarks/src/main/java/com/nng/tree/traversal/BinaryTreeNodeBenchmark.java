@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the parse, the breadth-first iteration and the save of a
+ * {@link BinaryTreeNode} separately. Every benchmark is run for every shape
+ * and size, the input text and the tree are created once per trial.
+ *
+ * The iterative parser is used, the recursive one can not parse the
+ * degenerate trees of the larger sizes. It is measured by
+ * {@link RecursiveLoadBenchmark} on the shapes it can parse.
+ *
+ * @author Richárd Ernő Kiss
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BinaryTreeNodeBenchmark {
+
+    @Param({"BALANCED", "LEFT_DEGENERATE", "RIGHT_DEGENERATE", "RANDOM"})
+    public TreeShape shape;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private String input;
+    private BinaryTreeNode tree;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        input = shape.toText(size);
+        tree = new BinaryTreeNode();
+        tree.load(new StringReader(input), ParserMode.ITERATIVE);
+    }
+
+    /**
+     * Parses the input text into a new tree.
+     *
+     * @return the tree
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    @Benchmark
+    public BinaryTreeNode load() throws IOException, ParseException {
+        BinaryTreeNode result = new BinaryTreeNode();
+        result.load(new StringReader(input), ParserMode.ITERATIVE);
+        return result;
+    }
+
+    /**
+     * Visits the nodes of the tree with {@link BinaryTreeNode#widthIterator()}.
+     *
+     * @param blackhole consumes the nodes
+     */
+    @Benchmark
+    public void widthIterator(Blackhole blackhole) {
+        Iterator<Node> breadthFirstIterator = tree.widthIterator();
+        while (breadthFirstIterator.hasNext()) {
+            blackhole.consume(breadthFirstIterator.next());
+        }
+    }
+
+    /**
+     * Writes the node order of the tree to a writer that discards it.
+     *
+     * @param blackhole consumes the output
+     * @throws IOException if an I/O error occurs
+     */
+    @Benchmark
+    public void saveWriter(Blackhole blackhole) throws IOException {
+        tree.save(new DiscardingWriter(blackhole));
+    }
+
+    /**
+     * Writes the node order of the tree to a channel that discards it.
+     *
+     * @param blackhole consumes the output
+     * @throws IOException if an I/O error occurs
+     */
+    @Benchmark
+    public void saveChannel(Blackhole blackhole) throws IOException {
+        tree.save(new DiscardingChannel(blackhole));
+    }
+
+    private static class DiscardingWriter extends Writer {
+
+        private final Blackhole blackhole;
+
+        DiscardingWriter(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            blackhole.consume(cbuf);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            blackhole.consume(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    private static class DiscardingChannel implements WritableByteChannel {
+
+        private final Blackhole blackhole;
+
+        DiscardingChannel(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = src.remaining();
+            blackhole.consume(src);
+            src.position(src.limit());
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
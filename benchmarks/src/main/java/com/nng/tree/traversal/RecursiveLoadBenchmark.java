@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parse of a {@link BinaryTreeNode} with
+ * {@link ParserMode#RECURSIVE}, the default mode of {@link TreeTraversal}.
+ * Only the shapes of logarithmic depth are listed, the recursive parser can
+ * not parse the degenerate trees of the larger sizes. The results compare with
+ * the load benchmark of {@link BinaryTreeNodeBenchmark}, which uses the
+ * iterative parser.
+ *
+ * @author Richárd Ernő Kiss
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RecursiveLoadBenchmark {
+
+    @Param({"BALANCED", "RANDOM"})
+    public TreeShape shape;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private String input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = shape.toText(size);
+    }
+
+    /**
+     * Parses the input text into a new tree.
+     *
+     * @return the tree
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    @Benchmark
+    public BinaryTreeNode load() throws IOException, ParseException {
+        BinaryTreeNode result = new BinaryTreeNode();
+        result.load(new StringReader(input), ParserMode.RECURSIVE);
+        return result;
+    }
+
+}
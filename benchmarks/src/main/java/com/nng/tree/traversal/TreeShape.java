@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Shapes of the generated benchmark trees. Creates the textual form of the
+ * grammar without recursion, so degenerate trees of any depth can be generated.
+ * <br>&lt;node&gt; ::= "(" string "," &lt;node&gt; "," &lt;node&gt; ")"
+ * <br>
+ *
+ * @author Richárd Ernő Kiss
+ */
+public enum TreeShape {
+
+    /**
+     * Complete tree, every level is full except the last one.
+     */
+    BALANCED {
+        @Override
+        void link(int[] left, int[] right, Random random) {
+            for (int i = 0; 2 * i + 1 < left.length; i++) {
+                left[i] = 2 * i + 1;
+                if (2 * i + 2 < right.length) {
+                    right[i] = 2 * i + 2;
+                }
+            }
+        }
+    },
+    /**
+     * Chain of left children.
+     */
+    LEFT_DEGENERATE {
+        @Override
+        void link(int[] left, int[] right, Random random) {
+            for (int i = 0; i + 1 < left.length; i++) {
+                left[i] = i + 1;
+            }
+        }
+    },
+    /**
+     * Chain of right children.
+     */
+    RIGHT_DEGENERATE {
+        @Override
+        void link(int[] left, int[] right, Random random) {
+            for (int i = 0; i + 1 < right.length; i++) {
+                right[i] = i + 1;
+            }
+        }
+    },
+    /**
+     * Every node is attached to a random free child slot of the previous
+     * nodes.
+     */
+    RANDOM {
+        @Override
+        void link(int[] left, int[] right, Random random) {
+            //nodes that have at least one free child slot
+            int[] free = new int[left.length];
+            int freeCount = 1;
+            for (int i = 1; i < left.length; i++) {
+                int index = random.nextInt(freeCount);
+                int parent = free[index];
+                if (left[parent] == NO_NODE && (right[parent] != NO_NODE || random.nextBoolean())) {
+                    left[parent] = i;
+                } else {
+                    right[parent] = i;
+                }
+                if (left[parent] != NO_NODE && right[parent] != NO_NODE) {
+                    free[index] = free[--freeCount];
+                }
+                free[freeCount++] = i;
+            }
+        }
+    };
+
+    private static final int NO_NODE = -1;
+    //stack entries that stand for the delimiters instead of a node
+    private static final int COMMA = -1;
+    private static final int RIGHT_PARENTHESIS = -2;
+    private static final long SEED = 20140101L;
+
+    /**
+     * Sets the children of the nodes. The root is node 0, every array entry is
+     * {@link #NO_NODE} initially.
+     *
+     * @param left the left children
+     * @param right the right children
+     * @param random the source of random shapes
+     */
+    abstract void link(int[] left, int[] right, Random random);
+
+    /**
+     * Creates the textual form of a tree of this shape, the names are "n" and
+     * the index of the node. The same shape and size always give the same
+     * text.
+     *
+     * @param nodeCount the number of nodes
+     * @return the input text
+     */
+    public String toText(int nodeCount) {
+        int[] left = new int[nodeCount];
+        int[] right = new int[nodeCount];
+        Arrays.fill(left, NO_NODE);
+        Arrays.fill(right, NO_NODE);
+        link(left, right, new Random(SEED));
+
+        StringBuilder text = new StringBuilder(nodeCount * 12);
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int entry = stack[--top];
+            if (entry == COMMA) {
+                text.append(',');
+            } else if (entry == RIGHT_PARENTHESIS) {
+                text.append(')');
+            } else {
+                text.append("(n").append(entry).append(',');
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                //pushed in reverse order of the output
+                stack[top++] = RIGHT_PARENTHESIS;
+                if (right[entry] != NO_NODE) {
+                    stack[top++] = right[entry];
+                }
+                stack[top++] = COMMA;
+                if (left[entry] != NO_NODE) {
+                    stack[top++] = left[entry];
+                }
+            }
+        }
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Breadth-first traversal of many independent trees, one tree per line of the
+ * input. The lines are parsed and traversed on a pool of worker threads, the
+ * results are written in input order, one line per tree. A tree with a syntax
+ * error gets the message of its {@link ParseException} as its line, blank
+ * input lines are skipped.
+ *
+ * The pending results are kept in a queue of futures that serves as the
+ * reordering buffer: when it is full, the reader waits for the oldest tree
+ * and writes its result before it reads the next line. The size of the queue
+ * is limited to the maximum number of documents in flight, so the memory
+ * stays bounded no matter how long the input is.
+ *
+ * With a {@link TraversalCache} the result of a line that was already
+ * traversed is taken from the cache, the cache keys are the hashes of the
+ * lines in UTF-8. Lines with a syntax error are not cached.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class BatchTraversal {
+
+    /**
+     * The default maximum number of documents in flight per worker thread.
+     */
+    public static final int DEFAULT_IN_FLIGHT_PER_THREAD = 4;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final Charset CACHE_CHARSET = Charset.forName("UTF-8");
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final TraversalCache cache;
+
+    /**
+     * Constructs a batch traversal that uses all available processors.
+     */
+    public BatchTraversal() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a batch traversal with the specified number of worker
+     * threads and the default maximum number of documents in flight.
+     *
+     * @param threads the number of worker threads
+     */
+    public BatchTraversal(int threads) {
+        this(threads, threads * DEFAULT_IN_FLIGHT_PER_THREAD);
+    }
+
+    /**
+     * Constructs a batch traversal with the specified number of worker
+     * threads and maximum number of documents in flight.
+     *
+     * @param threads the number of worker threads
+     * @param maxInFlight the maximum number of documents that are read but
+     * not written yet
+     */
+    public BatchTraversal(int threads, int maxInFlight) {
+        this(threads, maxInFlight, null);
+    }
+
+    /**
+     * Constructs a batch traversal with the specified number of worker
+     * threads, maximum number of documents in flight and result cache.
+     *
+     * @param threads the number of worker threads
+     * @param maxInFlight the maximum number of documents that are read but
+     * not written yet
+     * @param cache the cache of the results, or null to traverse every line
+     */
+    public BatchTraversal(int threads, int maxInFlight, TraversalCache cache) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Maximum in-flight document count must be positive: " + maxInFlight);
+        }
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.maxInFlight = maxInFlight;
+        this.cache = cache;
+    }
+
+    /**
+     * Reads the trees from the specified reader, one per line, and writes the
+     * node order of the breadth-first traversal of each tree to the specified
+     * writer, one per line, in input order.
+     *
+     * @param input the underlying reader
+     * @param output the underlying writer
+     * @throws IOException if an I/O error occurs
+     */
+    public void traverse(Reader input, Writer output) throws IOException {
+        BufferedReader lines = new BufferedReader(input);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>(maxInFlight);
+        try {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (pending.size() == maxInFlight) {
+                    writeResult(pending.poll(), output);
+                }
+                pending.add(executor.submit(new Document(line, cache)));
+            }
+            while (!pending.isEmpty()) {
+                writeResult(pending.poll(), output);
+            }
+        } finally {
+            //nobody waits for the rest after a failure
+            for (Future<String> result : pending) {
+                result.cancel(true);
+            }
+            output.flush();
+        }
+    }
+
+    /**
+     * Stops the worker threads after the running traversal.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static void writeResult(Future<String> result, Writer output) throws IOException {
+        try {
+            output.write(result.get());
+            output.write(LINE_SEPARATOR);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a document");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Parses and traverses the tree of one input line.
+     */
+    private static class Document implements Callable<String> {
+
+        private final String line;
+        private final TraversalCache cache;
+
+        Document(String line, TraversalCache cache) {
+            this.line = line;
+            this.cache = cache;
+        }
+
+        @Override
+        public String call() throws IOException {
+            String key = null;
+            if (cache != null) {
+                byte[] bytes = line.getBytes(CACHE_CHARSET);
+                key = TraversalCache.hash(bytes, 0, bytes.length);
+                byte[] cached = cache.get(key);
+                if (cached != null) {
+                    return new String(cached, CACHE_CHARSET);
+                }
+            }
+            BinaryTreeNode tree = new BinaryTreeNode();
+            try {
+                tree.load(new StringReader(line), ParserMode.ITERATIVE);
+            } catch (ParseException ex) {
+                //the cache only holds node orders, the other modes share it
+                return ex.getMessage();
+            }
+            StringWriter output = new StringWriter(line.length());
+            tree.save(output);
+            String result = output.toString();
+            if (cache != null) {
+                cache.put(key, result.getBytes(CACHE_CHARSET));
+            }
+            return result;
+        }
+
+    }
+
+}
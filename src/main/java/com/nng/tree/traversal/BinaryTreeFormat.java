@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary file format of the trees, the on-disk form of an
+ * {@link IndexedTree}. All numbers are little-endian.
+ * <br>header: the bytes "BTRE", the int version, the int node count, an
+ * unused int, the long length of the name pool and an unused long
+ * <br>the int indexes of the left children of the nodes, -1 if missing
+ * <br>the int indexes of the right children of the nodes, -1 if missing
+ * <br>the int offsets of the names of the nodes in the name pool
+ * <br>the name pool, see {@link IndexedTree}
+ * <br>
+ *
+ * The arrays are read in place by {@link MappedTree}, so a file is loaded
+ * without parsing or copying. Validating the nodes of a file takes one pass
+ * over it, trusted files can be mapped without it.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public final class BinaryTreeFormat {
+
+    /**
+     * The first four bytes of the file, "BTRE" read as a little-endian int.
+     */
+    static final int MAGIC = 0x45525442;
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 1;
+    /**
+     * The size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 32;
+    /**
+     * The byte order of the numbers.
+     */
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BinaryTreeFormat() {
+    }
+
+    /**
+     * Writes the specified tree to the specified file. A tree that is not a
+     * {@link ColumnarTree} is copied to one first.
+     *
+     * @param root the root of the tree
+     * @param output the path of the file
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if a node name is not ASCII
+     */
+    public static void write(Node root, Path output) throws IOException {
+        ColumnarTree tree = root instanceof ColumnarTree ? (ColumnarTree) root : ColumnarTree.copyOf(root);
+        FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            write(tree, channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the specified tree to the specified channel.
+     *
+     * @param tree the tree
+     * @param output the underlying channel
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(ColumnarTree tree, WritableByteChannel output) throws IOException {
+        int nodeCount = tree.getNodeCount();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(nodeCount).putInt(0);
+        buffer.putLong(tree.getNamePoolLength()).putLong(0);
+        for (int i = 0; i < nodeCount; i++) {
+            buffer = putInt(buffer, tree.getLeft(i), output);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            buffer = putInt(buffer, tree.getRight(i), output);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            buffer = putInt(buffer, tree.getNameId(i), output);
+        }
+        flush(buffer, output);
+        writeFully(ByteBuffer.wrap(tree.getNamePool(), 0, tree.getNamePoolLength()), output);
+    }
+
+    /**
+     * Maps the specified file as a validated tree, see {@link MappedTree}.
+     * The open time grows with the node count.
+     *
+     * @param input the path of the file
+     * @return the tree
+     * @throws IOException if an I/O error occurs or the file is not a valid
+     * tree file of this format
+     */
+    public static MappedTree map(Path input) throws IOException {
+        return map(input, true);
+    }
+
+    /**
+     * Maps the specified file as a tree. A tree that is not validated is
+     * opened in constant time, but only the header and the size of the file
+     * are checked, see {@link MappedTree}.
+     *
+     * @param input the path of the file
+     * @param validate whether the nodes are checked
+     * @return the tree
+     * @throws IOException if an I/O error occurs or the file is not a tree
+     * file of this format
+     */
+    public static MappedTree map(Path input, boolean validate) throws IOException {
+        FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+        try {
+            return new MappedTree(channel, validate);
+        } finally {
+            //the mappings stay valid after the channel is closed
+            channel.close();
+        }
+    }
+
+    private static ByteBuffer putInt(ByteBuffer buffer, int value, WritableByteChannel output) throws IOException {
+        if (buffer.remaining() < 4) {
+            flush(buffer, output);
+        }
+        return buffer.putInt(value);
+    }
+
+    private static void flush(ByteBuffer buffer, WritableByteChannel output) throws IOException {
+        buffer.flip();
+        writeFully(buffer, output);
+        buffer.clear();
+    }
+
+    private static void writeFully(ByteBuffer buffer, WritableByteChannel output) throws IOException {
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+    }
+
+}
@@ -18,169 +18,268 @@
 package com.nng.tree.traversal;
 
 import java.io.IOException;
-import java.io.PushbackReader;
-import java.io.Reader;
-import java.io.StreamTokenizer;
 import java.text.ParseException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Collection of static helper methods to parse tokens and to validate the
  * syntax of the tokens.
+ * <br>&lt;node&gt; ::= "(" string "," &lt;node&gt; "," &lt;node&gt; ")"
+ * <br>
+ *
+ * The tokens are read from a {@link BinaryTreeLexer} that is shared by the
+ * whole parse.
  *
  * @author Richárd Ernő Kiss
  */
 public class BinaryTreeInputParser {
 
     //( -> 40
-    private static final int LEFT_PARENTHESIS = 40;
+    protected static final int LEFT_PARENTHESIS = 40;
     //) -> 41
-    private static final int RIGHT_PARENTHESIS = 41;
+    protected static final int RIGHT_PARENTHESIS = 41;
     //, -> 44
-    private static final int COMMA = 44;
+    protected static final int COMMA = 44;
+
+    /**
+     * Parses the name and the children of the specified node from the
+     * specified lexer. Calls itself for the child nodes, so the depth of the
+     * tree is limited by the size of the thread stack.
+     *
+     * @param currentNode the node to parse
+     * @param lexer the lexer that contains the tokens
+     * @throws ParseException if the input contains a syntax error
+     * @throws IOException if an I/O error occurs
+     */
+    protected static void parseNode(Node currentNode, BinaryTreeLexer lexer) throws ParseException, IOException {
+        parseNode(currentNode, lexer, null);
+    }
+
+    /**
+     * Parses the name and the children of the specified node from the
+     * specified lexer, resolving the names through the specified symbol table.
+     * Calls itself for the child nodes.
+     *
+     * @param currentNode the node to parse
+     * @param lexer the lexer that contains the tokens
+     * @param symbols the symbol table of the names, or null to create a new
+     * string for every name
+     * @throws ParseException if the input contains a syntax error
+     * @throws IOException if an I/O error occurs
+     */
+    protected static void parseNode(Node currentNode, BinaryTreeLexer lexer, SymbolTable symbols) throws ParseException, IOException {
+        parseNodeName(currentNode, lexer, symbols);
+        //parse left child
+        parseChildNode(currentNode, lexer, true, symbols);
+        //examine right child
+        parseChildNode(currentNode, lexer, false, symbols);
+    }
 
-    private static final Pattern nodeNamePattern = Pattern.compile("^[a-zA-z]{1}[0-9a-zA-z]*");
+    /**
+     * Parses the name and the children of the specified node from the
+     * specified lexer. Keeps the nodes under construction on an explicit stack
+     * of an {@link IterativeTreeParser}, so the depth of the tree is only
+     * limited by the heap.
+     *
+     * @param currentNode the node to parse
+     * @param lexer the lexer that contains the tokens
+     * @throws ParseException if the input contains a syntax error
+     * @throws IOException if an I/O error occurs
+     */
+    protected static void parseNodeIteratively(Node currentNode, BinaryTreeLexer lexer) throws ParseException, IOException {
+        parseNodeIteratively(currentNode, lexer, null);
+    }
 
     /**
-     * Configures a stream tokenizer for the grammar.
-     * <br>&lt;node&gt; ::= "(" string "," &lt;node&gt; "," &lt;node&gt; ")"
-     * <br>
+     * Parses the name and the children of the specified node from the
+     * specified lexer without recursion, resolving the names through the
+     * specified symbol table.
      *
-     * The default config is almost good, regarding whitespace and token
-     * splitting. Removed numbers from TT_NUMBER and add to TT_WORD, also added
-     * EOL to the split tokens.
+     * @param currentNode the node to parse
+     * @param lexer the lexer that contains the tokens
+     * @param symbols the symbol table of the names, or null to create a new
+     * string for every name
+     * @throws ParseException if the input contains a syntax error
+     * @throws IOException if an I/O error occurs
+     */
+    protected static void parseNodeIteratively(Node currentNode, BinaryTreeLexer lexer, SymbolTable symbols) throws ParseException, IOException {
+        parseTree(lexer, new NodeTreeBuilder(currentNode, symbols));
+    }
+
+    /**
+     * Parses a tree from the specified lexer with an
+     * {@link IterativeTreeParser} and passes its nodes to the specified
+     * builder.
+     *
+     * @param lexer the lexer that contains the tokens
+     * @param builder the builder that stores the nodes
+     * @throws ParseException if the input contains a syntax error
+     * @throws IOException if an I/O error occurs
+     */
+    protected static void parseTree(BinaryTreeLexer lexer, TreeBuilder builder) throws ParseException, IOException {
+        IterativeTreeParser parser = new IterativeTreeParser(builder);
+        do {
+            lexer.nextToken();
+        } while (!parser.accept(lexer));
+    }
+
+    /**
+     * Parses and validates the indentifier of the specified node from the
+     * specified lexer. Uses {@link #checkNextToken(BinaryTreeLexer, int)} for
+     * token validation.
      *
-     * @param input the underlying reader
-     * @return the configured stream tokenizer
+     * @param currentNode the node to set the name to
+     * @param lexer the lexer that contains the tokens
+     * @throws ParseException if the input contains a syntax error
+     * @throws IOException if an I/O error occurs
      */
-    protected static StreamTokenizer createConfiguredStreamTokenizer(Reader input) {
-        StreamTokenizer st = new StreamTokenizer(input);
-
-        st.ordinaryChar('0');
-        st.ordinaryChar('1');
-        st.ordinaryChar('2');
-        st.ordinaryChar('3');
-        st.ordinaryChar('4');
-        st.ordinaryChar('5');
-        st.ordinaryChar('6');
-        st.ordinaryChar('7');
-        st.ordinaryChar('8');
-        st.ordinaryChar('9');
-        st.ordinaryChar('.');
-        st.ordinaryChar('-');
-        // 0 1 2 3 4 5 6 7 8 9
-        st.wordChars('\u0030', '\u0039');
-        st.eolIsSignificant(true);
-        return st;
+    protected static void parseNodeName(Node currentNode, BinaryTreeLexer lexer) throws ParseException, IOException {
+        parseNodeName(currentNode, lexer, null);
     }
 
     /**
      * Parses and validates the indentifier of the specified node from the
-     * specified stream tokenizer. Uses {@link #checkNextToken(java.io.StreamTokenizer, int)
-     * } for token validation.
+     * specified lexer, resolving it through the specified symbol table.
      *
      * @param currentNode the node to set the name to
-     * @param streamTokenizer the stream tokenizer that contains the tokens
+     * @param lexer the lexer that contains the tokens
+     * @param symbols the symbol table of the names, or null to create a new
+     * string for the name
      * @throws ParseException if the input contains a syntax error
      * @throws IOException if an I/O error occurs
      */
-    protected static void parseNodeName(Node currentNode, StreamTokenizer streamTokenizer) throws ParseException, IOException {
+    protected static void parseNodeName(Node currentNode, BinaryTreeLexer lexer, SymbolTable symbols) throws ParseException, IOException {
         //first token must be '('
-        checkNextToken(streamTokenizer, LEFT_PARENTHESIS);
-        streamTokenizer.nextToken();
-        if (streamTokenizer.ttype == StreamTokenizer.TT_WORD) { //token must be word -> node name
-            //name must start with a character
-            Matcher matcher = nodeNamePattern.matcher(streamTokenizer.sval);
-            if (!matcher.matches()) {
-                if (Character.isDigit(streamTokenizer.sval.charAt(0))) {
-                    throw new ParseException("Syntax error, node name can not start with a number: " + currentTokenToString(streamTokenizer), 0);
-                } else{
-                    throw new ParseException("Syntax error, node name must consist of english letters and numbers: " + currentTokenToString(streamTokenizer), 0);
-                }
+        checkNextToken(lexer, LEFT_PARENTHESIS);
+        if (lexer.nextToken() == BinaryTreeLexer.TT_WORD) { //token must be word -> node name
+            validateNodeName(lexer);
+            if (symbols == null) {
+                currentNode.setName(lexer.getWord());
+            } else {
+                currentNode.setName(symbols.intern(lexer.getWordChars(), lexer.getWordOffset(), lexer.getWordLength()));
             }
-            currentNode.setName(streamTokenizer.sval);
             //next token must be a comma
-            checkNextToken(streamTokenizer, COMMA);
+            checkNextToken(lexer, COMMA);
         } else {
-            throw new ParseException("Syntax error, expected node identifier, but found: " + currentTokenToString(streamTokenizer), 0);
+            throw unexpectedToken("node identifier", lexer);
+        }
+    }
+
+    /**
+     * Validates the current word token of the specified lexer as a node
+     * identifier. Uses the character classes that the lexer collected while
+     * scanning the word, the characters are only examined again to choose the
+     * error message.
+     *
+     * @param lexer the lexer that contains the tokens
+     * @throws ParseException if the word is not a valid node identifier
+     */
+    protected static void validateNodeName(BinaryTreeLexer lexer) throws ParseException {
+        //name must start with a character
+        if (!lexer.isNodeName()) {
+            if (Character.isDigit(lexer.getWordChars()[lexer.getWordOffset()])) {
+                throw new ParseException("Syntax error, node name can not start with a number: " + currentTokenToString(lexer), 0);
+            } else{
+                throw new ParseException("Syntax error, node name must consist of english letters and numbers: " + currentTokenToString(lexer), 0);
+            }
         }
     }
 
     /**
-     * Parses child nodes from the specified stream tokenizer and sets it to the
-     * specified parent node depeneding on the specified boolean.
+     * Parses child nodes from the specified lexer and sets it to the specified
+     * parent node depeneding on the specified boolean.
      *
      * @param parentNode the node to set the children to
-     * @param streamTokenizer he stream tokenizer that contains the tokens
-     * @param pushbackReader the reader with pushback buffer
+     * @param lexer the lexer that contains the tokens
      * @param isFirstChild indicates if it is a left or right child node
      * @throws IOException if an I/O error occurs
      * @throws ParseException if the input contains a syntax error
      */
-    protected static void parseChildNode(Node parentNode, StreamTokenizer streamTokenizer, PushbackReader pushbackReader, Boolean isFirstChild) throws IOException, ParseException {
+    protected static void parseChildNode(Node parentNode, BinaryTreeLexer lexer, boolean isFirstChild) throws IOException, ParseException {
+        parseChildNode(parentNode, lexer, isFirstChild, null);
+    }
+
+    /**
+     * Parses child nodes from the specified lexer and sets it to the specified
+     * parent node depeneding on the specified boolean, resolving the names
+     * through the specified symbol table.
+     *
+     * @param parentNode the node to set the children to
+     * @param lexer the lexer that contains the tokens
+     * @param isFirstChild indicates if it is a left or right child node
+     * @param symbols the symbol table of the names, or null to create a new
+     * string for every name
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    protected static void parseChildNode(Node parentNode, BinaryTreeLexer lexer, boolean isFirstChild, SymbolTable symbols) throws IOException, ParseException {
         int expectedTokenAfterChild = isFirstChild ? COMMA : RIGHT_PARENTHESIS;
 
-        streamTokenizer.nextToken();
-        if (streamTokenizer.ttype == LEFT_PARENTHESIS) {
-            pushbackReader.unread((int) '(');       //the Reader buffer will start with '(' when we pass it forward
+        lexer.nextToken();
+        if (lexer.getTokenType() == LEFT_PARENTHESIS) {
+            lexer.pushBack();       //the child node will start with '(' when we pass the lexer forward
             //create new child
             Node childNode = new BinaryTreeNode();
-            childNode.load(pushbackReader);
+            parseNode(childNode, lexer, symbols);
             if (isFirstChild) {
                 parentNode.setLeft(childNode);
             } else {
                 parentNode.setRight(childNode);
             }
             //next token must be a comma if first child or a right parenthesis if last child
-            checkNextToken(streamTokenizer, expectedTokenAfterChild);
-        } else if (streamTokenizer.ttype == expectedTokenAfterChild) {
+            checkNextToken(lexer, expectedTokenAfterChild);
+        } else if (lexer.getTokenType() == expectedTokenAfterChild) {
             //empty children, nothing to do
         } else {
-            throw new ParseException("Syntax error, expected '(' or '" + (char) expectedTokenAfterChild + "', but found: " + currentTokenToString(streamTokenizer), 0);
+            throw unexpectedToken("'(' or '" + (char) expectedTokenAfterChild + "'", lexer);
         }
     }
 
     /**
-     * Checks if the next token in the specified stream matches the specified
+     * Checks if the next token in the specified lexer matches the specified
      * token.
      *
-     * @param stremTokenizer the stream tokenizer that contains the tokens
-     * @param expectedToken the next token that we expect in the stream
-     * tokenizer
+     * @param lexer the lexer that contains the tokens
+     * @param expectedToken the next token that we expect in the lexer
      * @throws ParseException if the provided token does not match the token in
-     * the stream tokenizer
+     * the lexer
      * @throws IOException if an I/O error occurs
      */
-    protected static void checkNextToken(StreamTokenizer stremTokenizer, int expectedToken) throws ParseException, IOException {
-        stremTokenizer.nextToken();
-        if (stremTokenizer.ttype != expectedToken) {
-            throw new ParseException("Syntax error, expected '" + (char) expectedToken + "', but found: " + currentTokenToString(stremTokenizer), 0);
+    protected static void checkNextToken(BinaryTreeLexer lexer, int expectedToken) throws ParseException, IOException {
+        if (lexer.nextToken() != expectedToken) {
+            throw unexpectedToken("'" + (char) expectedToken + "'", lexer);
         }
 
     }
 
     /**
-     * Converts the current token in the specified stream tokenizer to string.
+     * Creates the exception for a syntax error where the current token of the
+     * specified lexer is not the expected one.
+     *
+     * @param expected the description of the expected tokens
+     * @param lexer the lexer that contains the tokens
+     * @return the exception to throw
+     */
+    protected static ParseException unexpectedToken(String expected, BinaryTreeLexer lexer) {
+        return new ParseException("Syntax error, expected " + expected + ", but found: " + currentTokenToString(lexer), 0);
+    }
+
+    /**
+     * Converts the current token in the specified lexer to string.
      *
-     * @param streamTokenizer the stream tokenizer
+     * @param lexer the lexer
      * @return the string representation of the token
      */
-    protected static String currentTokenToString(StreamTokenizer streamTokenizer) {
+    protected static String currentTokenToString(BinaryTreeLexer lexer) {
         String ret;
-        switch (streamTokenizer.ttype) {
-            case StreamTokenizer.TT_WORD:
-                ret = streamTokenizer.sval;
+        switch (lexer.getTokenType()) {
+            case BinaryTreeLexer.TT_WORD:
+                ret = lexer.getWord();
                 break;
-            case StreamTokenizer.TT_NUMBER:
-                ret = Double.toString(streamTokenizer.nval);
+            case BinaryTreeLexer.TT_EOL:
+                ret = "EndOfLine";
                 break;
             default:
-                if (streamTokenizer.ttype == StreamTokenizer.TT_EOL) {
-                    ret = "EndOfLine";
-                } else {
-                    ret = Character.toString((char) streamTokenizer.ttype);
-                }
+                ret = Character.toString((char) lexer.getTokenType());
         }
         return ret;
     }
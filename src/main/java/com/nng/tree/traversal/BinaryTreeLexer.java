@@ -0,0 +1,466 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Hand-written lexer for the grammar.
+ * <br>&lt;node&gt; ::= "(" string "," &lt;node&gt; "," &lt;node&gt; ")"
+ * <br>
+ *
+ * Splits the input into the same tokens as the formerly used
+ * {@link java.io.StreamTokenizer} configuration: letters and numbers form
+ * words, characters up to the space are whitespace, line ends are significant,
+ * '/' starts a comment till the end of the line, '"' and '\'' enclose quoted
+ * strings, every other character is a token on its own.
+ *
+ * The input is scanned once through a reusable character buffer, so a single
+ * lexer serves the whole parse. Nothing is allocated per token, the characters
+ * of a word are only copied to a string by {@link #getWord()}.
+ *
+ * Each word is also checked against the node name syntax while it is
+ * scanned, with a table of character classes that reproduces the former
+ * pattern "^[a-zA-z]{1}[0-9a-zA-z]*", see {@link #isNodeName()}.
+ *
+ * If {@link TraversalMetrics#ENABLED} is set, the lexer also counts the
+ * characters, the words and the parenthesis depth of the input.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class BinaryTreeLexer {
+
+    /**
+     * The end of the input has been read.
+     */
+    public static final int TT_EOF = -1;
+    /**
+     * The end of a line has been read.
+     */
+    public static final int TT_EOL = '\n';
+    /**
+     * A word token has been read.
+     */
+    public static final int TT_WORD = -3;
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int MAX_WORD_CHARACTER = 255;
+    //the character is part of a word
+    private static final byte WORD = 1;
+    //the character can start a node name
+    private static final byte NAME_START = 2;
+    //the character can be part of a node name
+    private static final byte NAME_PART = 4;
+    private static final byte[] characterClasses = new byte[MAX_WORD_CHARACTER + 1];
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            characterClasses[c] |= WORD;
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            characterClasses[c] |= WORD;
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            characterClasses[c] |= WORD | NAME_PART;
+        }
+        for (int c = 128 + 32; c <= MAX_WORD_CHARACTER; c++) {
+            characterClasses[c] |= WORD;
+        }
+        //[a-zA-z], the 'A' to 'z' range also contains the characters from '[' to '`'
+        for (int c = 'A'; c <= 'z'; c++) {
+            characterClasses[c] |= NAME_START | NAME_PART;
+        }
+    }
+
+    private final Reader input;
+    private final char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfInput = false;
+    private boolean skipLineFeed = false;
+    private boolean pushedBack = false;
+    private int tokenType = TT_EOF;
+
+    private char[] wordChars;
+    private int wordOffset = 0;
+    private int wordLength = 0;
+    private int wordClasses = 0;
+    private char[] wordBuffer = new char[32];
+
+    private long characterCount = 0;
+    private long wordCount = 0;
+    private long wordCharacterCount = 0;
+    private int depth = 0;
+    private int maxDepth = 0;
+
+    /**
+     * Constructs a lexer that reads the specified reader.
+     *
+     * @param input the underlying reader
+     */
+    public BinaryTreeLexer(Reader input) {
+        this(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a lexer that reads the specified reader through a buffer of
+     * the specified size.
+     *
+     * @param input the underlying reader
+     * @param bufferSize the size of the character buffer
+     */
+    BinaryTreeLexer(Reader input, int bufferSize) {
+        this.input = input;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Constructs a lexer for subclasses that override
+     * {@link #fill(char[])} to provide the input.
+     *
+     * @param bufferSize the size of the character buffer
+     */
+    protected BinaryTreeLexer(int bufferSize) {
+        this(null, bufferSize);
+    }
+
+    /**
+     * Reads the next token from the input.
+     *
+     * @return the type of the token, {@link #TT_WORD}, {@link #TT_EOL},
+     * {@link #TT_EOF} or the character itself
+     * @throws IOException if an I/O error occurs
+     */
+    public int nextToken() throws IOException {
+        if (pushedBack) {
+            pushedBack = false;
+            return tokenType;
+        }
+        wordLength = 0;
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if (peek() == '\n') {
+                position++;
+            }
+        }
+        while (true) {
+            int c = peek();
+            if (c < 0) {
+                return tokenType = TT_EOF;
+            }
+            if (c <= ' ') {
+                position++;
+                if (c == '\r') {
+                    skipLineFeed = true;
+                    return tokenType = TT_EOL;
+                }
+                if (c == '\n') {
+                    return tokenType = TT_EOL;
+                }
+            } else if (isWordCharacter(c)) {
+                scanWord();
+                if (TraversalMetrics.ENABLED) {
+                    wordCount++;
+                    wordCharacterCount += wordLength;
+                }
+                return tokenType = TT_WORD;
+            } else if (c == '"' || c == '\'') {
+                position++;
+                skipQuotedString(c);
+                return tokenType = c;
+            } else if (c == '/') {
+                //comment, skip till the end of the line and read the next token
+                position++;
+                skipComment();
+            } else {
+                position++;
+                if (TraversalMetrics.ENABLED) {
+                    countDepth(c);
+                }
+                return tokenType = c;
+            }
+        }
+    }
+
+    /**
+     * Causes the next call of {@link #nextToken()} to return the current token
+     * again.
+     */
+    public void pushBack() {
+        pushedBack = true;
+    }
+
+    /**
+     * Returns the type of the current token.
+     *
+     * @return the token type
+     */
+    public int getTokenType() {
+        return tokenType;
+    }
+
+    /**
+     * Returns the current word token as a new string.
+     *
+     * @return the word, or null if the current token is not a word
+     */
+    public String getWord() {
+        return tokenType == TT_WORD ? new String(wordChars, wordOffset, wordLength) : null;
+    }
+
+    /**
+     * Returns the array that holds the characters of the current word. The
+     * content is only valid until the next call of {@link #nextToken()}.
+     *
+     * @return the character array
+     */
+    public char[] getWordChars() {
+        return wordChars;
+    }
+
+    /**
+     * Returns the offset of the current word in {@link #getWordChars()}.
+     *
+     * @return the offset
+     */
+    public int getWordOffset() {
+        return wordOffset;
+    }
+
+    /**
+     * Returns the length of the current word.
+     *
+     * @return the number of characters
+     */
+    public int getWordLength() {
+        return wordLength;
+    }
+
+    /**
+     * Tells if the current word is a valid node name: it starts with an
+     * english letter and consists of english letters and numbers. The check
+     * is done while the word is scanned, so this call costs nothing.
+     *
+     * @return true if the current token is a word and a valid node name
+     */
+    public boolean isNodeName() {
+        return tokenType == TT_WORD && (wordClasses & NAME_PART) != 0 && (characterClass(wordChars[wordOffset]) & NAME_START) != 0;
+    }
+
+    /**
+     * Forgets the buffered input and the current token, so a subclass can
+     * reuse the lexer for a new input of {@link #fill(char[])}.
+     */
+    protected void reset() {
+        position = limit = 0;
+        endOfInput = false;
+        skipLineFeed = false;
+        pushedBack = false;
+        tokenType = TT_EOF;
+        wordLength = 0;
+        characterCount = wordCount = wordCharacterCount = 0;
+        depth = maxDepth = 0;
+    }
+
+    /**
+     * Returns the number of characters read from the input. Only counted if
+     * {@link TraversalMetrics#ENABLED} is set.
+     *
+     * @return the number of characters
+     */
+    long getCharacterCount() {
+        return characterCount;
+    }
+
+    /**
+     * Returns the number of word tokens read. Only counted if
+     * {@link TraversalMetrics#ENABLED} is set.
+     *
+     * @return the number of words
+     */
+    long getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Returns the total length of the word tokens read. Only counted if
+     * {@link TraversalMetrics#ENABLED} is set.
+     *
+     * @return the number of characters of the words
+     */
+    long getWordCharacterCount() {
+        return wordCharacterCount;
+    }
+
+    /**
+     * Returns the deepest nesting of parentheses read. Only counted if
+     * {@link TraversalMetrics#ENABLED} is set.
+     *
+     * @return the maximum depth
+     */
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the size of the buffer of the words that continue after the end
+     * of the character buffer, which grows with the longest such word.
+     *
+     * @return the number of characters
+     */
+    int getWordBufferSize() {
+        return wordBuffer.length;
+    }
+
+    /**
+     * Reads the next characters of the input into the specified buffer.
+     *
+     * @param target the buffer to fill
+     * @return the number of characters read, or -1 at the end of the input
+     * @throws IOException if an I/O error occurs
+     */
+    protected int fill(char[] target) throws IOException {
+        return input.read(target, 0, target.length);
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !refill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean refill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        int count;
+        do {
+            count = fill(buffer);
+        } while (count == 0);
+        if (count < 0) {
+            endOfInput = true;
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = count;
+        if (TraversalMetrics.ENABLED) {
+            characterCount += count;
+        }
+        return true;
+    }
+
+    private void countDepth(int c) {
+        if (c == '(') {
+            maxDepth = Math.max(maxDepth, ++depth);
+        } else if (c == ')') {
+            depth--;
+        }
+    }
+
+    /**
+     * Returns the number of characters that were read from the input but not
+     * consumed by the tokens yet.
+     *
+     * @return the number of buffered characters
+     */
+    int getBufferedCount() {
+        return limit - position;
+    }
+
+    /**
+     * Tells if the specified character is part of a word token.
+     *
+     * @param c the character
+     * @return true if the character belongs to a word
+     */
+    static boolean isWordCharacter(int c) {
+        return (characterClass(c) & WORD) != 0;
+    }
+
+    private static int characterClass(int c) {
+        return c > MAX_WORD_CHARACTER ? WORD : characterClasses[c];
+    }
+
+    private void scanWord() throws IOException {
+        int start = position;
+        //the common classes of the characters of the word
+        int classes = WORD | NAME_START | NAME_PART;
+        int c;
+        while (position < limit && ((c = characterClass(buffer[position])) & WORD) != 0) {
+            classes &= c;
+            position++;
+        }
+        wordClasses = classes;
+        if (position < limit) {
+            //the whole word is in the buffer
+            wordChars = buffer;
+            wordOffset = start;
+            wordLength = position - start;
+            return;
+        }
+        //the word continues after the end of the buffer
+        int length = 0;
+        while (true) {
+            int count = position - start;
+            if (length + count > wordBuffer.length) {
+                char[] grown = new char[Math.max(wordBuffer.length * 2, length + count)];
+                System.arraycopy(wordBuffer, 0, grown, 0, length);
+                wordBuffer = grown;
+            }
+            System.arraycopy(buffer, start, wordBuffer, length, count);
+            length += count;
+            if (position < limit || !refill()) {
+                break;
+            }
+            start = position;
+            while (position < limit && ((c = characterClass(buffer[position])) & WORD) != 0) {
+                classes &= c;
+                position++;
+            }
+        }
+        wordClasses = classes;
+        wordChars = wordBuffer;
+        wordOffset = 0;
+        wordLength = length;
+    }
+
+    private void skipQuotedString(int quote) throws IOException {
+        int c;
+        while ((c = peek()) >= 0 && c != quote && c != '\n' && c != '\r') {
+            position++;
+            if (c == '\\' && peek() >= 0) {
+                //escaped character, can not close the string
+                position++;
+            }
+        }
+        if (c == quote) {
+            position++;
+        }
+    }
+
+    private void skipComment() throws IOException {
+        int c;
+        while ((c = peek()) >= 0 && c != '\n' && c != '\r') {
+            position++;
+        }
+    }
+
+}
@@ -17,14 +17,16 @@
 
 package com.nng.tree.traversal;
 
-import static com.nng.tree.traversal.BinaryTreeInputParser.createConfiguredStreamTokenizer;
-import static com.nng.tree.traversal.BinaryTreeInputParser.parseChildNode;
-import static com.nng.tree.traversal.BinaryTreeInputParser.parseNodeName;
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseNode;
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseNodeIteratively;
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseTree;
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.io.Reader;
-import java.io.StreamTokenizer;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.util.Iterator;
 
@@ -130,9 +132,9 @@ public class BinaryTreeNode implements Node {
     }
 
     /**
-     * Parses the input from the specified reader. Wraps the reader to a
-     * {@link java.io.PushbackReader} to use its buffer for peeking ahead. Uses
-     * {@link java.io.StreamTokenizer} as a lexer. Uses static methods from
+     * Parses the input from the specified reader. Uses a single
+     * {@link com.nng.tree.traversal.BinaryTreeLexer} for the whole tree, it
+     * also peeks ahead with its push back. Uses static methods from
      * {@link com.nng.tree.traversal.BinaryTreeInputParser} for the parsing.
      *
      * @param input the underlying reader
@@ -141,14 +143,138 @@ public class BinaryTreeNode implements Node {
      */
     @Override
     public void load(Reader input) throws IOException, ParseException {
-        PushbackReader pushbackReader = new PushbackReader(input);
-        StreamTokenizer streamTokenizer = createConfiguredStreamTokenizer(pushbackReader);
+        load(input, ParserMode.RECURSIVE);
+    }
+
+    /**
+     * Parses the input from the specified reader in the specified mode. All
+     * modes build the same tree, {@link ParserMode#ITERATIVE} should be used
+     * for trees that are too deep for the thread stack, {@link ParserMode#LAZY}
+     * if only a part of the tree will be visited, {@link ParserMode#PARALLEL}
+     * for large inputs on a multi-core machine, {@link ParserMode#DEDUPLICATED}
+     * for inputs with many repeated subtrees.
+     *
+     * @param input the underlying reader
+     * @param mode the parser mode
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Reader input, ParserMode mode) throws IOException, ParseException {
+        load(input, mode, null);
+    }
+
+    /**
+     * Parses the input from the specified reader in the specified mode, with
+     * the names resolved through the specified symbol table. Nodes with equal
+     * names share one string while the name stays in the table, so trees with
+     * a small vocabulary of names take much less memory.
+     *
+     * @param input the underlying reader
+     * @param mode the parser mode
+     * @param symbols the symbol table of the names, or null to create a new
+     * string for every name
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Reader input, ParserMode mode, SymbolTable symbols) throws IOException, ParseException {
+        if (mode == ParserMode.PARALLEL && symbols == null) {
+            ParallelTreeParser.getDefault().load(this, input);
+            return;
+        }
+        load(new BinaryTreeLexer(input), mode, symbols);
+    }
+
+    /**
+     * Parses the input from the specified reader in
+     * {@link ParserMode#DEDUPLICATED} mode, with the repeated subtrees shared
+     * through the specified table. Trees loaded with the same table also
+     * share their equal subtrees, and the table keeps them alive until it is
+     * cleared, see {@link SubtreeTable}.
+     *
+     * @param input the underlying reader
+     * @param subtrees the table of the shared subtrees
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Reader input, SubtreeTable subtrees) throws IOException, ParseException {
+        load(new BinaryTreeLexer(input), ParserMode.DEDUPLICATED, null, subtrees);
+    }
+
+    /**
+     * Parses the specified file. The file is memory-mapped and read without
+     * charset decoding, it is expected to be ASCII.
+     *
+     * @param input the path of the file
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Path input) throws IOException, ParseException {
+        load(input, ParserMode.RECURSIVE);
+    }
+
+    /**
+     * Parses the specified file in the specified mode. The file is
+     * memory-mapped in windows by a {@link MappedFileLexer}, so it can be
+     * larger than 2 GB.
+     *
+     * @param input the path of the file
+     * @param mode the parser mode
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Path input, ParserMode mode) throws IOException, ParseException {
+        load(input, mode, null);
+    }
 
-        parseNodeName(this, streamTokenizer);
-        //parse left child
-        parseChildNode(this, streamTokenizer, pushbackReader, true);
-        //examine right child
-        parseChildNode(this, streamTokenizer, pushbackReader, false);
+    /**
+     * Parses the specified file in the specified mode, with the names resolved
+     * through the specified symbol table.
+     *
+     * @param input the path of the file
+     * @param mode the parser mode
+     * @param symbols the symbol table of the names, or null to create a new
+     * string for every name
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Path input, ParserMode mode, SymbolTable symbols) throws IOException, ParseException {
+        if (mode == ParserMode.PARALLEL && symbols == null) {
+            ParallelTreeParser.getDefault().load(this, input);
+            return;
+        }
+        FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+        try {
+            load(new MappedFileLexer(channel), mode, symbols);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void load(BinaryTreeLexer lexer, ParserMode mode, SymbolTable symbols) throws IOException, ParseException {
+        load(lexer, mode, symbols, mode == ParserMode.DEDUPLICATED ? new SubtreeTable() : null);
+    }
+
+    private void load(BinaryTreeLexer lexer, ParserMode mode, SymbolTable symbols, SubtreeTable subtrees) throws IOException, ParseException {
+        long start = TraversalMetrics.ENABLED ? System.nanoTime() : 0;
+        parse(lexer, mode, symbols, subtrees);
+        if (TraversalMetrics.ENABLED) {
+            TraversalMetrics.getInstance().recordParse(lexer, System.nanoTime() - start);
+        }
+    }
+
+    private void parse(BinaryTreeLexer lexer, ParserMode mode, SymbolTable symbols, SubtreeTable subtrees) throws IOException, ParseException {
+        if (mode == ParserMode.DEDUPLICATED) {
+            parseTree(lexer, new DeduplicatingTreeBuilder(this, symbols, subtrees));
+        } else if (mode == ParserMode.LAZY) {
+            //only the structure and the name pool are built, the nodes on demand
+            ColumnarTree structure = new ColumnarTree();
+            structure.load(lexer);
+            LazyBinaryTreeNode.initialize(this, structure, symbols);
+        } else if (mode == ParserMode.ITERATIVE || mode == ParserMode.PARALLEL) {
+            parseNodeIteratively(this, lexer, symbols);
+        } else {
+            parseNode(this, lexer, symbols);
+        }
     }
 
     /**
@@ -160,18 +286,63 @@ public class BinaryTreeNode implements Node {
      */
     @Override
     public void save(Writer output) throws IOException {
-        Boolean isFirst = true;
+        long start = TraversalMetrics.ENABLED ? System.nanoTime() : 0;
+        long nodeCount = 0;
+        long length = 0;
+        boolean isFirst = true;
         try {
             Iterator<Node> breadthFirstIterator = this.widthIterator();
             while (breadthFirstIterator.hasNext()) {
-                if (!isFirst | (isFirst = false)) {
+                if (!isFirst) {
                     output.append(OUTPUT_DELIMETER);
                 }
-                output.append(breadthFirstIterator.next().getName());
+                isFirst = false;
+                String name = breadthFirstIterator.next().getName();
+                output.append(name);
+                if (TraversalMetrics.ENABLED) {
+                    nodeCount++;
+                    length += name.length() + (nodeCount == 1 ? 0 : OUTPUT_DELIMETER.length());
+                }
             }
         } finally {
             output.flush();
         }
+        if (TraversalMetrics.ENABLED) {
+            TraversalMetrics.getInstance().recordSave(nodeCount, length, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes the node order of the tree traversal in the specified order to
+     * the specified writer.
+     *
+     * @param output the underlying writer
+     * @param order the traversal order
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Writer output, TraversalOrder order) throws IOException {
+        order.save(this, output);
+    }
+
+    /**
+     * Writes the node order of the tree traversal to the specified channel in
+     * the default charset. The names are collected in a large buffer of a
+     * {@link NodeOrderOutput} and written in few big chunks.
+     *
+     * @param output the underlying channel
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(WritableByteChannel output) throws IOException {
+        long start = TraversalMetrics.ENABLED ? System.nanoTime() : 0;
+        NodeOrderOutput nodeOrderOutput = new NodeOrderOutput(output);
+        try {
+            nodeOrderOutput.write(this.widthIterator());
+        } finally {
+            nodeOrderOutput.flush();
+        }
+        if (TraversalMetrics.ENABLED) {
+            TraversalMetrics.getInstance().recordSave(nodeOrderOutput.getNameCount(), nodeOrderOutput.getByteCount(), System.nanoTime() - start);
+        }
     }
 
 }
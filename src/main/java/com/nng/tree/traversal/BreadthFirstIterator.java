@@ -18,35 +18,70 @@
 package com.nng.tree.traversal;
 
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.NoSuchElementException;
 
 /**
  * Breadth-first tree traversal iterator implementation.
  *
+ * The queue of the nodes to visit is a growable circular array, so the
+ * iteration allocates nothing per node. The array only grows to the largest
+ * number of queued nodes, which is at most the width of two adjacent levels.
+ *
+ * If {@link TraversalMetrics#ENABLED} is set, the widths of the levels and the
+ * size of the queue are measured, and the traversal is recorded when the last
+ * node is returned.
+ *
  * @author Richárd Ernő Kiss
  */
 class BreadthFirstIterator implements Iterator<Node> {
 
-    final private Queue<Node> queue = new LinkedList<Node>();
+    //must be a power of two
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Node[] queue = new Node[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    //metrics, only measured if enabled
+    private long start;
+    private long visitedCount = 0;
+    private int levelRemaining;
+    private int nextLevelWidth = 0;
+    private int maxLevelWidth;
+    private int highWaterMark;
 
     public BreadthFirstIterator(Node tree) {
-        queue.add(tree);
+        if (tree != null) {
+            add(tree);
+        }
+        if (TraversalMetrics.ENABLED) {
+            start = System.nanoTime();
+            levelRemaining = maxLevelWidth = highWaterMark = size;
+        }
     }
 
     @Override
     public boolean hasNext() {
-        return !queue.isEmpty();
+        return size != 0;
     }
 
     @Override
     public Node next() {
-        Node node = queue.remove();
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        Node node = queue[head];
+        queue[head] = null;
+        head = (head + 1) & (queue.length - 1);
+        size--;
         if (node.getLeft() != null) {
-            queue.add(node.getLeft());
+            add(node.getLeft());
         }
         if (node.getRight() != null) {
-            queue.add(node.getRight());
+            add(node.getRight());
+        }
+        if (TraversalMetrics.ENABLED) {
+            measure(node);
         }
         return node;
     }
@@ -56,4 +91,32 @@ class BreadthFirstIterator implements Iterator<Node> {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    private void measure(Node node) {
+        visitedCount++;
+        highWaterMark = Math.max(highWaterMark, size);
+        nextLevelWidth += (node.getLeft() != null ? 1 : 0) + (node.getRight() != null ? 1 : 0);
+        if (--levelRemaining == 0) {
+            maxLevelWidth = Math.max(maxLevelWidth, nextLevelWidth);
+            levelRemaining = nextLevelWidth;
+            nextLevelWidth = 0;
+        }
+        if (size == 0) {
+            TraversalMetrics.getInstance().recordTraversal(visitedCount, maxLevelWidth, highWaterMark, queue.length, System.nanoTime() - start);
+        }
+    }
+
+    private void add(Node node) {
+        if (size == queue.length) {
+            Node[] grown = new Node[queue.length * 2];
+            //unwrap the queue to the start of the new array
+            int firstPart = queue.length - head;
+            System.arraycopy(queue, head, grown, 0, firstPart);
+            System.arraycopy(queue, 0, grown, firstPart, head);
+            queue = grown;
+            head = 0;
+        }
+        queue[(head + size) & (queue.length - 1)] = node;
+        size++;
+    }
+
 }
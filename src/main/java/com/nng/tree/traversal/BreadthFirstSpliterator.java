@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Breadth-first tree traversal spliterator. The nodes are visited level by
+ * level, each level is collected in a new array from the children of the
+ * previous one.
+ *
+ * A split hands off the rest of the current level as an array spliterator,
+ * this spliterator continues with the next level. Narrow levels are handed
+ * off together until they have {@link #MIN_SPLIT_SIZE} nodes, so a deep and
+ * narrow tree is not split into a task per node. The last level is halved
+ * instead. Both parts keep the encounter order, and if the node count of the
+ * tree is known, both parts know their exact size.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class BreadthFirstSpliterator implements Spliterator<Node> {
+
+    /**
+     * The minimum number of nodes handed off by a split, unless the rest of
+     * the tree is only the last level.
+     */
+    static final int MIN_SPLIT_SIZE = 1024;
+
+    private static final Node[] EMPTY_LEVEL = new Node[0];
+
+    //never modified after creation, the split parts share it
+    private Node[] level;
+    private int index = 0;
+    //the number of nodes left, or -1 if it is unknown
+    private long remaining;
+
+    /**
+     * Constructs a spliterator of the specified tree.
+     *
+     * @param tree the root node, or null for an empty tree
+     * @param nodeCount the number of nodes in the tree, or -1 if it is unknown
+     */
+    public BreadthFirstSpliterator(Node tree, long nodeCount) {
+        this.level = tree != null ? new Node[]{tree} : EMPTY_LEVEL;
+        this.remaining = tree != null ? nodeCount : 0;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Node> action) {
+        if (index == level.length) {
+            level = nextLevel(level);
+            index = 0;
+            if (level.length == 0) {
+                return false;
+            }
+        }
+        if (remaining > 0) {
+            remaining--;
+        }
+        action.accept(level[index++]);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Node> action) {
+        while (tryAdvance(action)) {
+        }
+    }
+
+    @Override
+    public Spliterator<Node> trySplit() {
+        if (index == level.length) {
+            level = nextLevel(level);
+            index = 0;
+        }
+        //the children of the whole level, the handed off part included
+        Node[] next = nextLevel(level);
+        if (next.length == 0) {
+            if (level.length - index < 2) {
+                return null;
+            }
+            int splitEnd = index + (level.length - index) / 2;
+            Spliterator<Node> prefix = Spliterators.spliterator(level, index, splitEnd, ORDERED | NONNULL | IMMUTABLE);
+            if (remaining > 0) {
+                remaining -= splitEnd - index;
+            }
+            index = splitEnd;
+            return prefix;
+        }
+        Node[] batch = level;
+        int from = index;
+        int count = level.length - index;
+        boolean isCopy = false;
+        level = next;
+        index = 0;
+        //narrow levels are joined, the last level always stays here
+        while (count < MIN_SPLIT_SIZE && (next = nextLevel(level)).length > 0) {
+            //the level arrays are shared, only a copy is filled
+            if (!isCopy || count + level.length > batch.length) {
+                batch = Arrays.copyOfRange(batch, from, from + Math.max(count + level.length, 2 * count));
+                from = 0;
+                isCopy = true;
+            }
+            System.arraycopy(level, 0, batch, count, level.length);
+            count += level.length;
+            level = next;
+        }
+        if (remaining > 0) {
+            remaining -= count;
+        }
+        return Spliterators.spliterator(batch, from, from + count, ORDERED | NONNULL | IMMUTABLE);
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining >= 0 ? remaining : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | (remaining >= 0 ? SIZED | SUBSIZED : 0);
+    }
+
+    private static Node[] nextLevel(Node[] level) {
+        int count = 0;
+        for (Node node : level) {
+            count += (node.getLeft() != null ? 1 : 0) + (node.getRight() != null ? 1 : 0);
+        }
+        Node[] next = count == 0 ? EMPTY_LEVEL : new Node[count];
+        int i = 0;
+        for (Node node : level) {
+            if (node.getLeft() != null) {
+                next[i++] = node.getLeft();
+            }
+            if (node.getRight() != null) {
+                next[i++] = node.getRight();
+            }
+        }
+        return next;
+    }
+
+}
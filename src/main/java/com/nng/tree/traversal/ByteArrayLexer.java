@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * Lexer that reads the input from a byte array. The bytes are taken as
+ * ISO-8859-1 characters without a charset decoder, like in
+ * {@link MappedFileLexer}. The lexer can be reset to a new array, so one
+ * instance with its buffers serves many small inputs.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class ByteArrayLexer extends BinaryTreeLexer {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private byte[] bytes = new byte[0];
+    private int position = 0;
+    private int limit = 0;
+
+    /**
+     * Constructs a lexer without input, {@link #reset(byte[], int, int)}
+     * sets the input.
+     */
+    public ByteArrayLexer() {
+        super(BUFFER_SIZE);
+    }
+
+    /**
+     * Sets the specified bytes as the input of the lexer and forgets the
+     * previous input.
+     *
+     * @param bytes the array that holds the input
+     * @param offset the offset of the input in the array
+     * @param length the length of the input
+     */
+    public void reset(byte[] bytes, int offset, int length) {
+        reset();
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Copies the next bytes of the array into the specified buffer.
+     *
+     * @param target the buffer to fill
+     * @return the number of characters copied, or -1 at the end of the input
+     */
+    @Override
+    protected int fill(char[] target) {
+        if (position == limit) {
+            return -1;
+        }
+        int count = Math.min(target.length, limit - position);
+        for (int i = 0; i < count; i++) {
+            target[i] = (char) (bytes[position + i] & 0xff);
+        }
+        position += count;
+        return count;
+    }
+
+}
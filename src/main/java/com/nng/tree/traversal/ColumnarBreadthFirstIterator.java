@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Breadth-first traversal iterator of an {@link IndexedTree}. Queues the
+ * indexes of the nodes in a growable circular int array, so
+ * {@link #nextIndex()} allocates nothing per node. The array only grows to the
+ * largest number of queued nodes, which is at most the width of two adjacent
+ * levels.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class ColumnarBreadthFirstIterator implements Iterator<Node> {
+
+    //must be a power of two
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final IndexedTree tree;
+    private int[] queue = new int[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Constructs an iterator of the subtree of the specified node.
+     *
+     * @param tree the tree
+     * @param index the index of the first node
+     */
+    public ColumnarBreadthFirstIterator(IndexedTree tree, int index) {
+        this.tree = tree;
+        if (index < tree.getNodeCount()) {
+            add(index);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return size != 0;
+    }
+
+    /**
+     * Returns a view of the next node.
+     *
+     * @return the next node
+     */
+    @Override
+    public Node next() {
+        return tree.getNode(nextIndex());
+    }
+
+    /**
+     * Returns the index of the next node without creating a view.
+     *
+     * @return the index of the next node
+     */
+    public int nextIndex() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int index = queue[head];
+        head = (head + 1) & (queue.length - 1);
+        size--;
+        int left = tree.getLeft(index);
+        if (left != IndexedTree.NO_NODE) {
+            add(left);
+        }
+        int right = tree.getRight(index);
+        if (right != IndexedTree.NO_NODE) {
+            add(right);
+        }
+        return index;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    private void add(int index) {
+        if (size == queue.length) {
+            int[] grown = new int[queue.length * 2];
+            //unwrap the queue to the start of the new array
+            int firstPart = queue.length - head;
+            System.arraycopy(queue, head, grown, 0, firstPart);
+            System.arraycopy(queue, 0, grown, firstPart, head);
+            queue = grown;
+            head = 0;
+        }
+        queue[(head + size) & (queue.length - 1)] = index;
+        size++;
+    }
+
+}
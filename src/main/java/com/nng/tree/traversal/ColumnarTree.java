@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseTree;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Compact binary tree implementation that stores the nodes in parallel arrays
+ * on the heap: the indexes of the left and right children, and the offset of
+ * the name in a shared byte pool, see {@link IndexedTree}. The names are
+ * stored with a variable length prefix, so several nodes can share one name.
+ * The nodes are stored in pre-order, the root is at index 0.
+ *
+ * If the tree is constructed with a symbol capacity, the loads resolve the
+ * names through a {@link SymbolTable}, and nodes with equal names share one
+ * entry of the pool while the name stays in the table.
+ *
+ * The parser fills the arrays directly, no node objects are created during
+ * the load.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class ColumnarTree extends IndexedTree {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int nodeCount = 0;
+    private int[] leftChildren;
+    private int[] rightChildren;
+    private int[] nameOffsets;
+    private byte[] names;
+    private int namesLength = 0;
+    private final int symbolCapacity;
+    private SymbolTable symbols;
+
+    /**
+     * Constructs an empty tree.
+     */
+    public ColumnarTree() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty tree with room for the specified number of nodes.
+     *
+     * @param expectedNodeCount the expected number of nodes
+     */
+    public ColumnarTree(int expectedNodeCount) {
+        this(expectedNodeCount, 0);
+    }
+
+    /**
+     * Constructs an empty tree with room for the specified number of nodes
+     * that stores the equal names once, using a symbol table of the specified
+     * capacity for each load.
+     *
+     * @param expectedNodeCount the expected number of nodes
+     * @param symbolCapacity the maximum number of names in the symbol table,
+     * or 0 to store every name separately
+     */
+    public ColumnarTree(int expectedNodeCount, int symbolCapacity) {
+        this.symbolCapacity = symbolCapacity;
+        int capacity = Math.max(expectedNodeCount, 1);
+        leftChildren = new int[capacity];
+        rightChildren = new int[capacity];
+        nameOffsets = new int[capacity];
+        names = new byte[capacity * 4];
+    }
+
+    /**
+     * Creates a columnar copy of the specified tree. The nodes are visited in
+     * pre-order without recursion, so trees of any depth can be copied.
+     *
+     * @param root the root of the tree to copy
+     * @return the copy
+     * @throws IllegalArgumentException if a node name is not ASCII
+     */
+    public static ColumnarTree copyOf(Node root) {
+        ColumnarTree tree = new ColumnarTree();
+        Node[] nodes = new Node[64];
+        int[] parents = new int[64];
+        boolean[] isLeftChildren = new boolean[64];
+        int top = 0;
+        nodes[top] = root;
+        parents[top] = NO_NODE;
+        isLeftChildren[top++] = true;
+        while (top > 0) {
+            top--;
+            Node node = nodes[top];
+            nodes[top] = null;
+            char[] name = node.getName().toCharArray();
+            for (char c : name) {
+                if (c > 0x7f) {
+                    throw new IllegalArgumentException("Node name is not ASCII: " + node.getName());
+                }
+            }
+            int index = tree.addNode(parents[top], isLeftChildren[top], name, 0, name.length);
+            if (top + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                parents = Arrays.copyOf(parents, parents.length * 2);
+                isLeftChildren = Arrays.copyOf(isLeftChildren, isLeftChildren.length * 2);
+            }
+            //the right child is pushed first, so the left subtree comes first
+            if (node.getRight() != null) {
+                nodes[top] = node.getRight();
+                parents[top] = index;
+                isLeftChildren[top++] = false;
+            }
+            if (node.getLeft() != null) {
+                nodes[top] = node.getLeft();
+                parents[top] = index;
+                isLeftChildren[top++] = true;
+            }
+        }
+        return tree;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int getLeft(int index) {
+        return leftChildren[index];
+    }
+
+    @Override
+    public int getRight(int index) {
+        return rightChildren[index];
+    }
+
+    /**
+     * Returns the id of the name of the specified node. Nodes with equal ids
+     * have equal names, so names can be compared without creating strings.
+     * Equal names only have equal ids if the tree uses a symbol table.
+     *
+     * @param index the index of the node
+     * @return the offset of the name in the pool
+     */
+    @Override
+    public int getNameId(int index) {
+        return nameOffsets[index];
+    }
+
+    @Override
+    public String getName(int index) {
+        int offset = nameOffsets[index];
+        return new String(names, skipNameLength(offset), readNameLength(offset), StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    protected byte getNameByte(int position) {
+        return names[position];
+    }
+
+    /**
+     * Returns the name pool. The array is shared, only the first
+     * {@link #getNamePoolLength()} bytes are used.
+     *
+     * @return the name pool
+     */
+    byte[] getNamePool() {
+        return names;
+    }
+
+    /**
+     * Returns the number of used bytes of the name pool.
+     *
+     * @return the length of the name pool
+     */
+    int getNamePoolLength() {
+        return namesLength;
+    }
+
+    /**
+     * Parses the input from the specified reader into the arrays. Replaces the
+     * previous content of the tree.
+     *
+     * @param input the underlying reader
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    @Override
+    public void load(Reader input) throws IOException, ParseException {
+        load(new BinaryTreeLexer(input));
+    }
+
+    /**
+     * Parses the specified memory-mapped file into the arrays. Replaces the
+     * previous content of the tree.
+     *
+     * @param input the path of the file
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Path input) throws IOException, ParseException {
+        FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+        try {
+            load(new MappedFileLexer(channel));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Parses the tokens of the specified lexer into the arrays. Replaces the
+     * previous content of the tree.
+     *
+     * @param lexer the lexer that contains the tokens
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    void load(BinaryTreeLexer lexer) throws IOException, ParseException {
+        nodeCount = 0;
+        namesLength = 0;
+        //the offsets attached to the symbols are only valid for one load
+        symbols = symbolCapacity > 0 ? new SymbolTable(symbolCapacity) : null;
+        try {
+            parseTree(lexer, new Builder());
+        } finally {
+            symbols = null;
+        }
+    }
+
+    /**
+     * Writes the node order of the tree traversal to the specified channel in
+     * the default charset. The name bytes are copied from the pool into the
+     * buffer of a {@link NodeOrderOutput}, no strings are created.
+     *
+     * @param output the underlying channel
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void save(WritableByteChannel output) throws IOException {
+        NodeOrderOutput nodeOrderOutput = new NodeOrderOutput(output);
+        try {
+            ColumnarBreadthFirstIterator breadthFirstIterator = new ColumnarBreadthFirstIterator(this, 0);
+            while (breadthFirstIterator.hasNext()) {
+                int offset = nameOffsets[breadthFirstIterator.nextIndex()];
+                nodeOrderOutput.writeName(names, skipNameLength(offset), readNameLength(offset));
+            }
+        } finally {
+            nodeOrderOutput.flush();
+        }
+    }
+
+    private int addNode(int parent, boolean isLeftChild, char[] name, int offset, int length) {
+        if (nodeCount == leftChildren.length) {
+            int capacity = nodeCount + (nodeCount >> 1) + 1;
+            leftChildren = Arrays.copyOf(leftChildren, capacity);
+            rightChildren = Arrays.copyOf(rightChildren, capacity);
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        }
+        int index = nodeCount++;
+        leftChildren[index] = NO_NODE;
+        rightChildren[index] = NO_NODE;
+        if (symbols == null) {
+            nameOffsets[index] = addName(name, offset, length);
+        } else {
+            int entry = symbols.lookup(name, offset, length);
+            int nameOffset = symbols.getValue(entry);
+            if (nameOffset == SymbolTable.NO_VALUE) {
+                nameOffset = addName(name, offset, length);
+                symbols.setValue(entry, nameOffset);
+            }
+            nameOffsets[index] = nameOffset;
+        }
+        if (parent != NO_NODE) {
+            if (isLeftChild) {
+                leftChildren[parent] = index;
+            } else {
+                rightChildren[parent] = index;
+            }
+        }
+        return index;
+    }
+
+    private int addName(char[] name, int offset, int length) {
+        //length prefix takes at most 5 bytes
+        int required = namesLength + 5 + length;
+        if (required > names.length) {
+            names = Arrays.copyOf(names, Math.max(required, names.length + (names.length >> 1)));
+        }
+        int nameOffset = namesLength;
+        int remaining = length;
+        while (remaining > 0x7f) {
+            names[namesLength++] = (byte) (remaining | 0x80);
+            remaining >>>= 7;
+        }
+        names[namesLength++] = (byte) remaining;
+        //validated names consist of ASCII characters only
+        for (int i = 0; i < length; i++) {
+            names[namesLength++] = (byte) name[offset + i];
+        }
+        return nameOffset;
+    }
+
+    /**
+     * Fills the arrays of the tree from the parser.
+     */
+    private class Builder implements TreeBuilder {
+
+        @Override
+        public int addNode(int parent, boolean isLeftChild, char[] name, int offset, int length) {
+            return ColumnarTree.this.addNode(parent, isLeftChild, name, offset, length);
+        }
+
+    }
+
+}
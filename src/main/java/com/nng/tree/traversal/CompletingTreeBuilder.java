@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * A {@link TreeBuilder} that is also told when a node is complete, that is
+ * when its ')' has been parsed. The nodes are completed in post-order, so
+ * the children of a node are complete before the node itself.
+ *
+ * @author Richárd Ernő Kiss
+ */
+interface CompletingTreeBuilder extends TreeBuilder {
+
+    /**
+     * Called when the node with the specified handle and all of its
+     * descendants have been parsed.
+     *
+     * @param handle the handle returned by
+     * {@link #addNode(int, boolean, char[], int, int)}
+     */
+    void completeNode(int handle);
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * Builds a tree of {@link BinaryTreeNode} objects like
+ * {@link NodeTreeBuilder}, but replaces every completed subtree below the root
+ * with its shared instance from a {@link SubtreeTable}. The repeated subtrees
+ * of the input are built once and linked at every occurrence.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class DeduplicatingTreeBuilder extends NodeTreeBuilder implements CompletingTreeBuilder {
+
+    private final SubtreeTable subtrees;
+    private boolean[] isLeftChildren = new boolean[64];
+
+    /**
+     * Constructs a builder that sets the name and the children of the
+     * specified root node, with the names resolved through the specified
+     * symbol table and the subtrees through the specified subtree table.
+     *
+     * @param root the root node
+     * @param symbols the symbol table of the names, or null
+     * @param subtrees the table of the shared subtrees
+     */
+    public DeduplicatingTreeBuilder(Node root, SymbolTable symbols, SubtreeTable subtrees) {
+        super(root, symbols);
+        this.subtrees = subtrees;
+    }
+
+    @Override
+    public int addNode(int parent, boolean isLeftChild, char[] name, int offset, int length) {
+        int handle = super.addNode(parent, isLeftChild, name, offset, length);
+        if (handle == isLeftChildren.length) {
+            boolean[] grown = new boolean[isLeftChildren.length * 2];
+            System.arraycopy(isLeftChildren, 0, grown, 0, isLeftChildren.length);
+            isLeftChildren = grown;
+        }
+        isLeftChildren[handle] = isLeftChild;
+        return handle;
+    }
+
+    @Override
+    public void completeNode(int handle) {
+        if (handle == 0) {
+            //the root is the loaded node itself
+            return;
+        }
+        Node node = getNode(handle);
+        Node shared = subtrees.intern(node);
+        if (shared != node) {
+            //the handle is the depth, the parent is one level up
+            Node parent = getNode(handle - 1);
+            if (isLeftChildren[handle]) {
+                parent.setLeft(shared);
+            } else {
+                parent.setRight(shared);
+            }
+        }
+    }
+
+}
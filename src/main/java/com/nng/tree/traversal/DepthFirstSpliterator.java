@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Depth-first tree traversal spliterator of {@link TraversalOrder#PRE_ORDER},
+ * {@link TraversalOrder#IN_ORDER} or {@link TraversalOrder#POST_ORDER}.
+ *
+ * The work left is a stack of items, each is either a whole subtree or a
+ * single node. The next item is on the top, a subtree on the top is replaced
+ * by its left subtree, right subtree and root node in the order of the
+ * traversal. A split hands off the items above the bottom-most subtree, so
+ * both parts get whole subtrees and keep the encounter order.
+ *
+ * The size is only known before the first split, if the node count of the
+ * tree is known. After a split both parts estimate half of the size before
+ * it, like {@link java.util.Spliterators.AbstractSpliterator}, so a parallel
+ * stream stops splitting at its target size.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class DepthFirstSpliterator implements Spliterator<Node> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final TraversalOrder order;
+    private Node[] items;
+    private boolean[] subtrees;
+    private int size = 0;
+    //the number of nodes left, or -1 if it is unknown
+    private long remaining;
+    //only used if the number of nodes left is unknown
+    private long estimate;
+
+    /**
+     * Constructs a spliterator of the specified tree.
+     *
+     * @param order the depth-first order
+     * @param tree the root node, or null for an empty tree
+     * @param nodeCount the number of nodes in the tree, or -1 if it is unknown
+     */
+    public DepthFirstSpliterator(TraversalOrder order, Node tree, long nodeCount) {
+        this(order, new Node[INITIAL_CAPACITY], new boolean[INITIAL_CAPACITY], 0,
+                tree != null ? nodeCount : 0, tree != null && nodeCount < 0 ? Long.MAX_VALUE : 0);
+        if (tree != null) {
+            push(tree, true);
+        }
+    }
+
+    private DepthFirstSpliterator(TraversalOrder order, Node[] items, boolean[] subtrees, int size, long remaining, long estimate) {
+        if (order != TraversalOrder.PRE_ORDER && order != TraversalOrder.IN_ORDER && order != TraversalOrder.POST_ORDER) {
+            throw new IllegalArgumentException("Not a depth-first order: " + order);
+        }
+        this.order = order;
+        this.items = items;
+        this.subtrees = subtrees;
+        this.size = size;
+        this.remaining = remaining;
+        this.estimate = estimate;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Node> action) {
+        while (size > 0) {
+            size--;
+            Node node = items[size];
+            items[size] = null;
+            if (!subtrees[size]) {
+                if (remaining > 0) {
+                    remaining--;
+                }
+                action.accept(node);
+                return true;
+            }
+            expand(node);
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Node> action) {
+        while (tryAdvance(action)) {
+        }
+    }
+
+    @Override
+    public Spliterator<Node> trySplit() {
+        //a single subtree is opened until there is something to hand off
+        while (size == 1 && subtrees[0]) {
+            size = 0;
+            Node node = items[0];
+            items[0] = null;
+            expand(node);
+        }
+        if (size < 2) {
+            return null;
+        }
+        int bottom = 0;
+        while (bottom < size - 1 && !subtrees[bottom]) {
+            bottom++;
+        }
+        if (bottom == size - 1) {
+            bottom = 0;
+        }
+        int splitSize = size - bottom - 1;
+        long halfEstimate = estimateSize() >>> 1;
+        int capacity = Math.max(INITIAL_CAPACITY, splitSize);
+        Spliterator<Node> prefix = new DepthFirstSpliterator(order,
+                Arrays.copyOfRange(items, bottom + 1, bottom + 1 + capacity),
+                Arrays.copyOfRange(subtrees, bottom + 1, bottom + 1 + capacity),
+                splitSize, -1, halfEstimate);
+        Arrays.fill(items, bottom + 1, size, null);
+        size = bottom + 1;
+        remaining = -1;
+        estimate = halfEstimate;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining >= 0 ? remaining : estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | (remaining >= 0 ? SIZED : 0);
+    }
+
+    /**
+     * Replaces a subtree with its parts, pushed in reverse order.
+     */
+    private void expand(Node node) {
+        switch (order) {
+            case PRE_ORDER:
+                push(node.getRight(), true);
+                push(node.getLeft(), true);
+                push(node, false);
+                break;
+            case IN_ORDER:
+                push(node.getRight(), true);
+                push(node, false);
+                push(node.getLeft(), true);
+                break;
+            default:
+                push(node, false);
+                push(node.getRight(), true);
+                push(node.getLeft(), true);
+                break;
+        }
+    }
+
+    private void push(Node node, boolean isSubtree) {
+        if (node == null) {
+            return;
+        }
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            subtrees = Arrays.copyOf(subtrees, size * 2);
+        }
+        items[size] = node;
+        subtrees[size] = isSubtree;
+        size++;
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * In-order tree traversal iterator: the left subtree, then the node, then its
+ * right subtree. The path to the current node is kept on a {@link NodeStack},
+ * so the iteration allocates nothing per node.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class InOrderIterator implements Iterator<Node> {
+
+    private final NodeStack stack = new NodeStack();
+    //the root of the subtree that is not descended into yet
+    private Node current;
+
+    public InOrderIterator(Node tree) {
+        current = tree;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return current != null || !stack.isEmpty();
+    }
+
+    @Override
+    public Node next() {
+        while (current != null) {
+            stack.push(current);
+            current = current.getLeft();
+        }
+        if (stack.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Node node = stack.pop();
+        current = node.getRight();
+        return node;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+}
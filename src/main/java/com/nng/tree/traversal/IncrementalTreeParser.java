@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.text.ParseException;
+
+/**
+ * Push-style parser that accepts the input in fragments as they arrive, for
+ * example from a non-blocking channel on a selector loop.
+ *
+ * The fragments are appended to a buffer and scanned for the end of the last
+ * complete token. Only the characters up to that point are passed to a
+ * {@link BinaryTreeLexer}, so a token is never split between two fragments,
+ * and the tokens are consumed by an {@link IterativeTreeParser} that keeps its
+ * state between the calls. The tokens are the same as in
+ * {@link BinaryTreeNode#load(java.io.Reader)}, so the parser builds the same
+ * tree and throws the same exceptions. The input after the root node is
+ * ignored.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class IncrementalTreeParser {
+
+    private static final int INITIAL_CAPACITY = 8192;
+    private static final int LEXER_BUFFER_SIZE = 8192;
+
+    //states of the scan for the token ends
+    private static final byte OUTSIDE = 0;
+    private static final byte QUOTED = 1;
+    private static final byte ESCAPED = 2;
+    private static final byte COMMENT = 3;
+
+    private final Node root;
+    private final FragmentLexer lexer = new FragmentLexer();
+    private final IterativeTreeParser parser;
+    private char[] pending = new char[INITIAL_CAPACITY];
+    //the characters before this are passed to the lexer
+    private int consumed = 0;
+    //the characters before this end with a complete token
+    private int tokenEnd = 0;
+    private int length = 0;
+    private byte scanState = OUTSIDE;
+    private char quote;
+    private boolean afterCarriageReturn = false;
+    private boolean finished = false;
+    private boolean complete = false;
+    private ParseException error = null;
+    private long start;
+
+    /**
+     * Constructs a parser that builds a new {@link BinaryTreeNode}.
+     */
+    public IncrementalTreeParser() {
+        this(new BinaryTreeNode());
+    }
+
+    /**
+     * Constructs a parser that sets the name and the children of the
+     * specified root node.
+     *
+     * @param root the root node
+     */
+    public IncrementalTreeParser(Node root) {
+        this.root = root;
+        this.parser = new IterativeTreeParser(new NodeTreeBuilder(root));
+    }
+
+    /**
+     * Parses the remaining characters of the specified buffer.
+     *
+     * @param input the next fragment of the input
+     * @return true if the tree is complete
+     * @throws ParseException if the input contains a syntax error
+     */
+    public boolean feed(CharBuffer input) throws ParseException {
+        if (input.hasArray()) {
+            boolean result = feed(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            input.position(input.limit());
+            return result;
+        }
+        char[] chars = new char[input.remaining()];
+        input.get(chars);
+        return feed(chars, 0, chars.length);
+    }
+
+    /**
+     * Parses the remaining bytes of the specified buffer. The bytes are taken
+     * as ISO-8859-1 characters like in {@link MappedFileLexer}, the input is
+     * expected to be ASCII.
+     *
+     * @param input the next fragment of the input
+     * @return true if the tree is complete
+     * @throws ParseException if the input contains a syntax error
+     */
+    public boolean feed(ByteBuffer input) throws ParseException {
+        if (!prepare()) {
+            input.position(input.limit());
+            return true;
+        }
+        int count = input.remaining();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            pending[length + i] = (char) (input.get() & 0xff);
+        }
+        return append(count);
+    }
+
+    /**
+     * Parses the specified characters.
+     *
+     * @param chars the array that holds the next fragment of the input
+     * @param offset the offset of the fragment in the array
+     * @param count the length of the fragment
+     * @return true if the tree is complete
+     * @throws ParseException if the input contains a syntax error
+     */
+    public boolean feed(char[] chars, int offset, int count) throws ParseException {
+        if (!prepare()) {
+            return true;
+        }
+        ensureCapacity(count);
+        System.arraycopy(chars, offset, pending, length, count);
+        return append(count);
+    }
+
+    /**
+     * Signals the end of the input and parses the rest of it.
+     *
+     * @return the root node of the complete tree
+     * @throws ParseException if the input contains a syntax error or ends
+     * before the tree is complete
+     */
+    public Node finish() throws ParseException {
+        if (prepare()) {
+            finished = true;
+            tokenEnd = length;
+            parse();
+        }
+        return root;
+    }
+
+    /**
+     * Tells if the root node has been completed.
+     *
+     * @return true if the tree is complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns the root node, which is only fully built if the tree is
+     * complete.
+     *
+     * @return the root node
+     */
+    public Node getTree() {
+        return root;
+    }
+
+    /**
+     * Checks the state before new input.
+     *
+     * @return false if the tree is already complete and the input is to be
+     * ignored
+     * @throws ParseException if an earlier input contained a syntax error
+     */
+    private boolean prepare() throws ParseException {
+        if (error != null) {
+            throw error;
+        }
+        if (TraversalMetrics.ENABLED && start == 0) {
+            start = System.nanoTime();
+        }
+        return !complete;
+    }
+
+    private void ensureCapacity(int count) {
+        if (length + count <= pending.length) {
+            return;
+        }
+        //drop the characters already passed to the lexer
+        System.arraycopy(pending, consumed, pending, 0, length - consumed);
+        length -= consumed;
+        tokenEnd -= consumed;
+        consumed = 0;
+        if (length + count > pending.length) {
+            char[] grown = new char[Math.max(pending.length * 2, length + count)];
+            System.arraycopy(pending, 0, grown, 0, length);
+            pending = grown;
+        }
+    }
+
+    private boolean append(int count) throws ParseException {
+        int end = length + count;
+        for (int i = length; i < end; i++) {
+            scan(pending[i], i);
+        }
+        length = end;
+        return parse();
+    }
+
+    /**
+     * Follows the rules of {@link BinaryTreeLexer} to find the positions
+     * where the lexer returns a token without looking at the next character.
+     */
+    private void scan(char c, int index) {
+        switch (scanState) {
+            case QUOTED:
+                if (c == '\\') {
+                    scanState = ESCAPED;
+                } else if (c == quote) {
+                    scanState = OUTSIDE;
+                    tokenEnd = index + 1;
+                } else if (c == '\n' || c == '\r') {
+                    //the line end closes the string and is a token itself
+                    scanState = OUTSIDE;
+                    tokenEnd = index + 1;
+                }
+                break;
+            case ESCAPED:
+                scanState = QUOTED;
+                break;
+            case COMMENT:
+                if (c == '\n' || c == '\r') {
+                    scanState = OUTSIDE;
+                    tokenEnd = index + 1;
+                }
+                break;
+            default:
+                if (c == '\n') {
+                    //a line feed after a carriage return is skipped, not returned
+                    if (!afterCarriageReturn) {
+                        tokenEnd = index + 1;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    scanState = QUOTED;
+                    quote = c;
+                } else if (c == '/') {
+                    scanState = COMMENT;
+                } else if (c == '\r' || (c > ' ' && !BinaryTreeLexer.isWordCharacter(c))) {
+                    tokenEnd = index + 1;
+                }
+        }
+        afterCarriageReturn = c == '\r' && scanState == OUTSIDE;
+    }
+
+    private boolean parse() throws ParseException {
+        try {
+            while (!complete && (consumed < tokenEnd || lexer.getBufferedCount() > 0 || finished)) {
+                lexer.nextToken();
+                complete = parser.accept(lexer);
+            }
+        } catch (ParseException ex) {
+            error = ex;
+            throw ex;
+        } catch (IOException ex) {
+            //the fragments are in memory
+            throw new IllegalStateException(ex);
+        }
+        if (complete && TraversalMetrics.ENABLED) {
+            TraversalMetrics.getInstance().recordParse(lexer, System.nanoTime() - start);
+        }
+        return complete;
+    }
+
+    /**
+     * Reads the characters up to the end of the last complete token.
+     */
+    private final class FragmentLexer extends BinaryTreeLexer {
+
+        FragmentLexer() {
+            super(LEXER_BUFFER_SIZE);
+        }
+
+        @Override
+        protected int fill(char[] target) {
+            int count = Math.min(target.length, tokenEnd - consumed);
+            if (count == 0) {
+                if (finished) {
+                    return -1;
+                }
+                throw new IllegalStateException("The lexer is ahead of the complete tokens");
+            }
+            System.arraycopy(pending, consumed, target, 0, count);
+            consumed += count;
+            return count;
+        }
+
+    }
+
+}
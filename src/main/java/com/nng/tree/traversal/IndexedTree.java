@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Iterator;
+
+/**
+ * Base of the binary trees that store the nodes in arrays instead of node
+ * objects. A node is an index: the root is at index 0, the children are
+ * given by index, and the name by the offset of its entry in a name pool.
+ * The pool entries are the length of the name in a variable length prefix of
+ * 7 bit groups, followed by the ASCII characters of the name.
+ *
+ * The tree itself is the root node, the other nodes are exposed as
+ * lightweight read-only views through the {@link Node} interface.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public abstract class IndexedTree implements Node {
+
+    /**
+     * The index of a missing child.
+     */
+    public static final int NO_NODE = -1;
+
+    private static final String OUTPUT_DELIMETER = " ";
+    private static final String READ_ONLY_MESSAGE = "Indexed tree nodes are read-only.";
+
+    /**
+     * Returns the number of nodes in the tree.
+     *
+     * @return the node count
+     */
+    public abstract int getNodeCount();
+
+    /**
+     * Returns the index of the left child of the specified node.
+     *
+     * @param index the index of the node
+     * @return the index of the left child, or {@link #NO_NODE}
+     */
+    public abstract int getLeft(int index);
+
+    /**
+     * Returns the index of the right child of the specified node.
+     *
+     * @param index the index of the node
+     * @return the index of the right child, or {@link #NO_NODE}
+     */
+    public abstract int getRight(int index);
+
+    /**
+     * Returns the id of the name of the specified node. Nodes with equal ids
+     * have equal names, so names can be compared without creating strings.
+     *
+     * @param index the index of the node
+     * @return the offset of the name in the pool
+     */
+    public abstract int getNameId(int index);
+
+    /**
+     * Returns a byte of the name pool.
+     *
+     * @param position the position in the pool
+     * @return the byte
+     */
+    protected abstract byte getNameByte(int position);
+
+    /**
+     * Returns the name of the specified node.
+     *
+     * @param index the index of the node
+     * @return the node name
+     */
+    public String getName(int index) {
+        int offset = getNameId(index);
+        int length = readNameLength(offset);
+        offset = skipNameLength(offset);
+        byte[] name = new byte[length];
+        for (int i = 0; i < length; i++) {
+            name[i] = getNameByte(offset + i);
+        }
+        return new String(name, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns a view of the specified node.
+     *
+     * @param index the index of the node
+     * @return the node, or null for {@link #NO_NODE}
+     */
+    public Node getNode(int index) {
+        if (index == NO_NODE) {
+            return null;
+        }
+        return index == 0 ? this : new NodeView(index);
+    }
+
+    /**
+     * Returns the name of the root node.
+     *
+     * @return the node name, or null if the tree is empty
+     */
+    @Override
+    public String getName() {
+        return getNodeCount() == 0 ? null : getName(0);
+    }
+
+    /**
+     * Not supported, the names are stored in a shared pool.
+     *
+     * @param name the node name
+     */
+    @Override
+    public void setName(String name) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Returns the left children of the root node.
+     *
+     * @return the left children
+     */
+    @Override
+    public Node getLeft() {
+        return getNodeCount() == 0 ? null : getNode(getLeft(0));
+    }
+
+    /**
+     * Not supported, the structure is stored in arrays.
+     *
+     * @param node the left children
+     */
+    @Override
+    public void setLeft(Node node) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Returns the right children of the root node.
+     *
+     * @return the right children
+     */
+    @Override
+    public Node getRight() {
+        return getNodeCount() == 0 ? null : getNode(getRight(0));
+    }
+
+    /**
+     * Not supported, the structure is stored in arrays.
+     *
+     * @param node the right children
+     */
+    @Override
+    public void setRight(Node node) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Creates the iterator to use for breadth-first tree traversal.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<Node> widthIterator() {
+        return new ColumnarBreadthFirstIterator(this, 0);
+    }
+
+    /**
+     * Writes the node order of the tree traversal to the specified writer. Uses
+     * the indexes of {@link ColumnarBreadthFirstIterator} for the traversal,
+     * no node views are created.
+     *
+     * @param output the underlying writer
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void save(Writer output) throws IOException {
+        save(0, output);
+    }
+
+    /**
+     * Writes the node order of the tree traversal to the specified channel in
+     * the default charset. The name bytes are copied from the pool into the
+     * buffer of a {@link NodeOrderOutput}, no strings are created.
+     *
+     * @param output the underlying channel
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(WritableByteChannel output) throws IOException {
+        NodeOrderOutput nodeOrderOutput = new NodeOrderOutput(output);
+        try {
+            byte[] name = new byte[64];
+            ColumnarBreadthFirstIterator breadthFirstIterator = new ColumnarBreadthFirstIterator(this, 0);
+            while (breadthFirstIterator.hasNext()) {
+                int offset = getNameId(breadthFirstIterator.nextIndex());
+                int length = readNameLength(offset);
+                offset = skipNameLength(offset);
+                if (length > name.length) {
+                    name = new byte[Math.max(length, name.length * 2)];
+                }
+                for (int i = 0; i < length; i++) {
+                    name[i] = getNameByte(offset + i);
+                }
+                nodeOrderOutput.writeName(name, 0, length);
+            }
+        } finally {
+            nodeOrderOutput.flush();
+        }
+    }
+
+    /**
+     * Reads the length prefix of the name pool entry at the specified offset.
+     *
+     * @param offset the offset of the entry
+     * @return the length of the name
+     */
+    protected int readNameLength(int offset) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = getNameByte(offset++);
+            length |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return length;
+    }
+
+    /**
+     * Returns the offset of the characters of the name pool entry at the
+     * specified offset.
+     *
+     * @param offset the offset of the entry
+     * @return the offset after the length prefix
+     */
+    protected int skipNameLength(int offset) {
+        while (getNameByte(offset++) < 0) {
+            //continuation byte of the length prefix
+        }
+        return offset;
+    }
+
+    private void save(int index, Writer output) throws IOException {
+        boolean isFirst = true;
+        try {
+            ColumnarBreadthFirstIterator breadthFirstIterator = new ColumnarBreadthFirstIterator(this, index);
+            while (breadthFirstIterator.hasNext()) {
+                if (!isFirst) {
+                    output.append(OUTPUT_DELIMETER);
+                }
+                isFirst = false;
+                output.append(getName(breadthFirstIterator.nextIndex()));
+            }
+        } finally {
+            output.flush();
+        }
+    }
+
+    /**
+     * Read-only view of a node of the tree.
+     */
+    private class NodeView implements Node {
+
+        private final int index;
+
+        NodeView(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getName() {
+            return IndexedTree.this.getName(index);
+        }
+
+        @Override
+        public void setName(String name) {
+            IndexedTree.this.setName(name);
+        }
+
+        @Override
+        public Node getLeft() {
+            return getNode(IndexedTree.this.getLeft(index));
+        }
+
+        @Override
+        public void setLeft(Node node) {
+            IndexedTree.this.setLeft(node);
+        }
+
+        @Override
+        public Node getRight() {
+            return getNode(IndexedTree.this.getRight(index));
+        }
+
+        @Override
+        public void setRight(Node node) {
+            IndexedTree.this.setRight(node);
+        }
+
+        @Override
+        public Iterator<Node> widthIterator() {
+            return new ColumnarBreadthFirstIterator(IndexedTree.this, index);
+        }
+
+        @Override
+        public void load(Reader input) throws IOException, ParseException {
+            throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+        }
+
+        @Override
+        public void save(Writer output) throws IOException {
+            IndexedTree.this.save(index, output);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof NodeView && ((NodeView) obj).index == index && ((NodeView) obj).getTree() == IndexedTree.this;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private IndexedTree getTree() {
+            return IndexedTree.this;
+        }
+
+    }
+
+}
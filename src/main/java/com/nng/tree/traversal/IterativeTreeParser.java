@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import static com.nng.tree.traversal.BinaryTreeInputParser.COMMA;
+import static com.nng.tree.traversal.BinaryTreeInputParser.LEFT_PARENTHESIS;
+import static com.nng.tree.traversal.BinaryTreeInputParser.RIGHT_PARENTHESIS;
+import static com.nng.tree.traversal.BinaryTreeInputParser.unexpectedToken;
+import static com.nng.tree.traversal.BinaryTreeInputParser.validateNodeName;
+import java.text.ParseException;
+
+/**
+ * Parser of the grammar that does not use recursion.
+ * <br>&lt;node&gt; ::= "(" string "," &lt;node&gt; "," &lt;node&gt; ")"
+ * <br>
+ *
+ * The handles of the nodes under construction and the parser state of each of
+ * them are kept on explicit stacks on the heap, so the memory grows with the
+ * depth of the tree but the thread stack does not. Consumes one token at a
+ * time, passes the nodes to a {@link TreeBuilder} in pre-order and throws the
+ * same exceptions as
+ * {@link BinaryTreeInputParser#parseNode(Node, BinaryTreeLexer)}.
+ *
+ * A parser constructed with a {@link SubtreeBuilder} also accepts a subtree
+ * token in place of a child node. The subtree is parsed elsewhere, the builder
+ * is only told where it belongs. A {@link CompletingTreeBuilder} is also
+ * told when each node is complete.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class IterativeTreeParser {
+
+    //'(' of the node
+    private static final byte EXPECT_NODE = 0;
+    //node name
+    private static final byte EXPECT_NAME = 1;
+    //',' after the node name
+    private static final byte EXPECT_NAME_DELIMITER = 2;
+    //'(' of the left child or ',' if it is empty
+    private static final byte EXPECT_LEFT_CHILD = 3;
+    //',' after the left child
+    private static final byte EXPECT_LEFT_DELIMITER = 4;
+    //'(' of the right child or ')' if it is empty
+    private static final byte EXPECT_RIGHT_CHILD = 5;
+    //')' after the right child
+    private static final byte EXPECT_RIGHT_DELIMITER = 6;
+
+    private static final int INITIAL_DEPTH = 64;
+    //no token can have this type
+    private static final int NO_SUBTREE_TOKEN = Integer.MIN_VALUE;
+
+    private final TreeBuilder builder;
+    private final CompletingTreeBuilder completingBuilder;
+    private final int subtreeToken;
+    private int[] handles = new int[INITIAL_DEPTH];
+    private byte[] states = new byte[INITIAL_DEPTH];
+    private int top = 0;
+
+    /**
+     * Constructs a parser that passes the nodes to the specified builder.
+     *
+     * @param builder the builder that stores the nodes
+     */
+    public IterativeTreeParser(TreeBuilder builder) {
+        this(builder, NO_SUBTREE_TOKEN);
+    }
+
+    /**
+     * Constructs a parser that passes the nodes to the specified builder and
+     * the places of the subtrees marked by the specified token to
+     * {@link SubtreeBuilder#addSubtree(int, boolean)}.
+     *
+     * @param builder the builder that stores the nodes
+     * @param subtreeToken the token type that stands for a whole child node
+     */
+    public IterativeTreeParser(SubtreeBuilder builder, int subtreeToken) {
+        this((TreeBuilder) builder, subtreeToken);
+    }
+
+    private IterativeTreeParser(TreeBuilder builder, int subtreeToken) {
+        this.builder = builder;
+        this.completingBuilder = builder instanceof CompletingTreeBuilder ? (CompletingTreeBuilder) builder : null;
+        this.subtreeToken = subtreeToken;
+        states[0] = EXPECT_NODE;
+    }
+
+    /**
+     * Consumes the current token of the specified lexer.
+     *
+     * @param lexer the lexer that contains the tokens
+     * @return true if the token completed the root node
+     * @throws ParseException if the input contains a syntax error
+     */
+    public boolean accept(BinaryTreeLexer lexer) throws ParseException {
+        int token = lexer.getTokenType();
+        switch (states[top]) {
+            case EXPECT_NODE:
+                expect(lexer, LEFT_PARENTHESIS);
+                states[top] = EXPECT_NAME;
+                return false;
+            case EXPECT_NAME:
+                if (token != BinaryTreeLexer.TT_WORD) {
+                    throw unexpectedToken("node identifier", lexer);
+                }
+                validateNodeName(lexer);
+                int parent = top == 0 ? -1 : handles[top - 1];
+                //the parent waits for the delimiter after the child being parsed
+                boolean isLeftChild = top == 0 || states[top - 1] == EXPECT_LEFT_DELIMITER;
+                handles[top] = builder.addNode(parent, isLeftChild, lexer.getWordChars(), lexer.getWordOffset(), lexer.getWordLength());
+                states[top] = EXPECT_NAME_DELIMITER;
+                return false;
+            case EXPECT_NAME_DELIMITER:
+                expect(lexer, COMMA);
+                states[top] = EXPECT_LEFT_CHILD;
+                return false;
+            case EXPECT_LEFT_CHILD:
+                if (token == LEFT_PARENTHESIS) {
+                    states[top] = EXPECT_LEFT_DELIMITER;
+                    push();
+                } else if (token == COMMA) {
+                    states[top] = EXPECT_RIGHT_CHILD;
+                } else if (token == subtreeToken) {
+                    ((SubtreeBuilder) builder).addSubtree(handles[top], true);
+                    states[top] = EXPECT_LEFT_DELIMITER;
+                } else {
+                    throw unexpectedToken("'(' or ','", lexer);
+                }
+                return false;
+            case EXPECT_LEFT_DELIMITER:
+                expect(lexer, COMMA);
+                states[top] = EXPECT_RIGHT_CHILD;
+                return false;
+            case EXPECT_RIGHT_CHILD:
+                if (token == LEFT_PARENTHESIS) {
+                    states[top] = EXPECT_RIGHT_DELIMITER;
+                    push();
+                    return false;
+                } else if (token == RIGHT_PARENTHESIS) {
+                    return pop();
+                } else if (token == subtreeToken) {
+                    ((SubtreeBuilder) builder).addSubtree(handles[top], false);
+                    states[top] = EXPECT_RIGHT_DELIMITER;
+                    return false;
+                }
+                throw unexpectedToken("'(' or ')'", lexer);
+            default:
+                expect(lexer, RIGHT_PARENTHESIS);
+                return pop();
+        }
+    }
+
+    private static void expect(BinaryTreeLexer lexer, int expectedToken) throws ParseException {
+        if (lexer.getTokenType() != expectedToken) {
+            throw unexpectedToken("'" + (char) expectedToken + "'", lexer);
+        }
+    }
+
+    private void push() {
+        if (++top == handles.length) {
+            int[] grownHandles = new int[handles.length * 2];
+            System.arraycopy(handles, 0, grownHandles, 0, handles.length);
+            handles = grownHandles;
+            byte[] grownStates = new byte[states.length * 2];
+            System.arraycopy(states, 0, grownStates, 0, states.length);
+            states = grownStates;
+        }
+        //the '(' of the child is already consumed
+        states[top] = EXPECT_NAME;
+    }
+
+    private boolean pop() {
+        if (completingBuilder != null) {
+            completingBuilder.completeNode(handles[top]);
+        }
+        return --top < 0;
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * Binary tree node whose children are built from an {@link IndexedTree} the
+ * first time they are requested. Only the visited part of the tree is turned
+ * into node objects, so a traversal that stops after a few levels costs as
+ * much as the nodes it visits. The built nodes are ordinary
+ * {@link BinaryTreeNode} objects, they can be modified like them.
+ *
+ * A node keeps a reference to the indexed tree until both of its children
+ * are built. The names can be resolved through a {@link SymbolTable}. Like
+ * {@link BinaryTreeNode}, the node is not thread-safe.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class LazyBinaryTreeNode extends BinaryTreeNode {
+
+    private Source source;
+    private final int index;
+    private boolean isLeftPending = true;
+    private boolean isRightPending = true;
+
+    private LazyBinaryTreeNode(Source source, int index) {
+        super(source.getName(index), null, null);
+        this.source = source;
+        this.index = index;
+    }
+
+    /**
+     * Sets the name and the children of the specified node from the root of
+     * the specified tree. The children are built on demand.
+     *
+     * @param node the node to set
+     * @param tree the indexed tree
+     * @param symbols the symbol table of the names, or null to create a new
+     * string for every name
+     */
+    static void initialize(Node node, IndexedTree tree, SymbolTable symbols) {
+        Source source = new Source(tree, symbols);
+        node.setName(source.getName(0));
+        node.setLeft(create(source, tree.getLeft(0)));
+        node.setRight(create(source, tree.getRight(0)));
+    }
+
+    private static Node create(Source source, int index) {
+        return index == IndexedTree.NO_NODE ? null : new LazyBinaryTreeNode(source, index);
+    }
+
+    /**
+     * Returns the left children of the node, builds it at the first call.
+     *
+     * @return the left children
+     */
+    @Override
+    public Node getLeft() {
+        if (isLeftPending) {
+            setLeft(create(source, source.tree.getLeft(index)));
+        }
+        return super.getLeft();
+    }
+
+    /**
+     * Sets the left children of the node, the indexed left children is not
+     * built any more.
+     *
+     * @param node the left children
+     */
+    @Override
+    public void setLeft(Node node) {
+        isLeftPending = false;
+        releaseTree();
+        super.setLeft(node);
+    }
+
+    /**
+     * Returns the right children of the node, builds it at the first call.
+     *
+     * @return the right children
+     */
+    @Override
+    public Node getRight() {
+        if (isRightPending) {
+            setRight(create(source, source.tree.getRight(index)));
+        }
+        return super.getRight();
+    }
+
+    /**
+     * Sets the right children of the node, the indexed right children is not
+     * built any more.
+     *
+     * @param node the right children
+     */
+    @Override
+    public void setRight(Node node) {
+        isRightPending = false;
+        releaseTree();
+        super.setRight(node);
+    }
+
+    private void releaseTree() {
+        if (!isLeftPending && !isRightPending) {
+            source = null;
+        }
+    }
+
+    /**
+     * The indexed tree and the symbol table shared by the nodes of a load.
+     */
+    private static class Source {
+
+        private final IndexedTree tree;
+        private final SymbolTable symbols;
+        private char[] name = new char[64];
+
+        Source(IndexedTree tree, SymbolTable symbols) {
+            this.tree = tree;
+            this.symbols = symbols;
+        }
+
+        String getName(int index) {
+            if (symbols == null) {
+                return tree.getName(index);
+            }
+            int offset = tree.getNameId(index);
+            int length = tree.readNameLength(offset);
+            offset = tree.skipNameLength(offset);
+            if (length > name.length) {
+                name = new char[Math.max(length, name.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                name[i] = (char) tree.getNameByte(offset + i);
+            }
+            return symbols.intern(name, 0, length);
+        }
+
+    }
+
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Random access index of the breadth-first node order of a tree. Built once
+ * by a single traversal, it stores the nodes in breadth-first order and the
+ * start position of each level, so any position or level can be reached
+ * without replaying the traversal from the root. A page of the node order
+ * costs the same wherever it is.
+ *
+ * The array of the node order is also the queue of the building traversal:
+ * the children of the node at the read position are appended at the end. The
+ * nodes of an {@link IndexedTree} are stored as int indexes and exposed as
+ * views, other trees as node references.
+ *
+ * The index is a snapshot, it does not follow later changes of the tree.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class LevelIndex {
+
+    //must be a power of two
+    private static final int INITIAL_CAPACITY = 16;
+    private static final String OUTPUT_DELIMETER = " ";
+
+    private final IndexedTree indexedTree;
+    private final int[] indexes;
+    private final Node[] nodes;
+    private final int size;
+    //the start of each level, followed by the size
+    private final int[] levelStarts;
+
+    /**
+     * Builds the index of the specified tree.
+     *
+     * @param tree the root of the tree, or null for an empty tree
+     */
+    public LevelIndex(Node tree) {
+        int[] starts = new int[INITIAL_CAPACITY];
+        int levels = 0;
+        if (tree instanceof IndexedTree) {
+            indexedTree = (IndexedTree) tree;
+            int count = indexedTree.getNodeCount();
+            indexes = new int[count];
+            nodes = null;
+            int end = 0;
+            if (count > 0) {
+                indexes[end++] = 0;
+            }
+            int levelEnd = 0;
+            for (int read = 0; read < end; read++) {
+                if (read == levelEnd) {
+                    starts = add(starts, levels++, read);
+                    levelEnd = end;
+                }
+                int left = indexedTree.getLeft(indexes[read]);
+                if (left != IndexedTree.NO_NODE) {
+                    indexes[end++] = left;
+                }
+                int right = indexedTree.getRight(indexes[read]);
+                if (right != IndexedTree.NO_NODE) {
+                    indexes[end++] = right;
+                }
+            }
+            size = end;
+        } else {
+            indexedTree = null;
+            indexes = null;
+            Node[] order = new Node[INITIAL_CAPACITY];
+            int end = 0;
+            if (tree != null) {
+                order[end++] = tree;
+            }
+            int levelEnd = 0;
+            for (int read = 0; read < end; read++) {
+                if (read == levelEnd) {
+                    starts = add(starts, levels++, read);
+                    levelEnd = end;
+                }
+                if (end + 2 > order.length) {
+                    order = Arrays.copyOf(order, order.length * 2);
+                }
+                Node node = order[read];
+                if (node.getLeft() != null) {
+                    order[end++] = node.getLeft();
+                }
+                if (node.getRight() != null) {
+                    order[end++] = node.getRight();
+                }
+            }
+            nodes = Arrays.copyOf(order, end);
+            size = end;
+        }
+        starts = add(starts, levels, size);
+        levelStarts = Arrays.copyOf(starts, levels + 1);
+    }
+
+    /**
+     * Returns the number of nodes in the tree.
+     *
+     * @return the node count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of levels in the tree, the root is on level 0.
+     *
+     * @return the level count
+     */
+    public int getLevelCount() {
+        return levelStarts.length - 1;
+    }
+
+    /**
+     * Returns the breadth-first position of the first node of the specified
+     * level.
+     *
+     * @param level the level
+     * @return the start position of the level
+     */
+    public int getLevelStart(int level) {
+        checkLevel(level);
+        return levelStarts[level];
+    }
+
+    /**
+     * Returns the number of nodes on the specified level.
+     *
+     * @param level the level
+     * @return the width of the level
+     */
+    public int getLevelWidth(int level) {
+        checkLevel(level);
+        return levelStarts[level + 1] - levelStarts[level];
+    }
+
+    /**
+     * Returns the level of the node at the specified breadth-first position.
+     * Binary search in the level starts, O(log depth).
+     *
+     * @param position the breadth-first position
+     * @return the level of the node
+     */
+    public int getLevel(int position) {
+        checkPosition(position);
+        int found = Arrays.binarySearch(levelStarts, 0, levelStarts.length - 1, position);
+        //between two starts the insertion point is the next level
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Returns the node at the specified breadth-first position.
+     *
+     * @param position the breadth-first position
+     * @return the node
+     */
+    public Node getNode(int position) {
+        checkPosition(position);
+        return nodeAt(position);
+    }
+
+    /**
+     * Creates a breadth-first iterator that starts at the specified position.
+     *
+     * @param position the breadth-first position of the first node, may be
+     * the size for an empty iterator
+     * @return the iterator
+     */
+    public Iterator<Node> iterator(int position) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+        }
+        return new PositionIterator(position, size);
+    }
+
+    /**
+     * Creates a breadth-first iterator that starts at the first node of the
+     * specified level.
+     *
+     * @param level the level
+     * @return the iterator
+     */
+    public Iterator<Node> levelIterator(int level) {
+        return iterator(getLevelStart(level));
+    }
+
+    /**
+     * Writes a page of the breadth-first node order to the specified writer.
+     * The page is cut at the last node.
+     *
+     * @param output the underlying writer
+     * @param position the breadth-first position of the first node
+     * @param count the maximum number of nodes
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Writer output, int position, int count) throws IOException {
+        int end = pageEnd(position, count);
+        try {
+            for (int i = position; i < end; i++) {
+                if (i != position) {
+                    output.append(OUTPUT_DELIMETER);
+                }
+                output.append(nodeAt(i).getName());
+            }
+        } finally {
+            output.flush();
+        }
+    }
+
+    /**
+     * Writes a page of the breadth-first node order to the specified channel
+     * in the default charset through a {@link NodeOrderOutput}. The page is
+     * cut at the last node.
+     *
+     * @param output the underlying channel
+     * @param position the breadth-first position of the first node
+     * @param count the maximum number of nodes
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(WritableByteChannel output, int position, int count) throws IOException {
+        int end = pageEnd(position, count);
+        NodeOrderOutput nodeOrderOutput = new NodeOrderOutput(output);
+        try {
+            nodeOrderOutput.write(new PositionIterator(position, end));
+        } finally {
+            nodeOrderOutput.flush();
+        }
+    }
+
+    private Node nodeAt(int position) {
+        return nodes != null ? nodes[position] : indexedTree.getNode(indexes[position]);
+    }
+
+    private int pageEnd(int position, int count) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        return (int) Math.min(size, (long) position + count);
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+        }
+    }
+
+    private void checkLevel(int level) {
+        if (level < 0 || level >= getLevelCount()) {
+            throw new IndexOutOfBoundsException("Level: " + level + ", level count: " + getLevelCount());
+        }
+    }
+
+    private static int[] add(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    /**
+     * Iterator of a range of breadth-first positions.
+     */
+    private class PositionIterator implements Iterator<Node> {
+
+        private int position;
+        private final int end;
+
+        PositionIterator(int position, int end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < end;
+        }
+
+        @Override
+        public Node next() {
+            if (position == end) {
+                throw new NoSuchElementException();
+            }
+            return nodeAt(position++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Lexer that reads the input directly from a memory-mapped file. The file is
+ * mapped in windows of at most {@link #DEFAULT_WINDOW_SIZE} bytes, so files
+ * larger than 2 GB can be read too. Only the current window is referenced, the
+ * previous ones are left for the garbage collector to unmap.
+ *
+ * The bytes are taken as ISO-8859-1 characters without a charset decoder, the
+ * input is expected to be ASCII.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class MappedFileLexer extends BinaryTreeLexer {
+
+    /**
+     * The maximum number of bytes mapped at once.
+     */
+    public static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private long windowStart = 0;
+    private MappedByteBuffer window = null;
+
+    /**
+     * Constructs a lexer that reads the whole specified file channel.
+     *
+     * @param channel the channel of the file
+     * @throws IOException if an I/O error occurs
+     */
+    public MappedFileLexer(FileChannel channel) throws IOException {
+        this(channel, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructs a lexer that reads the whole specified file channel through
+     * windows of the specified size.
+     *
+     * @param channel the channel of the file
+     * @param windowSize the maximum number of bytes mapped at once
+     * @throws IOException if an I/O error occurs
+     */
+    MappedFileLexer(FileChannel channel, long windowSize) throws IOException {
+        super(BUFFER_SIZE);
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Copies the next bytes of the mapped file into the specified buffer.
+     *
+     * @param target the buffer to fill
+     * @return the number of characters copied, or -1 at the end of the file
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected int fill(char[] target) throws IOException {
+        if (window == null || !window.hasRemaining()) {
+            if (window != null) {
+                windowStart += window.capacity();
+            }
+            if (windowStart >= size) {
+                window = null;
+                return -1;
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+        }
+        MappedByteBuffer current = window;
+        int count = Math.min(target.length, current.remaining());
+        int position = current.position();
+        for (int i = 0; i < count; i++) {
+            target[i] = (char) (current.get(position + i) & 0xff);
+        }
+        current.position(position + count);
+        return count;
+    }
+
+}
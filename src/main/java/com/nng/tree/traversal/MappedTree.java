@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
+import java.util.BitSet;
+
+/**
+ * Tree that reads the arrays of a {@link BinaryTreeFormat} file in place
+ * from memory-mapped buffers. Opening a tree maps the file and checks its
+ * header and size. Each array of the file must be smaller than 2 GB.
+ *
+ * A validated tree is also checked node by node when it is opened, in one
+ * pass that reads the three arrays and the length prefixes of the names and
+ * needs one bit per node, so the open time grows with the node count. It
+ * rejects a file in which a child index is not greater than the index of its
+ * parent or not less than the node count, a node other than the root is not
+ * the child of exactly one node, or a name offset, length prefix or name
+ * does not lie inside the name pool. A validated tree is a tree in pre-order
+ * like {@link ColumnarTree}: the traversals visit every node once and do not
+ * read past the buffers. The bytes of the names are not checked to be ASCII.
+ *
+ * A tree that is not validated is opened in constant time, but a corrupt
+ * file can make a traversal loop, repeat nodes or fail with an
+ * {@link IndexOutOfBoundsException}. Only files written by
+ * {@link BinaryTreeFormat#write(ColumnarTree, java.nio.channels.WritableByteChannel)}
+ * should be opened this way.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class MappedTree extends IndexedTree {
+
+    private final int nodeCount;
+    private final IntBuffer leftChildren;
+    private final IntBuffer rightChildren;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+
+    /**
+     * Maps the tree of the specified channel.
+     *
+     * @param channel the channel of the file
+     * @param validate whether the nodes are checked, see the class
+     * description
+     * @throws IOException if an I/O error occurs or the file is not a tree
+     * file of this format
+     */
+    MappedTree(FileChannel channel, boolean validate) throws IOException {
+        long size = channel.size();
+        if (size < BinaryTreeFormat.HEADER_SIZE) {
+            throw new IOException("Not a tree file, it is too short: " + size + " bytes");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, BinaryTreeFormat.HEADER_SIZE).order(BinaryTreeFormat.BYTE_ORDER);
+        if (header.getInt(0) != BinaryTreeFormat.MAGIC) {
+            throw new IOException("Not a tree file, the magic number is missing");
+        }
+        int version = header.getInt(4);
+        if (version != BinaryTreeFormat.VERSION) {
+            throw new IOException("Unsupported tree file version: " + version);
+        }
+        nodeCount = header.getInt(8);
+        long namesLength = header.getLong(16);
+        long arraySize = 4L * nodeCount;
+        if (nodeCount < 0 || namesLength < 0 || arraySize > Integer.MAX_VALUE || namesLength > Integer.MAX_VALUE
+                || size != BinaryTreeFormat.HEADER_SIZE + 3 * arraySize + namesLength) {
+            throw new IOException("Corrupt tree file, the size does not match the header: " + size + " bytes");
+        }
+        long position = BinaryTreeFormat.HEADER_SIZE;
+        leftChildren = mapInts(channel, position, arraySize);
+        position += arraySize;
+        rightChildren = mapInts(channel, position, arraySize);
+        position += arraySize;
+        nameOffsets = mapInts(channel, position, arraySize);
+        position += arraySize;
+        names = channel.map(FileChannel.MapMode.READ_ONLY, position, namesLength);
+        if (validate) {
+            validate();
+        }
+    }
+
+    private void validate() throws IOException {
+        BitSet hasParent = new BitSet(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            checkChild(i, leftChildren.get(i), "left", hasParent);
+            checkChild(i, rightChildren.get(i), "right", hasParent);
+            checkName(i);
+        }
+        if (nodeCount > 0 && hasParent.cardinality() != nodeCount - 1) {
+            throw new IOException("Corrupt tree file, node " + hasParent.nextClearBit(1) + " has no parent");
+        }
+    }
+
+    private void checkChild(int parent, int child, String side, BitSet hasParent) throws IOException {
+        if (child == NO_NODE) {
+            return;
+        }
+        if (child <= parent || child >= nodeCount) {
+            throw new IOException("Corrupt tree file, invalid " + side + " child of node " + parent + ": " + child);
+        }
+        if (hasParent.get(child)) {
+            throw new IOException("Corrupt tree file, node " + child + " has more than one parent");
+        }
+        hasParent.set(child);
+    }
+
+    private void checkName(int index) throws IOException {
+        int offset = nameOffsets.get(index);
+        int limit = names.limit();
+        int position = offset;
+        long length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (position < 0 || position >= limit || shift > 28) {
+                throw new IOException("Corrupt tree file, invalid name of node " + index + " at offset " + offset);
+            }
+            b = names.get(position++);
+            length |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        if (length > limit - position) {
+            throw new IOException("Corrupt tree file, invalid name of node " + index + " at offset " + offset);
+        }
+    }
+
+    private static IntBuffer mapInts(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(BinaryTreeFormat.BYTE_ORDER).asIntBuffer();
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int getLeft(int index) {
+        return leftChildren.get(index);
+    }
+
+    @Override
+    public int getRight(int index) {
+        return rightChildren.get(index);
+    }
+
+    @Override
+    public int getNameId(int index) {
+        return nameOffsets.get(index);
+    }
+
+    @Override
+    protected byte getNameByte(int position) {
+        return names.get(position);
+    }
+
+    /**
+     * Not supported, the tree is read from the mapped file.
+     *
+     * @param input the underlying reader
+     * @throws IOException never
+     * @throws ParseException never
+     */
+    @Override
+    public void load(Reader input) throws IOException, ParseException {
+        throw new UnsupportedOperationException("Mapped trees are read-only.");
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Post-order tree traversal iterator without a stack (Morris traversal).
+ *
+ * Instead of a stack, the rightmost node of each left subtree temporarily
+ * points to its in-order successor through its right child, and the right
+ * edges of the left subtrees are reversed in place while they are visited.
+ * Every change is undone before the iteration moves on, the tree is
+ * restored completely when the iteration ends. An abandoned iteration leaves
+ * the tree modified, so it must run to the end, and the tree must not be used
+ * by anything else meanwhile. The nodes must support
+ * {@link Node#setRight(Node)}.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class MorrisPostOrderIterator implements Iterator<Node> {
+
+    //its left child is the root, its right edge ends the iteration
+    private final Node dummy;
+    private Node current;
+    //the first and the last node of the reversed right edge being visited
+    private Node edgeStart = null;
+    private Node edgeEnd = null;
+    private Node next = null;
+
+    public MorrisPostOrderIterator(Node tree) {
+        dummy = new BinaryTreeNode(null, tree, null);
+        current = dummy;
+        advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Node next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        Node node = next;
+        if (node == edgeEnd) {
+            //the edge is done, restore it and remove the thread
+            reverse(edgeStart, edgeEnd);
+            edgeStart.setRight(null);
+            current = current.getRight();
+            advance();
+        } else {
+            next = node.getRight();
+        }
+        return node;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    /**
+     * Moves to the next right edge to visit, or to the end of the iteration.
+     */
+    private void advance() {
+        while (current != null) {
+            Node left = current.getLeft();
+            if (left == null) {
+                current = current.getRight();
+                continue;
+            }
+            Node predecessor = left;
+            while (predecessor.getRight() != null && predecessor.getRight() != current) {
+                predecessor = predecessor.getRight();
+            }
+            if (predecessor.getRight() == null) {
+                //thread back to the current node, then descend
+                predecessor.setRight(current);
+                current = left;
+            } else {
+                //the left subtree is done, visit its right edge bottom-up
+                reverse(left, predecessor);
+                edgeStart = predecessor;
+                edgeEnd = left;
+                next = predecessor;
+                return;
+            }
+        }
+        next = null;
+    }
+
+    /**
+     * Reverses the right child references of the right edge between the
+     * specified nodes.
+     */
+    private static void reverse(Node from, Node to) {
+        if (from == to) {
+            return;
+        }
+        Node x = from;
+        Node y = from.getRight();
+        while (x != to) {
+            Node z = y.getRight();
+            y.setRight(x);
+            x = y;
+            y = z;
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ import java.io.Reader;
 import java.io.Writer;
 import java.text.ParseException;
 import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * This interface describes the node of a tree. Provided by NNG.
@@ -79,6 +80,17 @@ public interface Node {
      */
     Iterator<Node> widthIterator();
 
+    /**
+     * Creates a stream of the nodes in breadth-first order, like
+     * {@link #widthIterator()}. The stream can be made parallel, it is split
+     * by levels.
+     *
+     * @return the sequential stream
+     */
+    default Stream<Node> stream() {
+        return TraversalOrder.BREADTH_FIRST.stream(this);
+    }
+
     /**
      * Parses the input from the specified reader.
      * 
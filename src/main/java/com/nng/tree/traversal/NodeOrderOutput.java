@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Writes the node names of a traversal order, separated by spaces, to a byte
+ * channel.
+ *
+ * The names are encoded straight into a large reusable byte buffer that is
+ * written to the channel only when it is full or flushed. ASCII names are
+ * copied byte by byte if the charset is ASCII compatible, the charset encoder
+ * is only used for other characters.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class NodeOrderOutput implements Flushable {
+
+    /**
+     * The default size of the buffer in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private static final char OUTPUT_DELIMETER = ' ';
+    private static final int ASCII_CHARACTERS = 128;
+
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer byteBuffer;
+    private final CharsetEncoder encoder;
+    private final boolean isAsciiCompatible;
+    private int position = 0;
+    private boolean isFirst = true;
+    private long nameCount = 0;
+    private long flushedByteCount = 0;
+
+    /**
+     * Constructs an output that encodes with the default charset, like
+     * {@link java.io.OutputStreamWriter}.
+     *
+     * @param channel the underlying channel
+     */
+    public NodeOrderOutput(WritableByteChannel channel) {
+        this(channel, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs an output with the specified charset and buffer size.
+     *
+     * @param channel the underlying channel
+     * @param charset the charset of the names
+     * @param bufferSize the size of the buffer in bytes
+     */
+    public NodeOrderOutput(WritableByteChannel channel, Charset charset, int bufferSize) {
+        this.channel = channel;
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+        this.byteBuffer = ByteBuffer.wrap(buffer);
+        this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.isAsciiCompatible = isAsciiCompatible(charset);
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        char[] ascii = new char[ASCII_CHARACTERS];
+        byte[] expected = new byte[ASCII_CHARACTERS];
+        for (int c = 0; c < ASCII_CHARACTERS; c++) {
+            ascii[c] = (char) c;
+            expected[c] = (byte) c;
+        }
+        return charset.canEncode() && Arrays.equals(expected, new String(ascii).getBytes(charset));
+    }
+
+    /**
+     * Writes all nodes of the specified iterator.
+     *
+     * @param nodes the iterator of the traversal
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Iterator<Node> nodes) throws IOException {
+        while (nodes.hasNext()) {
+            writeName(nodes.next().getName());
+        }
+    }
+
+    /**
+     * Writes the specified node name, preceded by the delimiter if it is not
+     * the first name.
+     *
+     * @param name the node name
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeName(String name) throws IOException {
+        writeDelimiter();
+        nameCount++;
+        int length = name.length();
+        if (isAsciiCompatible) {
+            for (int i = 0; i < length; i++) {
+                char c = name.charAt(i);
+                if (c >= ASCII_CHARACTERS) {
+                    encode(CharBuffer.wrap(name, i, length));
+                    return;
+                }
+                if (position == buffer.length) {
+                    flushBuffer();
+                }
+                buffer[position++] = (byte) c;
+            }
+        } else {
+            encode(CharBuffer.wrap(name));
+        }
+    }
+
+    /**
+     * Writes the specified ASCII node name, preceded by the delimiter if it is
+     * not the first name.
+     *
+     * @param name the array that holds the name
+     * @param offset the offset of the name in the array
+     * @param length the length of the name
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeName(byte[] name, int offset, int length) throws IOException {
+        writeDelimiter();
+        nameCount++;
+        if (!isAsciiCompatible) {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) name[offset + i];
+            }
+            encode(CharBuffer.wrap(chars));
+            return;
+        }
+        while (length > 0) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int part = Math.min(length, buffer.length - position);
+            System.arraycopy(name, offset, buffer, position, part);
+            position += part;
+            offset += part;
+            length -= part;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    /**
+     * Returns the number of names written.
+     *
+     * @return the number of names
+     */
+    long getNameCount() {
+        return nameCount;
+    }
+
+    /**
+     * Returns the number of bytes written, including the buffered ones.
+     *
+     * @return the number of bytes
+     */
+    long getByteCount() {
+        return flushedByteCount + position;
+    }
+
+    private void writeDelimiter() throws IOException {
+        if (isFirst) {
+            isFirst = false;
+        } else if (isAsciiCompatible) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            buffer[position++] = (byte) OUTPUT_DELIMETER;
+        } else {
+            encode(CharBuffer.wrap(new char[]{OUTPUT_DELIMETER}));
+        }
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        encoder.reset();
+        while (true) {
+            byteBuffer.limit(buffer.length).position(position);
+            CoderResult result = encoder.encode(chars, byteBuffer, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(byteBuffer);
+            }
+            position = byteBuffer.position();
+            if (!result.isOverflow()) {
+                return;
+            }
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        byteBuffer.limit(position).position(0);
+        while (byteBuffer.hasRemaining()) {
+            channel.write(byteBuffer);
+        }
+        flushedByteCount += position;
+        position = 0;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * Growable array stack of nodes for the depth-first iterators. The array is
+ * reused during the whole traversal and only grows to the largest number of
+ * pushed nodes, popped slots are cleared for the garbage collector.
+ *
+ * @author Richárd Ernő Kiss
+ */
+final class NodeStack {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Node[] nodes = new Node[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Pushes the specified node.
+     *
+     * @param node the node
+     */
+    void push(Node node) {
+        if (size == nodes.length) {
+            Node[] grown = new Node[nodes.length * 2];
+            System.arraycopy(nodes, 0, grown, 0, size);
+            nodes = grown;
+        }
+        nodes[size++] = node;
+    }
+
+    /**
+     * Removes and returns the top node.
+     *
+     * @return the top node
+     */
+    Node pop() {
+        Node node = nodes[--size];
+        nodes[size] = null;
+        return node;
+    }
+
+    /**
+     * Returns the top node without removing it.
+     *
+     * @return the top node
+     */
+    Node peek() {
+        return nodes[size - 1];
+    }
+
+    /**
+     * Tells if the stack is empty.
+     *
+     * @return true if there is no node on the stack
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * Builds a tree of {@link BinaryTreeNode} objects into a given root node.
+ * The handle of a node is its depth, so only the path to the node under
+ * construction is kept. The names are resolved through an optional
+ * {@link SymbolTable}.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class NodeTreeBuilder implements TreeBuilder {
+
+    private final Node root;
+    private final SymbolTable symbols;
+    private Node[] path = new Node[64];
+
+    /**
+     * Constructs a builder that sets the name and the children of the
+     * specified root node.
+     *
+     * @param root the root node
+     */
+    public NodeTreeBuilder(Node root) {
+        this(root, null);
+    }
+
+    /**
+     * Constructs a builder that sets the name and the children of the
+     * specified root node, with the names resolved through the specified
+     * symbol table.
+     *
+     * @param root the root node
+     * @param symbols the symbol table of the names, or null
+     */
+    public NodeTreeBuilder(Node root, SymbolTable symbols) {
+        this.root = root;
+        this.symbols = symbols;
+    }
+
+    @Override
+    public int addNode(int parent, boolean isLeftChild, char[] name, int offset, int length) {
+        int depth = parent + 1;
+        Node node;
+        if (parent < 0) {
+            node = root;
+        } else {
+            node = new BinaryTreeNode();
+            if (isLeftChild) {
+                path[parent].setLeft(node);
+            } else {
+                path[parent].setRight(node);
+            }
+        }
+        node.setName(symbols == null ? new String(name, offset, length) : symbols.intern(name, offset, length));
+        if (depth == path.length) {
+            Node[] grown = new Node[path.length * 2];
+            System.arraycopy(path, 0, grown, 0, path.length);
+            path = grown;
+        }
+        path[depth] = node;
+        return depth;
+    }
+
+    /**
+     * Returns the node of the specified handle. Only the nodes on the path to
+     * the last added node can be returned.
+     *
+     * @param handle the handle returned by
+     * {@link #addNode(int, boolean, char[], int, int)}
+     * @return the node
+     */
+    Node getNode(int handle) {
+        return path[handle];
+    }
+
+}
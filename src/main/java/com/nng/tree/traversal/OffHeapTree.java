@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseTree;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Binary tree that stores the nodes outside of the Java heap, in memory-mapped
+ * segments of a temporary file. The layout is the one of {@link IndexedTree}:
+ * each node is three integers, the indexes of the children and the offset of
+ * the name, and the names are entries of a byte pool. Both are split into fixed size segments,
+ * so the heap only holds one buffer object per segment, however many nodes the
+ * tree has. The name pool can hold at most 2 GB.
+ *
+ * The segments are not direct buffers, so they do not count against the
+ * {@code -XX:MaxDirectMemorySize} limit that defaults to the maximum heap
+ * size, and the tree can be larger than the heap. The operating system keeps
+ * the pages in memory while it can and writes them back to the file when it
+ * needs the memory. The file is created in the default temporary directory
+ * or in the specified one, which should not be a memory file system like
+ * tmpfs for trees larger than the physical memory.
+ *
+ * The parser fills the segments directly, and the traversals work on the
+ * indexes with {@link ColumnarBreadthFirstIterator}, so no node objects are
+ * created unless the nodes are requested through the {@link Node} interface.
+ *
+ * The memory is released and the file is deleted by {@link #close()}, after
+ * which the tree can not be used. The tree is not thread-safe, it must not be closed while it is read.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class OffHeapTree extends IndexedTree implements Closeable {
+
+    //nodes per segment, must be a power of two
+    private static final int NODE_SEGMENT_SHIFT = 18;
+    private static final int NODE_SEGMENT_MASK = (1 << NODE_SEGMENT_SHIFT) - 1;
+    private static final int INTS_PER_NODE = 3;
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+    private static final int NAME = 2;
+    //bytes per name segment, must be a power of two
+    private static final int NAME_SEGMENT_SHIFT = 22;
+    private static final int NAME_SEGMENT_MASK = (1 << NAME_SEGMENT_SHIFT) - 1;
+    private static final String CLOSED_MESSAGE = "The tree is closed.";
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (ClassNotFoundException ex) {
+            //the buffers are released by the garbage collector
+        } catch (NoSuchMethodException ex) {
+            //no explicit release before Java 9
+        } catch (NoSuchFieldException ex) {
+            //the buffers are released by the garbage collector
+        } catch (IllegalAccessException ex) {
+            //the buffers are released by the garbage collector
+        } catch (RuntimeException ex) {
+            //the module system may deny the access
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = unsafe == null ? null : invokeCleaner;
+    }
+
+    private final Path directory;
+    private FileChannel file;
+    private long fileLength = 0;
+    private ByteBuffer[] nodeBuffers = new ByteBuffer[0];
+    private IntBuffer[] nodeSegments = new IntBuffer[0];
+    private ByteBuffer[] nameSegments = new ByteBuffer[0];
+    private int nodeCount = 0;
+    private int namesLength = 0;
+    private boolean closed = false;
+
+    /**
+     * Constructs an empty tree with its file in the default temporary
+     * directory. No memory is allocated before the first node.
+     */
+    public OffHeapTree() {
+        this(null);
+    }
+
+    /**
+     * Constructs an empty tree with its file in the specified directory. No
+     * memory is allocated before the first node.
+     *
+     * @param directory the directory of the file, or null for the default
+     * temporary directory
+     */
+    public OffHeapTree(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int getLeft(int index) {
+        return nodeSegment(index).get((index & NODE_SEGMENT_MASK) * INTS_PER_NODE + LEFT);
+    }
+
+    @Override
+    public int getRight(int index) {
+        return nodeSegment(index).get((index & NODE_SEGMENT_MASK) * INTS_PER_NODE + RIGHT);
+    }
+
+    @Override
+    public int getNameId(int index) {
+        return nodeSegment(index).get((index & NODE_SEGMENT_MASK) * INTS_PER_NODE + NAME);
+    }
+
+    @Override
+    protected byte getNameByte(int position) {
+        if (closed) {
+            throw new IllegalStateException(CLOSED_MESSAGE);
+        }
+        return nameSegments[position >>> NAME_SEGMENT_SHIFT].get(position & NAME_SEGMENT_MASK);
+    }
+
+    /**
+     * Returns the number of bytes allocated outside of the heap.
+     *
+     * @return the number of bytes
+     */
+    public long getAllocatedBytes() {
+        long bytes = 0;
+        for (ByteBuffer buffer : nodeBuffers) {
+            bytes += buffer.capacity();
+        }
+        for (ByteBuffer buffer : nameSegments) {
+            bytes += buffer.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Parses the input from the specified reader into the segments. Replaces
+     * the previous content of the tree, the segments are reused.
+     *
+     * @param input the underlying reader
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    @Override
+    public void load(Reader input) throws IOException, ParseException {
+        load(new BinaryTreeLexer(input));
+    }
+
+    /**
+     * Parses the specified memory-mapped file into the segments. Replaces the
+     * previous content of the tree.
+     *
+     * @param input the path of the file
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Path input) throws IOException, ParseException {
+        FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+        try {
+            load(new MappedFileLexer(channel));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Parses the tokens of the specified lexer into the segments. Replaces the
+     * previous content of the tree.
+     *
+     * @param lexer the lexer that contains the tokens
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    void load(BinaryTreeLexer lexer) throws IOException, ParseException {
+        if (closed) {
+            throw new IllegalStateException(CLOSED_MESSAGE);
+        }
+        nodeCount = 0;
+        namesLength = 0;
+        try {
+            parseTree(lexer, new Builder());
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Releases the memory of the segments and deletes the file. Without
+     * explicit release support in the runtime the memory is released when the
+     * garbage collector collects the buffers.
+     *
+     * @throws IOException if the file can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        nodeCount = 0;
+        namesLength = 0;
+        ByteBuffer[] buffers = nodeBuffers;
+        ByteBuffer[] names = nameSegments;
+        nodeBuffers = new ByteBuffer[0];
+        nodeSegments = new IntBuffer[0];
+        nameSegments = new ByteBuffer[0];
+        for (ByteBuffer buffer : buffers) {
+            free(buffer);
+        }
+        for (ByteBuffer buffer : names) {
+            free(buffer);
+        }
+        if (file != null) {
+            //deletes the file
+            file.close();
+            file = null;
+        }
+    }
+
+    /**
+     * Tells if the tree has been closed.
+     *
+     * @return true if the memory has been released
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private IntBuffer nodeSegment(int index) {
+        if (closed) {
+            throw new IllegalStateException(CLOSED_MESSAGE);
+        }
+        return nodeSegments[index >>> NODE_SEGMENT_SHIFT];
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (IllegalAccessException ex) {
+            //left to the garbage collector
+        } catch (InvocationTargetException ex) {
+            //left to the garbage collector
+        }
+    }
+
+    private ByteBuffer allocate(int size) {
+        try {
+            if (file == null) {
+                Path path = directory == null ? Files.createTempFile("tree-traversal", ".tree") : Files.createTempFile(directory, "tree-traversal", ".tree");
+                file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            //mapping past the end grows the file
+            ByteBuffer buffer = file.map(FileChannel.MapMode.READ_WRITE, fileLength, size);
+            fileLength += size;
+            return buffer;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private int addNode(int parent, boolean isLeftChild, char[] name, int offset, int length) {
+        if (nodeCount == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many nodes.");
+        }
+        int index = nodeCount;
+        int segment = index >>> NODE_SEGMENT_SHIFT;
+        if (segment == nodeSegments.length) {
+            ByteBuffer buffer = allocate((INTS_PER_NODE << NODE_SEGMENT_SHIFT) * 4).order(ByteOrder.nativeOrder());
+            nodeBuffers = Arrays.copyOf(nodeBuffers, segment + 1);
+            nodeBuffers[segment] = buffer;
+            nodeSegments = Arrays.copyOf(nodeSegments, segment + 1);
+            nodeSegments[segment] = buffer.asIntBuffer();
+        }
+        IntBuffer nodes = nodeSegments[segment];
+        int position = (index & NODE_SEGMENT_MASK) * INTS_PER_NODE;
+        nodes.put(position + LEFT, NO_NODE);
+        nodes.put(position + RIGHT, NO_NODE);
+        nodes.put(position + NAME, addName(name, offset, length));
+        nodeCount++;
+        if (parent != NO_NODE) {
+            IntBuffer parentNodes = nodeSegments[parent >>> NODE_SEGMENT_SHIFT];
+            parentNodes.put((parent & NODE_SEGMENT_MASK) * INTS_PER_NODE + (isLeftChild ? LEFT : RIGHT), index);
+        }
+        return index;
+    }
+
+    private int addName(char[] name, int offset, int length) {
+        //length prefix takes at most 5 bytes
+        if ((long) namesLength + 5 + length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The name pool is full.");
+        }
+        int nameOffset = namesLength;
+        int remaining = length;
+        while (remaining > 0x7f) {
+            putNameByte((byte) (remaining | 0x80));
+            remaining >>>= 7;
+        }
+        putNameByte((byte) remaining);
+        //validated names consist of ASCII characters only
+        for (int i = 0; i < length; i++) {
+            putNameByte((byte) name[offset + i]);
+        }
+        return nameOffset;
+    }
+
+    private void putNameByte(byte b) {
+        int segment = namesLength >>> NAME_SEGMENT_SHIFT;
+        if (segment == nameSegments.length) {
+            nameSegments = Arrays.copyOf(nameSegments, segment + 1);
+            nameSegments[segment] = allocate(1 << NAME_SEGMENT_SHIFT);
+        }
+        nameSegments[segment].put(namesLength & NAME_SEGMENT_MASK, b);
+        namesLength++;
+    }
+
+    /**
+     * Fills the segments of the tree from the parser.
+     */
+    private class Builder implements TreeBuilder {
+
+        @Override
+        public int addNode(int parent, boolean isLeftChild, char[] name, int offset, int length) {
+            return OffHeapTree.this.addNode(parent, isLeftChild, name, offset, length);
+        }
+
+    }
+
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Level-synchronous breadth-first traversal that expands wide levels on a
+ * {@link ForkJoinPool}.
+ *
+ * The nodes of a level are split into chunks. The workers claim the chunks one
+ * after another and collect the children of the claimed chunks into their own
+ * buffers. When the level is done, the chunks are copied to the next level in
+ * chunk order, so the nodes are visited in exactly the same order as by
+ * {@link BreadthFirstIterator}. Levels narrower than the threshold are expanded
+ * on the calling thread.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class ParallelBreadthFirstTraversal {
+
+    /**
+     * The default width below which a level is expanded sequentially.
+     */
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    private static final String OUTPUT_DELIMETER = " ";
+    //chunks per worker, more chunks balance better but cost more bookkeeping
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /**
+     * Receives the levels of the traversal.
+     */
+    public interface LevelVisitor {
+
+        /**
+         * Visits the nodes of a level from left to right. The array is reused
+         * for a later level after the call.
+         *
+         * @param nodes the array that holds the nodes of the level
+         * @param count the number of nodes in the level
+         * @throws IOException if an I/O error occurs
+         */
+        void visitLevel(Node[] nodes, int count) throws IOException;
+
+    }
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final Worker[] workers;
+
+    /**
+     * Constructs a traversal that uses all available processors and the
+     * default threshold.
+     */
+    public ParallelBreadthFirstTraversal() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a traversal with its own pool of the specified parallelism.
+     *
+     * @param parallelism the number of worker threads
+     * @param threshold the width below which a level is expanded sequentially
+     */
+    public ParallelBreadthFirstTraversal(int parallelism, int threshold) {
+        this(new ForkJoinPool(parallelism), threshold);
+    }
+
+    /**
+     * Constructs a traversal that runs on the specified pool.
+     *
+     * @param pool the pool of the workers
+     * @param threshold the width below which a level is expanded sequentially
+     */
+    public ParallelBreadthFirstTraversal(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+        this.workers = new Worker[pool.getParallelism()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+        }
+    }
+
+    /**
+     * Traverses the specified tree level by level. The levels are passed to
+     * the visitor on the calling thread, in order.
+     *
+     * @param root the root of the tree, or null for an empty tree
+     * @param visitor the visitor of the levels
+     * @throws IOException if the visitor throws it
+     */
+    public synchronized void traverse(Node root, LevelVisitor visitor) throws IOException {
+        if (root == null || root instanceof IndexedTree && ((IndexedTree) root).getNodeCount() == 0) {
+            //an empty tree has no levels
+            return;
+        }
+        Node[] level = new Node[]{root};
+        int count = 1;
+        Node[] nextLevel = new Node[2];
+        while (count != 0) {
+            visitor.visitLevel(level, count);
+            if (nextLevel.length < 2 * count) {
+                nextLevel = new Node[2 * count];
+            }
+            int nextCount = count < threshold ? expand(level, count, nextLevel) : expandInParallel(level, count, nextLevel);
+            //clear the references of the visited level, then reuse its array
+            Arrays.fill(level, 0, count, null);
+            Node[] visited = level;
+            level = nextLevel;
+            nextLevel = visited;
+            count = nextCount;
+        }
+    }
+
+    /**
+     * Writes the breadth-first node order of the specified tree to the
+     * specified writer, in the same format as {@link Node#save(Writer)}.
+     *
+     * @param root the root of the tree, or null for an empty tree
+     * @param output the underlying writer
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Node root, final Writer output) throws IOException {
+        try {
+            traverse(root, new LevelVisitor() {
+
+                private boolean isFirst = true;
+
+                @Override
+                public void visitLevel(Node[] nodes, int count) throws IOException {
+                    for (int i = 0; i < count; i++) {
+                        if (!isFirst) {
+                            output.append(OUTPUT_DELIMETER);
+                        }
+                        isFirst = false;
+                        output.append(nodes[i].getName());
+                    }
+                }
+            });
+        } finally {
+            output.flush();
+        }
+    }
+
+    /**
+     * Shuts down the pool of the traversal.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static int expand(Node[] level, int from, int to, Node[] target, int count) {
+        for (int i = from; i < to; i++) {
+            Node node = level[i];
+            if (node.getLeft() != null) {
+                target[count++] = node.getLeft();
+            }
+            if (node.getRight() != null) {
+                target[count++] = node.getRight();
+            }
+        }
+        return count;
+    }
+
+    private static int expand(Node[] level, int count, Node[] target) {
+        return expand(level, 0, count, target, 0);
+    }
+
+    private int expandInParallel(Node[] level, int count, Node[] target) {
+        int chunkCount = Math.min(workers.length * CHUNKS_PER_WORKER, count);
+        Level job = new Level(level, count, chunkCount);
+        List<ForkJoinTask<?>> claims = new ArrayList<ForkJoinTask<?>>(workers.length);
+        for (Worker worker : workers) {
+            claims.add(new Claim(worker, job));
+        }
+        pool.invoke(new Fork(claims));
+        //offsets of the chunks in the next level
+        int nextCount = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            job.targetOffsets[chunk] = nextCount;
+            nextCount += job.lengths[chunk];
+        }
+        job.target = target;
+        List<ForkJoinTask<?>> copies = new ArrayList<ForkJoinTask<?>>(workers.length);
+        for (Worker worker : workers) {
+            if (worker.chunkCount != 0) {
+                copies.add(new Copy(worker, job));
+            }
+        }
+        pool.invoke(new Fork(copies));
+        return nextCount;
+    }
+
+    /**
+     * The state of a level expanded in parallel.
+     */
+    private static final class Level {
+
+        final Node[] nodes;
+        final int count;
+        final int chunkCount;
+        final int chunkSize;
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final int[] lengths;
+        final int[] targetOffsets;
+        Node[] target;
+
+        Level(Node[] nodes, int count, int chunkCount) {
+            this.nodes = nodes;
+            this.count = count;
+            this.chunkCount = chunkCount;
+            this.chunkSize = (count + chunkCount - 1) / chunkCount;
+            this.lengths = new int[chunkCount];
+            this.targetOffsets = new int[chunkCount];
+        }
+
+    }
+
+    /**
+     * The buffer of a worker, reused for every level.
+     */
+    private static final class Worker {
+
+        Node[] buffer = new Node[64];
+        int[] chunks = new int[8];
+        int[] chunkOffsets = new int[8];
+        int chunkCount;
+        int size;
+
+    }
+
+    /**
+     * Claims chunks of a level and collects their children into the buffer of
+     * a worker.
+     */
+    private static final class Claim extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final Worker worker;
+        private final Level level;
+
+        Claim(Worker worker, Level level) {
+            this.worker = worker;
+            this.level = level;
+        }
+
+        @Override
+        protected void compute() {
+            Worker w = worker;
+            w.chunkCount = 0;
+            int size = 0;
+            int chunk;
+            while ((chunk = level.nextChunk.getAndIncrement()) < level.chunkCount) {
+                int from = chunk * level.chunkSize;
+                int to = Math.min(from + level.chunkSize, level.count);
+                if (w.buffer.length < size + 2 * (to - from)) {
+                    w.buffer = Arrays.copyOf(w.buffer, Math.max(w.buffer.length * 2, size + 2 * (to - from)));
+                }
+                if (w.chunkCount == w.chunks.length) {
+                    w.chunks = Arrays.copyOf(w.chunks, w.chunkCount * 2);
+                    w.chunkOffsets = Arrays.copyOf(w.chunkOffsets, w.chunkCount * 2);
+                }
+                int end = from < to ? expand(level.nodes, from, to, w.buffer, size) : size;
+                w.chunks[w.chunkCount] = chunk;
+                w.chunkOffsets[w.chunkCount] = size;
+                w.chunkCount++;
+                level.lengths[chunk] = end - size;
+                size = end;
+            }
+            w.size = size;
+        }
+
+    }
+
+    /**
+     * Copies the chunks collected by a worker to their place in the next
+     * level.
+     */
+    private static final class Copy extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final Worker worker;
+        private final Level level;
+
+        Copy(Worker worker, Level level) {
+            this.worker = worker;
+            this.level = level;
+        }
+
+        @Override
+        protected void compute() {
+            Worker w = worker;
+            for (int i = 0; i < w.chunkCount; i++) {
+                int chunk = w.chunks[i];
+                System.arraycopy(w.buffer, w.chunkOffsets[i], level.target, level.targetOffsets[chunk], level.lengths[chunk]);
+            }
+            //do not keep the nodes of the tree alive
+            Arrays.fill(w.buffer, 0, w.size, null);
+        }
+
+    }
+
+    /**
+     * Runs a list of tasks on the pool and waits for all of them.
+     */
+    static final class Fork extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final List<ForkJoinTask<?>> tasks;
+
+        Fork(List<ForkJoinTask<?>> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+
+    }
+
+}
@@ -0,0 +1,542 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseNodeIteratively;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parser that splits the input text into subtrees and parses them on a
+ * {@link ForkJoinPool}.
+ *
+ * The whole input is read into memory first. The text is cut into chunks that
+ * are scanned in parallel three times. The first scan sums up the change of
+ * the parenthesis depth in each chunk, the prefix sum of these gives the depth
+ * at the start of every chunk. The second scan counts the subtrees that start
+ * at each depth, the smallest depth with enough subtrees for the workers is
+ * chosen as the cut depth. The third scan collects the boundaries of the
+ * subtrees at the cut depth. The subtrees are then parsed by the workers,
+ * while the calling thread parses the rest of the tree with a subtree token in
+ * place of each of them, and finally the subtrees are linked to their parents.
+ *
+ * Inputs where a parenthesis is not necessarily a token, because they contain
+ * quotes or comments, inputs with unbalanced parentheses and inputs without
+ * subtrees to split, like a degenerate tree, are parsed sequentially. If any
+ * part of the tree fails to parse, the whole input is parsed again
+ * sequentially, so a malformed input gives the same {@link ParseException} as
+ * {@link ParserMode#ITERATIVE}.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class ParallelTreeParser {
+
+    /**
+     * The default input length in characters below which the input is parsed
+     * sequentially.
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    //replaces the subtrees in the text parsed by the calling thread, must not be a word character
+    private static final char SUBTREE = '#';
+    //chunks and subtrees per worker, more of them balance better but cost more bookkeeping
+    private static final int CHUNKS_PER_WORKER = 4;
+    //the deepest level where the tree can be cut
+    private static final int MAX_CUT_DEPTH = 32;
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Constructs a parser that uses all available processors and the default
+     * threshold.
+     */
+    public ParallelTreeParser() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a parser with its own pool of the specified parallelism.
+     *
+     * @param parallelism the number of worker threads
+     * @param threshold the input length below which the input is parsed
+     * sequentially
+     */
+    public ParallelTreeParser(int parallelism, int threshold) {
+        this(new ForkJoinPool(parallelism), threshold);
+    }
+
+    /**
+     * Constructs a parser that runs on the specified pool.
+     *
+     * @param pool the pool of the workers
+     * @param threshold the input length below which the input is parsed
+     * sequentially
+     */
+    public ParallelTreeParser(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the parser shared by {@link ParserMode#PARALLEL}, which uses all
+     * available processors.
+     *
+     * @return the shared parser
+     */
+    static ParallelTreeParser getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Parses the whole input of the specified reader into the specified root
+     * node.
+     *
+     * @param root the root node of the tree
+     * @param input the underlying reader
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Node root, Reader input) throws IOException, ParseException {
+        char[] text = new char[INITIAL_CAPACITY];
+        int length = 0;
+        int count;
+        while ((count = input.read(text, length, text.length - length)) >= 0) {
+            length += count;
+            if (length == text.length) {
+                text = Arrays.copyOf(text, text.length * 2);
+            }
+        }
+        parse(root, text, length);
+    }
+
+    /**
+     * Parses the specified file into the specified root node. The bytes are
+     * taken as ISO-8859-1 characters like in {@link MappedFileLexer}, the
+     * file is expected to be ASCII.
+     *
+     * @param root the root node of the tree
+     * @param input the path of the file
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void load(Node root, Path input) throws IOException, ParseException {
+        byte[] bytes = Files.readAllBytes(input);
+        char[] text = new char[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            text[i] = (char) (bytes[i] & 0xff);
+        }
+        parse(root, text, text.length);
+    }
+
+    /**
+     * Shuts down the pool of the parser.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Parses the specified characters into the specified root node.
+     *
+     * @param root the root node of the tree
+     * @param text the array that holds the input
+     * @param length the length of the input
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    void parse(Node root, char[] text, int length) throws IOException, ParseException {
+        long start = TraversalMetrics.ENABLED ? System.nanoTime() : 0;
+        if (length < threshold || !parseInParallel(root, text, length, start)) {
+            BinaryTreeLexer lexer = new BinaryTreeLexer(new CharArrayReader(text, 0, length));
+            parseNodeIteratively(root, lexer);
+            if (TraversalMetrics.ENABLED) {
+                TraversalMetrics.getInstance().recordParse(lexer, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private boolean parseInParallel(Node root, char[] text, int length, long start) throws IOException {
+        int chunkCount = Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_WORKER, length / threshold));
+        int chunkSize = (length + chunkCount - 1) / chunkCount;
+        Chunk[] chunks = new Chunk[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i] = new Chunk(text, i * chunkSize, Math.min((i + 1) * chunkSize, length));
+        }
+
+        scan(chunks, Chunk.DEPTH);
+        int depth = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.quoted) {
+                return false;
+            }
+            chunk.startDepth = depth;
+            depth += chunk.depthChange;
+        }
+        if (depth != 0) {
+            return false;
+        }
+
+        scan(chunks, Chunk.COUNT);
+        int[] counts = new int[MAX_CUT_DEPTH + 1];
+        int roots = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.unbalanced) {
+                return false;
+            }
+            roots += chunk.roots;
+            for (int d = 0; d <= MAX_CUT_DEPTH; d++) {
+                counts[d] += chunk.counts[d];
+            }
+        }
+        //the root has depth 1 and can not be cut
+        int cutDepth = 2;
+        for (int d = 2; d <= MAX_CUT_DEPTH; d++) {
+            if (counts[d] > counts[cutDepth]) {
+                cutDepth = d;
+            }
+            if (counts[d] >= pool.getParallelism() * CHUNKS_PER_WORKER) {
+                cutDepth = d;
+                break;
+            }
+        }
+        if (roots != 1 || counts[cutDepth] < 2) {
+            return false;
+        }
+
+        for (Chunk chunk : chunks) {
+            chunk.cutDepth = cutDepth;
+        }
+        scan(chunks, Chunk.COLLECT);
+        int subtreeCount = counts[cutDepth];
+        int[] starts = new int[subtreeCount];
+        int[] ends = new int[subtreeCount];
+        int startCount = 0;
+        int endCount = 0;
+        for (Chunk chunk : chunks) {
+            System.arraycopy(chunk.starts, 0, starts, startCount, chunk.startCount);
+            startCount += chunk.startCount;
+            System.arraycopy(chunk.ends, 0, ends, endCount, chunk.endCount);
+            endCount += chunk.endCount;
+        }
+
+        Subtree[] subtrees = new Subtree[subtreeCount];
+        for (int i = 0; i < subtreeCount; i++) {
+            subtrees[i] = new Subtree(text, starts[i], ends[i] + 1 - starts[i]);
+            pool.execute(subtrees[i]);
+        }
+        //the rest of the tree is parsed on the calling thread meanwhile
+        Skeleton skeleton = new Skeleton(root, subtreeCount);
+        BinaryTreeLexer lexer = new SkeletonLexer(text, length, starts, ends);
+        boolean parsed;
+        try {
+            IterativeTreeParser parser = new IterativeTreeParser(skeleton, SUBTREE);
+            do {
+                lexer.nextToken();
+            } while (!parser.accept(lexer));
+            parsed = skeleton.count == subtreeCount;
+        } catch (ParseException e) {
+            parsed = false;
+        }
+        Node[] subtreeRoots = new Node[subtreeCount];
+        for (int i = 0; i < subtreeCount; i++) {
+            subtreeRoots[i] = subtrees[i].join();
+            parsed &= subtreeRoots[i] != null;
+        }
+        if (!parsed) {
+            //the input is parsed again sequentially for the exception
+            root.setLeft(null);
+            root.setRight(null);
+            return false;
+        }
+        for (int i = 0; i < subtreeCount; i++) {
+            if (skeleton.isLeftChild[i]) {
+                skeleton.parents[i].setLeft(subtreeRoots[i]);
+            } else {
+                skeleton.parents[i].setRight(subtreeRoots[i]);
+            }
+        }
+        if (TraversalMetrics.ENABLED) {
+            long nodeCount = lexer.getWordCount();
+            long nameCharacterCount = lexer.getWordCharacterCount();
+            int maxDepth = lexer.getMaxDepth();
+            for (Subtree subtree : subtrees) {
+                nodeCount += subtree.lexer.getWordCount();
+                nameCharacterCount += subtree.lexer.getWordCharacterCount();
+                maxDepth = Math.max(maxDepth, cutDepth - 1 + subtree.lexer.getMaxDepth());
+            }
+            TraversalMetrics.getInstance().recordParse(nodeCount, length, nameCharacterCount, maxDepth, System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    private void scan(Chunk[] chunks, int pass) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(chunks.length);
+        for (Chunk chunk : chunks) {
+            chunk.reinitialize();
+            chunk.pass = pass;
+            tasks.add(chunk);
+        }
+        pool.invoke(new ParallelBreadthFirstTraversal.Fork(tasks));
+    }
+
+    /**
+     * Holds the shared parser, which is created on first use.
+     */
+    private static final class DefaultHolder {
+
+        static final ParallelTreeParser INSTANCE = new ParallelTreeParser();
+
+    }
+
+    /**
+     * A chunk of the input text and the results of its scans.
+     */
+    private static final class Chunk extends RecursiveAction {
+
+        //sums up the depth change and looks for quotes and comments
+        static final int DEPTH = 0;
+        //counts the subtrees that start at each depth
+        static final int COUNT = 1;
+        //collects the boundaries of the subtrees at the cut depth
+        static final int COLLECT = 2;
+
+        private static final long serialVersionUID = 1L;
+        private final char[] text;
+        private final int from;
+        private final int to;
+        int pass;
+        boolean quoted;
+        int depthChange;
+        int startDepth;
+        boolean unbalanced;
+        int roots;
+        final int[] counts = new int[MAX_CUT_DEPTH + 1];
+        int cutDepth;
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        int startCount;
+        int endCount;
+
+        Chunk(char[] text, int from, int to) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            switch (pass) {
+                case DEPTH:
+                    sumDepth();
+                    break;
+                case COUNT:
+                    countSubtrees();
+                    break;
+                default:
+                    collectSubtrees();
+            }
+        }
+
+        private void sumDepth() {
+            int depth = 0;
+            for (int i = from; i < to; i++) {
+                switch (text[i]) {
+                    case '(':
+                        depth++;
+                        break;
+                    case ')':
+                        depth--;
+                        break;
+                    case '"':
+                    case '\'':
+                    case '/':
+                    case SUBTREE:
+                        quoted = true;
+                        break;
+                    default:
+                }
+            }
+            depthChange = depth;
+        }
+
+        private void countSubtrees() {
+            int depth = startDepth;
+            for (int i = from; i < to; i++) {
+                char c = text[i];
+                if (c == '(') {
+                    if (++depth <= MAX_CUT_DEPTH) {
+                        counts[depth]++;
+                    }
+                } else if (c == ')') {
+                    if (--depth == 0) {
+                        roots++;
+                    } else if (depth < 0) {
+                        unbalanced = true;
+                    }
+                }
+            }
+        }
+
+        private void collectSubtrees() {
+            int depth = startDepth;
+            for (int i = from; i < to; i++) {
+                char c = text[i];
+                if (c == '(') {
+                    if (++depth == cutDepth) {
+                        if (startCount == starts.length) {
+                            starts = Arrays.copyOf(starts, startCount * 2);
+                        }
+                        starts[startCount++] = i;
+                    }
+                } else if (c == ')') {
+                    if (depth-- == cutDepth) {
+                        if (endCount == ends.length) {
+                            ends = Arrays.copyOf(ends, endCount * 2);
+                        }
+                        ends[endCount++] = i;
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Parses a subtree on a worker. The result is null if the subtree
+     * contains a syntax error.
+     */
+    private static final class Subtree extends RecursiveTask<Node> {
+
+        private static final long serialVersionUID = 1L;
+        private final char[] text;
+        private final int offset;
+        private final int length;
+        BinaryTreeLexer lexer;
+
+        Subtree(char[] text, int offset, int length) {
+            this.text = text;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        protected Node compute() {
+            Node node = new BinaryTreeNode();
+            lexer = new BinaryTreeLexer(new CharArrayReader(text, offset, length));
+            try {
+                parseNodeIteratively(node, lexer);
+                return node;
+            } catch (ParseException e) {
+                return null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+    }
+
+    /**
+     * Builds the part of the tree above the cut depth and remembers the
+     * parents of the subtrees.
+     */
+    private static final class Skeleton extends NodeTreeBuilder implements SubtreeBuilder {
+
+        final Node[] parents;
+        final boolean[] isLeftChild;
+        int count;
+
+        Skeleton(Node root, int subtreeCount) {
+            super(root);
+            this.parents = new Node[subtreeCount];
+            this.isLeftChild = new boolean[subtreeCount];
+        }
+
+        @Override
+        public void addSubtree(int parent, boolean isLeftChild) {
+            if (count < parents.length) {
+                parents[count] = getNode(parent);
+                this.isLeftChild[count] = isLeftChild;
+            }
+            count++;
+        }
+
+    }
+
+    /**
+     * Reads the input text with a {@link #SUBTREE} character in place of each
+     * subtree.
+     */
+    private static final class SkeletonLexer extends BinaryTreeLexer {
+
+        private static final int BUFFER_SIZE = 8192;
+
+        private final char[] text;
+        private final int length;
+        private final int[] starts;
+        private final int[] ends;
+        private int position = 0;
+        private int nextSubtree = 0;
+
+        SkeletonLexer(char[] text, int length, int[] starts, int[] ends) {
+            super(BUFFER_SIZE);
+            this.text = text;
+            this.length = length;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        @Override
+        protected int fill(char[] target) {
+            if (position == length) {
+                return -1;
+            }
+            int count = 0;
+            while (count < target.length && position < length) {
+                if (nextSubtree < starts.length && position == starts[nextSubtree]) {
+                    target[count++] = SUBTREE;
+                    position = ends[nextSubtree++] + 1;
+                } else {
+                    int limit = nextSubtree < starts.length ? starts[nextSubtree] : length;
+                    int n = Math.min(target.length - count, limit - position);
+                    System.arraycopy(text, position, target, count, n);
+                    count += n;
+                    position += n;
+                }
+            }
+            return count;
+        }
+
+    }
+
+}
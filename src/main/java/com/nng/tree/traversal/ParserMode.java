@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * The ways {@link BinaryTreeNode#load(java.io.Reader, ParserMode)} can walk
+ * the input.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public enum ParserMode {
+
+    /**
+     * Descends into the child nodes with recursive calls, the depth of the
+     * tree is limited by the size of the thread stack.
+     */
+    RECURSIVE,
+    /**
+     * Keeps the nodes under construction on an explicit stack on the heap,
+     * the depth of the tree is limited only by the memory.
+     */
+    ITERATIVE,
+    /**
+     * Validates the whole input like {@link #ITERATIVE}, but only records the
+     * child indexes and the names in a {@link ColumnarTree}. The node objects
+     * below the root are built the first time they are requested.
+     */
+    LAZY,
+    /**
+     * Reads the whole input into memory and parses its subtrees on all
+     * available processors with a {@link ParallelTreeParser}. The names are
+     * resolved through a symbol table by the calling thread only, so with a
+     * symbol table the input is parsed like {@link #ITERATIVE}.
+     */
+    PARALLEL,
+    /**
+     * Parses like {@link #ITERATIVE}, but looks up every completed subtree in
+     * a {@link SubtreeTable}, so identical subtrees share one node instance.
+     * The traversals still visit every occurrence. The shared nodes must not
+     * be modified, and the tree can not be traversed with
+     * {@link TraversalOrder#MORRIS_POST_ORDER}, which threads the nodes.
+     */
+    DEDUPLICATED
+
+}
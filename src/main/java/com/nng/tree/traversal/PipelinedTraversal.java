@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseNodeIteratively;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Breadth-first traversal in three pipelined stages on separate threads. A
+ * reader thread reads the input in blocks, the calling thread parses the
+ * blocks and writes the node order into output blocks, and a writer thread
+ * writes the output blocks, so reading, parsing and writing overlap.
+ *
+ * The stages pass the blocks through {@link SpscRing}s, and the consumed
+ * blocks go back to their producer through a second ring of each pair to be
+ * reused. Every stage measures its stall time, the time it waited for the
+ * other stages. The input bytes are taken as ISO-8859-1 characters like in
+ * {@link MappedFileLexer}, the output is encoded with the default charset.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class PipelinedTraversal {
+
+    /**
+     * The default size of the input and output blocks in bytes.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * The default number of blocks between two stages.
+     */
+    public static final int DEFAULT_RING_CAPACITY = 16;
+
+    //the end of the blocks, never reused
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final int blockSize;
+    private final int ringCapacity;
+    private volatile long readerStallNanos = 0;
+    private volatile long parserStallNanos = 0;
+    private volatile long writerStallNanos = 0;
+
+    /**
+     * Constructs a pipelined traversal with the default block size and ring
+     * capacity.
+     */
+    public PipelinedTraversal() {
+        this(DEFAULT_BLOCK_SIZE, DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * Constructs a pipelined traversal with the specified block size and
+     * ring capacity.
+     *
+     * @param blockSize the size of the input and output blocks in bytes
+     * @param ringCapacity the number of blocks between two stages
+     */
+    public PipelinedTraversal(int blockSize, int ringCapacity) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        if (ringCapacity < 1) {
+            throw new IllegalArgumentException("Ring capacity must be positive: " + ringCapacity);
+        }
+        this.blockSize = blockSize;
+        this.ringCapacity = ringCapacity;
+    }
+
+    /**
+     * Parses the tree from the specified channel and writes the node order of
+     * the breadth-first traversal to the specified channel. Returns when the
+     * whole node order is written. The input is read only until the end of
+     * the tree.
+     *
+     * @param input the underlying input channel
+     * @param output the underlying output channel
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void traverse(ReadableByteChannel input, WritableByteChannel output) throws IOException, ParseException {
+        InputStage reader = new InputStage(input);
+        OutputStage writer = new OutputStage(output);
+        Thread readerThread = startThread(reader, "pipeline-reader");
+        Thread writerThread = startThread(writer, "pipeline-writer");
+        boolean completed = false;
+        try {
+            BinaryTreeNode tree = new BinaryTreeNode();
+            RingLexer lexer = new RingLexer(reader);
+            long start = TraversalMetrics.ENABLED ? System.nanoTime() : 0;
+            parseNodeIteratively(tree, lexer);
+            if (TraversalMetrics.ENABLED) {
+                TraversalMetrics.getInstance().recordParse(lexer, System.nanoTime() - start);
+                start = System.nanoTime();
+            }
+            //the rest of the input is not needed
+            reader.blocks.close();
+
+            NodeOrderOutput nodeOrderOutput = new NodeOrderOutput(new RingChannel(writer), Charset.defaultCharset(), blockSize);
+            nodeOrderOutput.write(tree.widthIterator());
+            nodeOrderOutput.flush();
+            if (TraversalMetrics.ENABLED) {
+                TraversalMetrics.getInstance().recordSave(nodeOrderOutput.getNameCount(), nodeOrderOutput.getByteCount(), System.nanoTime() - start);
+            }
+            if (!writer.blocks.put(END)) {
+                throw writer.getError();
+            }
+            writerThread.join();
+            if (writer.error != null) {
+                throw writer.error;
+            }
+            completed = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the pipeline");
+        } finally {
+            if (!completed) {
+                //the reader may be blocked in the input, it is not waited for
+                reader.blocks.close();
+                writer.blocks.close();
+                readerThread.interrupt();
+                writerThread.interrupt();
+            }
+            readerStallNanos = reader.blocks.getProducerStallNanos();
+            parserStallNanos = reader.blocks.getConsumerStallNanos() + writer.blocks.getProducerStallNanos();
+            writerStallNanos = writer.blocks.getConsumerStallNanos();
+        }
+    }
+
+    /**
+     * Returns the time the reader waited for the parser in the last
+     * traversal.
+     *
+     * @return the stall time in nanoseconds
+     */
+    public long getReaderStallNanos() {
+        return readerStallNanos;
+    }
+
+    /**
+     * Returns the time the parser waited for the reader and the writer in the
+     * last traversal.
+     *
+     * @return the stall time in nanoseconds
+     */
+    public long getParserStallNanos() {
+        return parserStallNanos;
+    }
+
+    /**
+     * Returns the time the writer waited for the parser in the last
+     * traversal.
+     *
+     * @return the stall time in nanoseconds
+     */
+    public long getWriterStallNanos() {
+        return writerStallNanos;
+    }
+
+    /**
+     * Returns a human readable summary of the stall times of the last
+     * traversal, one stage per line.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        String lineSeparator = System.getProperty("line.separator");
+        return "reader stall: " + TimeUnit.NANOSECONDS.toMillis(readerStallNanos) + " ms" + lineSeparator
+                + "parser stall: " + TimeUnit.NANOSECONDS.toMillis(parserStallNanos) + " ms" + lineSeparator
+                + "writer stall: " + TimeUnit.NANOSECONDS.toMillis(writerStallNanos) + " ms" + lineSeparator;
+    }
+
+    private static Thread startThread(Runnable stage, String name) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * The first stage, reads the input blocks.
+     */
+    private class InputStage implements Runnable {
+
+        private final ReadableByteChannel input;
+        private final SpscRing<ByteBuffer> blocks = new SpscRing<ByteBuffer>(ringCapacity);
+        private final SpscRing<ByteBuffer> freeBlocks = new SpscRing<ByteBuffer>(ringCapacity + 2);
+        private volatile IOException error = null;
+
+        InputStage(ReadableByteChannel input) {
+            this.input = input;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    ByteBuffer block = freeBlocks.poll();
+                    if (block == null) {
+                        block = ByteBuffer.allocate(blockSize);
+                    }
+                    block.clear();
+                    //one read per block, so a slow input is parsed as it comes
+                    int count = input.read(block);
+                    block.flip();
+                    if (count < 0) {
+                        blocks.put(END);
+                        return;
+                    }
+                    if (count > 0 && !blocks.put(block)) {
+                        return;
+                    }
+                }
+            } catch (IOException ex) {
+                error = ex;
+                try {
+                    blocks.put(END);
+                } catch (InterruptedException interrupted) {
+                    //the parser gave up
+                }
+            } catch (InterruptedException ex) {
+                //the parser gave up
+            }
+        }
+
+    }
+
+    /**
+     * The last stage, writes the output blocks.
+     */
+    private class OutputStage implements Runnable {
+
+        private final WritableByteChannel output;
+        private final SpscRing<ByteBuffer> blocks = new SpscRing<ByteBuffer>(ringCapacity);
+        private final SpscRing<ByteBuffer> freeBlocks = new SpscRing<ByteBuffer>(ringCapacity + 2);
+        private volatile IOException error = null;
+
+        OutputStage(WritableByteChannel output) {
+            this.output = output;
+        }
+
+        @Override
+        public void run() {
+            try {
+                ByteBuffer block;
+                while ((block = blocks.take()) != null && block != END) {
+                    while (block.hasRemaining()) {
+                        output.write(block);
+                    }
+                    freeBlocks.offer(block);
+                }
+            } catch (IOException ex) {
+                error = ex;
+                //the parser must not wait for free space any more
+                blocks.close();
+            } catch (InterruptedException ex) {
+                //the parser gave up
+            }
+        }
+
+        private IOException getError() {
+            return error != null ? error : new IOException("The pipeline writer stopped");
+        }
+
+    }
+
+    /**
+     * Lexer of the second stage, takes its characters from the input blocks.
+     */
+    private static class RingLexer extends BinaryTreeLexer {
+
+        private static final int BUFFER_SIZE = 8192;
+
+        private final InputStage reader;
+        private ByteBuffer block = null;
+
+        RingLexer(InputStage reader) {
+            super(BUFFER_SIZE);
+            this.reader = reader;
+        }
+
+        @Override
+        protected int fill(char[] target) throws IOException {
+            if (block == END) {
+                return -1;
+            }
+            if (block == null || !block.hasRemaining()) {
+                if (block != null) {
+                    reader.freeBlocks.offer(block);
+                }
+                try {
+                    block = reader.blocks.take();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the input");
+                }
+                if (block == null || block == END) {
+                    block = END;
+                    if (reader.error != null) {
+                        throw reader.error;
+                    }
+                    return -1;
+                }
+            }
+            int count = Math.min(target.length, block.remaining());
+            for (int i = 0; i < count; i++) {
+                target[i] = (char) (block.get() & 0xff);
+            }
+            return count;
+        }
+
+    }
+
+    /**
+     * Channel of the second stage, copies the written bytes into output
+     * blocks for the writer.
+     */
+    private class RingChannel implements WritableByteChannel {
+
+        private final OutputStage writer;
+
+        RingChannel(OutputStage writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int count = source.remaining();
+            ByteBuffer block = writer.freeBlocks.poll();
+            if (block == null || block.capacity() < count) {
+                block = ByteBuffer.allocate(Math.max(blockSize, count));
+            }
+            block.clear();
+            block.put(source);
+            block.flip();
+            try {
+                if (!writer.blocks.put(block)) {
+                    throw writer.getError();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the writer");
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
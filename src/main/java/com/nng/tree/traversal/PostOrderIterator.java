@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Post-order tree traversal iterator: the left subtree, then the right
+ * subtree, then the node. The path to the current node is kept on a
+ * {@link NodeStack}, the last visited node tells if the right subtree of the
+ * top node is done, so the iteration allocates nothing per node.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class PostOrderIterator implements Iterator<Node> {
+
+    private final NodeStack stack = new NodeStack();
+    //the root of the subtree that is not descended into yet
+    private Node current;
+    private Node lastVisited = null;
+
+    public PostOrderIterator(Node tree) {
+        current = tree;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return current != null || !stack.isEmpty();
+    }
+
+    @Override
+    public Node next() {
+        while (true) {
+            while (current != null) {
+                stack.push(current);
+                current = current.getLeft();
+            }
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node top = stack.peek();
+            Node right = top.getRight();
+            if (right != null && right != lastVisited) {
+                current = right;
+            } else {
+                lastVisited = stack.pop();
+                return lastVisited;
+            }
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pre-order tree traversal iterator: the node, then its left subtree, then its
+ * right subtree. The nodes to visit are kept on a {@link NodeStack}, so the
+ * iteration allocates nothing per node and the depth of the tree is not
+ * limited by the thread stack.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class PreOrderIterator implements Iterator<Node> {
+
+    private final NodeStack stack = new NodeStack();
+
+    public PreOrderIterator(Node tree) {
+        if (tree != null) {
+            stack.push(tree);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !stack.isEmpty();
+    }
+
+    @Override
+    public Node next() {
+        if (stack.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Node node = stack.pop();
+        //the right child is pushed first, so the left subtree comes first
+        if (node.getRight() != null) {
+            stack.push(node.getRight());
+        }
+        if (node.getLeft() != null) {
+            stack.push(node.getLeft());
+        }
+        return node;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reverse level-order tree traversal iterator: the deepest level first, every
+ * level from left to right. The last level is only known at the end of a
+ * breadth-first traversal, so the constructor collects all nodes into one
+ * array with the start of each level, the iteration itself allocates
+ * nothing.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class ReverseLevelOrderIterator implements Iterator<Node> {
+
+    private Node[] nodes = new Node[16];
+    private int[] levelStarts = new int[16];
+    private int level;
+    private int position;
+    private int levelEnd;
+
+    public ReverseLevelOrderIterator(Node tree) {
+        int count = 0;
+        int levelCount = 0;
+        if (tree != null) {
+            nodes[count++] = tree;
+        }
+        //the nodes array is the breadth-first queue itself
+        int levelStart = 0;
+        while (levelStart < count) {
+            if (levelCount == levelStarts.length) {
+                int[] grown = new int[levelStarts.length * 2];
+                System.arraycopy(levelStarts, 0, grown, 0, levelCount);
+                levelStarts = grown;
+            }
+            levelStarts[levelCount++] = levelStart;
+            int end = count;
+            for (int i = levelStart; i < end; i++) {
+                if (count + 2 > nodes.length) {
+                    Node[] grown = new Node[nodes.length * 2];
+                    System.arraycopy(nodes, 0, grown, 0, count);
+                    nodes = grown;
+                }
+                Node node = nodes[i];
+                if (node.getLeft() != null) {
+                    nodes[count++] = node.getLeft();
+                }
+                if (node.getRight() != null) {
+                    nodes[count++] = node.getRight();
+                }
+            }
+            levelStart = end;
+        }
+        level = levelCount - 1;
+        position = level < 0 ? 0 : levelStarts[level];
+        levelEnd = count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < levelEnd;
+    }
+
+    @Override
+    public Node next() {
+        if (position >= levelEnd) {
+            throw new NoSuchElementException();
+        }
+        Node node = nodes[position];
+        nodes[position++] = null;
+        if (position == levelEnd && level > 0) {
+            //continue with the level above
+            levelEnd = levelStarts[level];
+            level--;
+            position = levelStarts[level];
+        }
+        return node;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring for exactly one producer thread and one consumer
+ * thread. The producer only writes the tail and the consumer only writes the
+ * head, both are published with ordered stores, and each side caches the
+ * last seen position of the other side to touch the shared counter rarely.
+ *
+ * The waiting methods spin with yields for a while, then park in short
+ * rounds. The time spent waiting is added to the stall time of the waiting
+ * side. {@link #close()} releases both sides: after it nothing can be put,
+ * and the elements already in the ring can still be taken.
+ *
+ * @param <E> the type of the elements
+ * @author Richárd Ernő Kiss
+ */
+class SpscRing<E> {
+
+    private static final int SPIN_ROUNDS = 64;
+    private static final long PARK_NANOS = 50000;
+
+    private final Object[] elements;
+    private final int mask;
+    //the position of the next element to take, written by the consumer
+    private final AtomicLong head = new AtomicLong();
+    //the position of the next element to put, written by the producer
+    private final AtomicLong tail = new AtomicLong();
+    private long producerCachedHead = 0;
+    private long consumerCachedTail = 0;
+    private volatile boolean closed = false;
+    private volatile long producerStallNanos = 0;
+    private volatile long consumerStallNanos = 0;
+
+    /**
+     * Constructs a ring with at least the specified capacity, rounded up to a
+     * power of two.
+     *
+     * @param capacity the minimum number of elements
+     */
+    public SpscRing(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.elements = new Object[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds the specified element if the ring is not full. Called by the
+     * producer.
+     *
+     * @param element the element
+     * @return true if the element was added
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        if (position - producerCachedHead == elements.length) {
+            producerCachedHead = head.get();
+            if (position - producerCachedHead == elements.length) {
+                return false;
+            }
+        }
+        elements[(int) position & mask] = element;
+        tail.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * Removes the next element if the ring is not empty. Called by the
+     * consumer.
+     *
+     * @return the element, or null if the ring is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head.get();
+        if (position == consumerCachedTail) {
+            consumerCachedTail = tail.get();
+            if (position == consumerCachedTail) {
+                return null;
+            }
+        }
+        int index = (int) position & mask;
+        E element = (E) elements[index];
+        elements[index] = null;
+        head.lazySet(position + 1);
+        return element;
+    }
+
+    /**
+     * Adds the specified element, waits while the ring is full. Called by the
+     * producer.
+     *
+     * @param element the element
+     * @return true if the element was added, false if the ring was closed
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean put(E element) throws InterruptedException {
+        if (closed) {
+            return false;
+        }
+        if (offer(element)) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            for (int round = 0; !offer(element); round++) {
+                if (closed) {
+                    return false;
+                }
+                backOff(round);
+            }
+            return true;
+        } finally {
+            producerStallNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Removes the next element, waits while the ring is empty. Called by the
+     * consumer.
+     *
+     * @return the element, or null if the ring was closed and is empty
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public E take() throws InterruptedException {
+        E element = poll();
+        if (element != null) {
+            return element;
+        }
+        long start = System.nanoTime();
+        try {
+            for (int round = 0; (element = poll()) == null; round++) {
+                if (closed) {
+                    //an element may have been added before the close
+                    return poll();
+                }
+                backOff(round);
+            }
+            return element;
+        } finally {
+            consumerStallNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Closes the ring, the waiting methods of both sides give up.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Returns the time the producer waited for free space.
+     *
+     * @return the stall time in nanoseconds
+     */
+    public long getProducerStallNanos() {
+        return producerStallNanos;
+    }
+
+    /**
+     * Returns the time the consumer waited for elements.
+     *
+     * @return the stall time in nanoseconds
+     */
+    public long getConsumerStallNanos() {
+        return consumerStallNanos;
+    }
+
+    private static void backOff(int round) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (round < SPIN_ROUNDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+}
@@ -0,0 +1,560 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseTree;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Writes the breadth-first node order of a tree without building the tree.
+ *
+ * The pre-order of the input visits the nodes of every level from left to
+ * right, so the breadth-first order is the nodes of the input grouped by
+ * their depth. The names are collected with their depth into a buffer of
+ * limited size. When the buffer is full, its content is sorted by depth and
+ * spilled to a temporary file as a run. At the end the runs are merged level
+ * by level, each run is read sequentially. The levels of the runs and the
+ * ends of their bytes are kept in a second temporary file and also read
+ * sequentially. If there are more runs than the budget has buffers for, the
+ * neighbouring runs are merged into longer runs first. So the memory use is
+ * bounded by the budget, not by the number of nodes or the depth of the tree.
+ *
+ * The output is the same as {@link Node#save(Writer)} of the loaded tree.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class StreamingBreadthFirstTraversal {
+
+    /**
+     * The default size of the buffers in bytes.
+     */
+    public static final int DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final int RUN_BUFFER_SIZE = 8192;
+    private static final int INDEX_ENTRY_SIZE = 4 + 8;
+    private static final int INDEX_BUFFER_SIZE = 256 * INDEX_ENTRY_SIZE;
+    private static final byte OUTPUT_DELIMETER = ' ';
+
+    private final int memoryBudget;
+    private final Path spillDirectory;
+
+    /**
+     * Constructs a traversal with the default memory budget that spills to
+     * the default temporary directory.
+     */
+    public StreamingBreadthFirstTraversal() {
+        this(DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    /**
+     * Constructs a traversal with the specified memory budget.
+     *
+     * @param memoryBudget the size of the buffers in bytes
+     * @param spillDirectory the directory of the temporary file, or null for
+     * the default temporary directory
+     */
+    public StreamingBreadthFirstTraversal(int memoryBudget, Path spillDirectory) {
+        if (memoryBudget < 64) {
+            throw new IllegalArgumentException("Memory budget is too small: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Parses the input from the specified reader and writes the breadth-first
+     * node order to the specified writer.
+     *
+     * @param input the underlying reader
+     * @param output the underlying writer
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void traverse(Reader input, Writer output) throws IOException, ParseException {
+        traverse(new BinaryTreeLexer(input), output);
+    }
+
+    /**
+     * Parses the specified memory-mapped file and writes the breadth-first
+     * node order to the specified writer.
+     *
+     * @param input the path of the file
+     * @param output the underlying writer
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public void traverse(Path input, Writer output) throws IOException, ParseException {
+        FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+        try {
+            traverse(new MappedFileLexer(channel), output);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void traverse(BinaryTreeLexer lexer, Writer output) throws IOException, ParseException {
+        Spill spill = new Spill();
+        try {
+            parseTree(lexer, spill);
+            spill.writeTo(output);
+        } catch (SpillException e) {
+            throw (IOException) e.getCause();
+        } finally {
+            spill.close();
+            output.flush();
+        }
+    }
+
+    /**
+     * Collects the names by depth and spills them to runs.
+     */
+    private final class Spill implements TreeBuilder {
+
+        private final int maxNodes = memoryBudget / 2 / 8;
+        private final int maxNameBytes = memoryBudget / 2;
+        //each name is stored with a leading delimiter
+        private byte[] names = new byte[INITIAL_CAPACITY];
+        private int namesLength = 0;
+        private int[] levels = new int[INITIAL_CAPACITY];
+        private int[] ends = new int[INITIAL_CAPACITY];
+        private int count = 0;
+        private int[] levelCounts = new int[INITIAL_CAPACITY];
+        private int[] order = new int[INITIAL_CAPACITY];
+
+        private Path path = null;
+        private FileChannel file = null;
+        private long fileLength = 0;
+        private long writePosition = 0;
+        private Path indexPath = null;
+        private FileChannel indexFile = null;
+        private long indexLength = 0;
+        private long indexWritePosition = 0;
+        private final List<Run> runs = new ArrayList<Run>();
+        private final ByteBuffer ioBuffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+        private final ByteBuffer indexBuffer = ByteBuffer.allocate(INDEX_BUFFER_SIZE);
+        //the run being written
+        private long runStart;
+        private long runIndexStart;
+        private int runLevel;
+        private int runLevelCount;
+        private final char[] chars = new char[IO_BUFFER_SIZE];
+        private boolean isFirst = true;
+
+        @Override
+        public int addNode(int parent, boolean isLeftChild, char[] name, int offset, int length) {
+            int level = parent + 1;
+            try {
+                if (count == levels.length && !growNodes()) {
+                    spillRun();
+                }
+                if (names.length - namesLength < length + 1 && !growNames(length + 1)) {
+                    spillRun();
+                    growNames(length + 1);
+                }
+            } catch (IOException e) {
+                throw new SpillException(e);
+            }
+            names[namesLength++] = OUTPUT_DELIMETER;
+            //validated names consist of ASCII characters only
+            for (int i = 0; i < length; i++) {
+                names[namesLength++] = (byte) name[offset + i];
+            }
+            levels[count] = level;
+            ends[count] = namesLength;
+            count++;
+            return level;
+        }
+
+        private boolean growNodes() {
+            if (levels.length >= maxNodes) {
+                return false;
+            }
+            int capacity = Math.min(levels.length * 2, maxNodes);
+            levels = Arrays.copyOf(levels, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            return true;
+        }
+
+        private boolean growNames(int required) {
+            int needed = namesLength + required;
+            if (needed <= names.length) {
+                return true;
+            }
+            if (needed > maxNameBytes && namesLength != 0) {
+                return false;
+            }
+            //a single name may exceed the budget
+            names = Arrays.copyOf(names, Math.max(needed, Math.min(names.length * 2, maxNameBytes)));
+            return true;
+        }
+
+        /**
+         * Sorts the collected nodes by level into {@link #order}, keeps the
+         * pre-order within a level.
+         *
+         * @return the lowest level
+         */
+        private int sortByLevel() {
+            int minLevel = Integer.MAX_VALUE;
+            int maxLevel = 0;
+            for (int i = 0; i < count; i++) {
+                minLevel = Math.min(minLevel, levels[i]);
+                maxLevel = Math.max(maxLevel, levels[i]);
+            }
+            int range = maxLevel - minLevel + 2;
+            if (levelCounts.length < range) {
+                levelCounts = new int[range];
+            } else {
+                Arrays.fill(levelCounts, 0, range, 0);
+            }
+            for (int i = 0; i < count; i++) {
+                levelCounts[levels[i] - minLevel + 1]++;
+            }
+            for (int i = 1; i < range; i++) {
+                levelCounts[i] += levelCounts[i - 1];
+            }
+            if (order.length < count) {
+                order = new int[levels.length];
+            }
+            for (int i = 0; i < count; i++) {
+                order[levelCounts[levels[i] - minLevel]++] = i;
+            }
+            return minLevel;
+        }
+
+        private void spillRun() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            sortByLevel();
+            beginRun();
+            for (int i = 0; i < count; i++) {
+                int node = order[i];
+                int start = node == 0 ? 0 : ends[node - 1];
+                appendToRun(levels[node], names, start, ends[node] - start);
+            }
+            runs.add(endRun());
+            count = 0;
+            namesLength = 0;
+        }
+
+        private void beginRun() throws IOException {
+            if (file == null) {
+                path = createTempFile();
+                file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+                indexPath = createTempFile();
+                indexFile = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            runStart = fileLength;
+            runIndexStart = indexLength;
+            runLevel = -1;
+            runLevelCount = 0;
+        }
+
+        private Path createTempFile() throws IOException {
+            return spillDirectory == null ? Files.createTempFile("tree-traversal", ".spill") : Files.createTempFile(spillDirectory, "tree-traversal", ".spill");
+        }
+
+        /**
+         * Appends names of the specified level to the open run, the levels
+         * must come in ascending order.
+         */
+        private void appendToRun(int level, byte[] bytes, int offset, int length) throws IOException {
+            if (level != runLevel) {
+                if (runLevel >= 0) {
+                    writeIndexEntry(runLevel, fileLength);
+                }
+                runLevel = level;
+                runLevelCount++;
+            }
+            write(bytes, offset, length);
+            fileLength += length;
+        }
+
+        private Run endRun() throws IOException {
+            if (runLevel >= 0) {
+                writeIndexEntry(runLevel, fileLength);
+            }
+            flushBuffer();
+            flushIndex();
+            return new Run(runStart, fileLength, runIndexStart, runLevelCount);
+        }
+
+        private void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!ioBuffer.hasRemaining()) {
+                    flushBuffer();
+                }
+                int part = Math.min(length, ioBuffer.remaining());
+                ioBuffer.put(bytes, offset, part);
+                offset += part;
+                length -= part;
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            ioBuffer.flip();
+            while (ioBuffer.hasRemaining()) {
+                writePosition += file.write(ioBuffer, writePosition);
+            }
+            ioBuffer.clear();
+        }
+
+        private void writeIndexEntry(int level, long end) throws IOException {
+            if (indexBuffer.remaining() < INDEX_ENTRY_SIZE) {
+                flushIndex();
+            }
+            indexBuffer.putInt(level);
+            indexBuffer.putLong(end);
+            indexLength += INDEX_ENTRY_SIZE;
+        }
+
+        private void flushIndex() throws IOException {
+            indexBuffer.flip();
+            while (indexBuffer.hasRemaining()) {
+                indexWritePosition += indexFile.write(indexBuffer, indexWritePosition);
+            }
+            indexBuffer.clear();
+        }
+
+        public void writeTo(Writer output) throws IOException {
+            if (runs.isEmpty()) {
+                //everything fits into the memory
+                sortByLevel();
+                for (int i = 0; i < count; i++) {
+                    int node = order[i];
+                    int start = node == 0 ? 0 : ends[node - 1];
+                    writeNames(names, start, ends[node] - start, output);
+                }
+                return;
+            }
+            spillRun();
+            //the merge buffers take the place of the node buffers
+            names = null;
+            levels = null;
+            ends = null;
+            order = null;
+            int fanIn = Math.max(2, memoryBudget / (RUN_BUFFER_SIZE + INDEX_BUFFER_SIZE));
+            List<Run> current = runs;
+            while (current.size() > fanIn) {
+                //neighbouring runs are merged, so the pre-order of a level stays
+                List<Run> merged = new ArrayList<Run>();
+                for (int i = 0; i < current.size(); i += fanIn) {
+                    List<Run> group = current.subList(i, Math.min(i + fanIn, current.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                    } else {
+                        beginRun();
+                        merge(group, null);
+                        merged.add(endRun());
+                    }
+                }
+                current = merged;
+            }
+            merge(current, output);
+        }
+
+        /**
+         * Merges the specified runs level by level into the output, or into
+         * a new run if the output is null.
+         */
+        private void merge(List<Run> group, Writer output) throws IOException {
+            PriorityQueue<Run> queue = new PriorityQueue<Run>(group.size(), new Comparator<Run>() {
+
+                @Override
+                public int compare(Run a, Run b) {
+                    int level = Integer.compare(a.level, b.level);
+                    return level != 0 ? level : Integer.compare(a.order, b.order);
+                }
+            });
+            for (int i = 0; i < group.size(); i++) {
+                Run run = group.get(i);
+                run.open(i);
+                if (readIndexEntry(run)) {
+                    queue.add(run);
+                }
+            }
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                while (run.position < run.levelEnd) {
+                    if (!run.buffer.hasRemaining()) {
+                        run.buffer.clear();
+                        run.buffer.limit((int) Math.min(run.buffer.capacity(), run.end - run.filePosition));
+                        read(file, run.buffer, run.filePosition);
+                        run.filePosition += run.buffer.position();
+                        run.buffer.flip();
+                    }
+                    int part = (int) Math.min(run.levelEnd - run.position, run.buffer.remaining());
+                    if (output != null) {
+                        writeNames(run.buffer.array(), run.buffer.position(), part, output);
+                    } else {
+                        appendToRun(run.level, run.buffer.array(), run.buffer.position(), part);
+                    }
+                    run.buffer.position(run.buffer.position() + part);
+                    run.position += part;
+                }
+                if (readIndexEntry(run)) {
+                    queue.add(run);
+                } else {
+                    run.close();
+                }
+            }
+        }
+
+        /**
+         * Reads the next level of the specified run from the index file.
+         *
+         * @return false if the run has no more levels
+         */
+        private boolean readIndexEntry(Run run) throws IOException {
+            if (run.levelsRead == run.levelCount) {
+                return false;
+            }
+            if (!run.indexBuffer.hasRemaining()) {
+                run.indexBuffer.clear();
+                run.indexBuffer.limit((int) Math.min(run.indexBuffer.capacity(), (long) (run.levelCount - run.levelsRead) * INDEX_ENTRY_SIZE));
+                read(indexFile, run.indexBuffer, run.indexPosition);
+                run.indexPosition += run.indexBuffer.position();
+                run.indexBuffer.flip();
+            }
+            run.level = run.indexBuffer.getInt();
+            run.levelEnd = run.indexBuffer.getLong();
+            run.levelsRead++;
+            return true;
+        }
+
+        private void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of the spill file");
+                }
+            }
+        }
+
+        private void writeNames(byte[] bytes, int offset, int length, Writer output) throws IOException {
+            if (isFirst && length > 0) {
+                //skip the delimiter before the first name
+                isFirst = false;
+                offset++;
+                length--;
+            }
+            while (length > 0) {
+                int part = Math.min(length, chars.length);
+                for (int i = 0; i < part; i++) {
+                    chars[i] = (char) bytes[offset + i];
+                }
+                output.write(chars, 0, part);
+                offset += part;
+                length -= part;
+            }
+        }
+
+        public void close() throws IOException {
+            try {
+                if (file != null) {
+                    file.close();
+                    Files.deleteIfExists(path);
+                }
+            } finally {
+                if (indexFile != null) {
+                    indexFile.close();
+                    Files.deleteIfExists(indexPath);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A run of the spill file, the bytes of each level are contiguous and the
+     * levels are in ascending order. The level and the end of its bytes are
+     * stored in the index file for each level, only the buffers of the runs
+     * being merged are in memory.
+     */
+    private static final class Run {
+
+        final long start;
+        final long end;
+        final long indexStart;
+        final int levelCount;
+        //merge state
+        int order;
+        int levelsRead;
+        int level;
+        long levelEnd;
+        long position;
+        long filePosition;
+        long indexPosition;
+        ByteBuffer buffer;
+        ByteBuffer indexBuffer;
+
+        Run(long start, long end, long indexStart, int levelCount) {
+            this.start = start;
+            this.end = end;
+            this.indexStart = indexStart;
+            this.levelCount = levelCount;
+        }
+
+        void open(int order) {
+            this.order = order;
+            levelsRead = 0;
+            position = start;
+            filePosition = start;
+            indexPosition = indexStart;
+            buffer = ByteBuffer.allocate(RUN_BUFFER_SIZE);
+            buffer.flip();
+            indexBuffer = ByteBuffer.allocate(INDEX_BUFFER_SIZE);
+            indexBuffer.flip();
+        }
+
+        void close() {
+            buffer = null;
+            indexBuffer = null;
+        }
+
+    }
+
+    /**
+     * Carries an I/O error of the spill file through the parser.
+     */
+    private static final class SpillException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        SpillException(IOException cause) {
+            super(cause);
+        }
+
+    }
+
+}
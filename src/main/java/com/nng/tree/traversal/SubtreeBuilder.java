@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * A {@link TreeBuilder} that also receives the places of the subtrees parsed
+ * separately, see {@link IterativeTreeParser#IterativeTreeParser(SubtreeBuilder, int)}.
+ *
+ * @author Richárd Ernő Kiss
+ */
+interface SubtreeBuilder extends TreeBuilder {
+
+    /**
+     * Marks the place of a subtree that is parsed separately. The subtrees
+     * are passed in pre-order together with the nodes.
+     *
+     * @param parent the handle of the parent node
+     * @param isLeftChild indicates if it is the left or right child of the
+     * parent node
+     */
+    void addSubtree(int parent, boolean isLeftChild);
+
+}
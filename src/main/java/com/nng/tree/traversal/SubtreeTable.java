@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent table of subtrees that returns the same node for structurally
+ * equal subtrees, so the repeated subtrees of a tree are stored only once and
+ * the tree becomes a directed acyclic graph.
+ *
+ * The subtrees must be interned bottom-up: a node is interned after its
+ * children, so its children are already the shared instances. The structural
+ * hash and equality of a node are then computed from its name and the
+ * identity of its children, without walking the subtree, and two interned
+ * subtrees are equal exactly if they are the same instance.
+ *
+ * The table can be shared by the loads of several trees on several threads.
+ * The interned nodes are shared by every occurrence of the subtree, so they
+ * must not be modified.
+ *
+ * The table holds strong references to its subtrees, so a shared table keeps
+ * every tree loaded with it alive. An unbounded table must be cleared with
+ * {@link #clear()} by its owner when the trees are no longer needed. A bounded
+ * table clears itself when it is full; the trees stay correct, only the
+ * subtrees interned after that are not shared with the ones before.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class SubtreeTable {
+
+    private final ConcurrentMap<Key, Node> subtrees = new ConcurrentHashMap<Key, Node>();
+    private final int maxSize;
+
+    /**
+     * Constructs an unbounded table, for the load of one tree or for an owner
+     * that clears it.
+     */
+    public SubtreeTable() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a table that holds at most the specified number of subtrees,
+     * for sharing between the loads of a long-running process.
+     *
+     * @param maxSize the maximum number of subtrees
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public SubtreeTable(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the shared instance of the subtree of the specified node. The
+     * children of the node must already be shared instances.
+     *
+     * @param node the root of the subtree
+     * @return the shared node, which is the specified node if the subtree
+     * occurs for the first time
+     */
+    public Node intern(Node node) {
+        Node shared = subtrees.putIfAbsent(new Key(node.getName(), node.getLeft(), node.getRight()), node);
+        if (shared != null) {
+            return shared;
+        }
+        if (maxSize != Integer.MAX_VALUE && subtrees.size() > maxSize) {
+            subtrees.clear();
+        }
+        return node;
+    }
+
+    /**
+     * Returns the number of distinct subtrees in the table.
+     *
+     * @return the number of subtrees
+     */
+    public int size() {
+        return subtrees.size();
+    }
+
+    /**
+     * Removes all subtrees from the table.
+     */
+    public void clear() {
+        subtrees.clear();
+    }
+
+    /**
+     * The name and the shared children of a subtree.
+     */
+    private static final class Key {
+
+        private final String name;
+        private final Node left;
+        private final Node right;
+        private final int hash;
+
+        Key(String name, Node left, Node right) {
+            this.name = name;
+            this.left = left;
+            this.right = right;
+            this.hash = (name.hashCode() * 31 + System.identityHashCode(left)) * 31 + System.identityHashCode(right);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return left == other.left && right == other.right && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
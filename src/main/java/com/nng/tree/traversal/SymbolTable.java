@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * Bounded table of node names that returns the same string for equal names,
+ * so a tree with a small vocabulary keeps each distinct name only once.
+ *
+ * The table is set-associative: the hash of a name selects a set of
+ * {@link #WAYS} entries, and a full set evicts its least recently used entry.
+ * An evicted name is only stored again when it occurs next, the table never
+ * grows beyond its capacity. Names are looked up directly from the character
+ * buffer of the lexer, a string is only created for a new name.
+ *
+ * Every entry also has an int value that its user can attach to the name, the
+ * value is reset to {@link #NO_VALUE} when the entry is reused.
+ *
+ * A table is not thread-safe, but it can be shared by the sequential loads of
+ * several trees.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class SymbolTable {
+
+    /**
+     * The number of entries in a set.
+     */
+    public static final int WAYS = 4;
+    /**
+     * The default maximum number of names.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    static final int NO_VALUE = -1;
+
+    private final int setMask;
+    private final String[] symbols;
+    private final int[] hashes;
+    private final int[] values;
+    //the time of the last use of each entry, for the eviction
+    private final long[] lastUses;
+    private long clock = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * Constructs a table with the default capacity.
+     */
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a table that holds at most the specified number of names,
+     * rounded up to a power of two.
+     *
+     * @param capacity the maximum number of names
+     */
+    public SymbolTable(int capacity) {
+        int sets = Integer.highestOneBit(Math.max((capacity + WAYS - 1) / WAYS, 1) * 2 - 1);
+        setMask = sets - 1;
+        symbols = new String[sets * WAYS];
+        hashes = new int[sets * WAYS];
+        values = new int[sets * WAYS];
+        lastUses = new long[sets * WAYS];
+    }
+
+    /**
+     * Returns the maximum number of names in the table.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return symbols.length;
+    }
+
+    /**
+     * Returns the number of lookups that found the name in the table.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that had to add the name to the table.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the string of the specified name, the same string for equal
+     * names while the name stays in the table.
+     *
+     * @param chars the array that holds the name
+     * @param offset the offset of the name in the array
+     * @param length the length of the name
+     * @return the name as a string
+     */
+    public String intern(char[] chars, int offset, int length) {
+        return symbols[lookup(chars, offset, length)];
+    }
+
+    /**
+     * Finds the specified name in the table, and adds it if it is missing.
+     *
+     * @param chars the array that holds the name
+     * @param offset the offset of the name in the array
+     * @param length the length of the name
+     * @return the index of the entry of the name, valid until the next lookup
+     */
+    int lookup(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int first = ((hash ^ (hash >>> 16)) & setMask) * WAYS;
+        int victim = first;
+        for (int entry = first; entry < first + WAYS; entry++) {
+            String symbol = symbols[entry];
+            if (symbol == null) {
+                victim = entry;
+                break;
+            }
+            if (hashes[entry] == hash && equals(symbol, chars, offset, length)) {
+                hitCount++;
+                lastUses[entry] = ++clock;
+                return entry;
+            }
+            if (lastUses[entry] < lastUses[victim]) {
+                victim = entry;
+            }
+        }
+        missCount++;
+        symbols[victim] = new String(chars, offset, length);
+        hashes[victim] = hash;
+        values[victim] = NO_VALUE;
+        lastUses[victim] = ++clock;
+        return victim;
+    }
+
+    /**
+     * Returns the value attached to the specified entry.
+     *
+     * @param entry the index of the entry
+     * @return the value, or {@link #NO_VALUE}
+     */
+    int getValue(int entry) {
+        return values[entry];
+    }
+
+    /**
+     * Attaches a value to the specified entry.
+     *
+     * @param entry the index of the entry
+     * @param value the value
+     */
+    void setValue(int entry, int value) {
+        values[entry] = value;
+    }
+
+    private static boolean equals(String symbol, char[] chars, int offset, int length) {
+        if (symbol.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
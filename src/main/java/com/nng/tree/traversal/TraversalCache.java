@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseNodeIteratively;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of breadth-first node orders keyed by the SHA-256 hash of the raw
+ * input, so a byte-identical tree is only parsed and traversed once.
+ *
+ * The first tier is kept in memory and is bounded by the total size of the
+ * stored node orders, the least recently used ones are evicted first. The
+ * optional second tier is a directory with one file per hash. Every new
+ * result is written to it, and a result found only there is promoted to the
+ * memory tier, so the directory keeps the results between runs. The directory
+ * is not trimmed by the cache.
+ *
+ * The cache is thread-safe. The input bytes are taken as ISO-8859-1
+ * characters like in {@link MappedFileLexer}, and the node orders are encoded
+ * like in {@link BinaryTreeNode#save(java.nio.channels.WritableByteChannel)}.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class TraversalCache {
+
+    /**
+     * The default size of the memory tier in bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    //hexadecimal digits of a SHA-256 hash
+    private static final int KEY_LENGTH = 64;
+    private static final int INITIAL_INPUT_SIZE = 8192;
+
+    private final long maxBytes;
+    private final Path directory;
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private long size = 0;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong diskHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Constructs a cache that is kept in memory only.
+     *
+     * @param maxBytes the maximum total size of the stored node orders
+     */
+    public TraversalCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.directory = null;
+    }
+
+    /**
+     * Constructs a cache with a second tier in the specified directory. The
+     * directory is created if it does not exist.
+     *
+     * @param maxBytes the maximum total size of the node orders in memory
+     * @param directory the directory of the second tier
+     * @throws IOException if the directory can not be created
+     */
+    public TraversalCache(long maxBytes, Path directory) throws IOException {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Returns the hash of the specified input, the key of its node order.
+     *
+     * @param input the array that holds the input
+     * @param offset the offset of the input in the array
+     * @param length the length of the input
+     * @return the SHA-256 hash as a hexadecimal string
+     */
+    public static String hash(byte[] input, int offset, int length) {
+        MessageDigest digest = newDigest();
+        digest.update(input, offset, length);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Returns the node order of the tree read from the specified stream. The
+     * input is hashed while it is read, it is only parsed if its node order
+     * is not in the cache.
+     *
+     * @param input the stream of the tree
+     * @return the encoded node order
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public byte[] traverse(InputStream input) throws IOException, ParseException {
+        MessageDigest digest = newDigest();
+        byte[] bytes = new byte[INITIAL_INPUT_SIZE];
+        int length = 0;
+        int count;
+        while ((count = input.read(bytes, length, bytes.length - length)) >= 0) {
+            digest.update(bytes, length, count);
+            length += count;
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+        }
+        return traverse(toHex(digest.digest()), bytes, 0, length);
+    }
+
+    /**
+     * Returns the node order of the tree in the specified bytes.
+     *
+     * @param input the array that holds the input
+     * @param offset the offset of the input in the array
+     * @param length the length of the input
+     * @return the encoded node order
+     * @throws IOException if an I/O error occurs
+     * @throws ParseException if the input contains a syntax error
+     */
+    public byte[] traverse(byte[] input, int offset, int length) throws IOException, ParseException {
+        return traverse(hash(input, offset, length), input, offset, length);
+    }
+
+    /**
+     * Returns the stored node order of the specified key.
+     *
+     * @param key the hash of the input
+     * @return the encoded node order, or null if it is not in the cache
+     * @throws IOException if the second tier can not be read
+     * @throws IllegalArgumentException if the key is not a hash returned by
+     * {@link #hash(byte[], int, int)}
+     */
+    public byte[] get(String key) throws IOException {
+        checkKey(key);
+        synchronized (this) {
+            byte[] output = entries.get(key);
+            if (output != null) {
+                hitCount.incrementAndGet();
+                return output;
+            }
+        }
+        if (directory != null) {
+            try {
+                byte[] output = Files.readAllBytes(directory.resolve(key));
+                diskHitCount.incrementAndGet();
+                store(key, output);
+                return output;
+            } catch (NoSuchFileException ex) {
+                //not in the second tier either
+            }
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the node order of the specified key in both tiers.
+     *
+     * @param key the hash of the input
+     * @param output the encoded node order
+     * @throws IOException if the second tier can not be written
+     * @throws IllegalArgumentException if the key is not a hash returned by
+     * {@link #hash(byte[], int, int)}
+     */
+    public void put(String key, byte[] output) throws IOException {
+        checkKey(key);
+        store(key, output);
+        if (directory != null) {
+            //readers never see a partially written file
+            Path temporary = Files.createTempFile(directory, key, TEMPORARY_SUFFIX);
+            try {
+                Files.write(temporary, output);
+                try {
+                    Files.move(temporary, directory.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(temporary, directory.resolve(key), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of lookups answered from memory.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups answered from the second tier.
+     *
+     * @return the disk hit count
+     */
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups that found nothing.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of node orders in memory.
+     *
+     * @return the entry count
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total size of the node orders in memory.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    private byte[] traverse(String key, byte[] input, int offset, int length) throws IOException, ParseException {
+        byte[] output = get(key);
+        if (output == null) {
+            ByteArrayLexer lexer = new ByteArrayLexer();
+            lexer.reset(input, offset, length);
+            BinaryTreeNode tree = new BinaryTreeNode();
+            parseNodeIteratively(tree, lexer);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(length);
+            tree.save(Channels.newChannel(bytes));
+            output = bytes.toByteArray();
+            put(key, output);
+        }
+        return output;
+    }
+
+    private synchronized void store(String key, byte[] output) {
+        if (output.length > maxBytes) {
+            return;
+        }
+        byte[] previous = entries.put(key, output);
+        size += output.length - (previous == null ? 0 : previous.length);
+        //the iteration order is the access order, the eldest entry comes first
+        Iterator<Map.Entry<String, byte[]>> eldest = entries.entrySet().iterator();
+        while (size > maxBytes) {
+            size -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    //the keys are resolved in the directory, so they must be plain file names
+    private static void checkKey(String key) {
+        if (key.length() != KEY_LENGTH) {
+            throw new IllegalArgumentException("Invalid cache key: " + key);
+        }
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            char c = key.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                throw new IllegalArgumentException("Invalid cache key: " + key);
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            //every Java platform must support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+}
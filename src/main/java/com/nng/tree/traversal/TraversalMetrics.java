@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of the parse, the breadth-first traversal and the save of the
+ * trees.
+ *
+ * The metrics are only collected if the {@link #ENABLED_PROPERTY} system
+ * property is "true" when the class is initialized. The hot paths check the
+ * {@link #ENABLED} flag, which is a static final field, so when the metrics
+ * are disabled the JIT compiler removes the instrumentation entirely. The
+ * counters are kept in local fields while a phase runs and are added to the
+ * shared counters once, when the phase is completed.
+ *
+ * When enabled, the metrics are registered on the platform MBean server and
+ * the completed phases are passed to the {@link TraversalMetricsListener}s.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public final class TraversalMetrics implements TraversalMetricsMXBean {
+
+    /**
+     * The system property that enables the metrics.
+     */
+    public static final String ENABLED_PROPERTY = "com.nng.tree.traversal.metrics";
+    /**
+     * Indicates if the metrics are collected.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+    /**
+     * The name of the metrics on the platform MBean server.
+     */
+    public static final String OBJECT_NAME = "com.nng.tree.traversal:type=TraversalMetrics";
+
+    /**
+     * The phases of the work on a tree.
+     */
+    public enum Phase {
+
+        /**
+         * Parsing the input into a tree.
+         */
+        PARSE,
+        /**
+         * Iterating a tree breadth-first.
+         */
+        TRAVERSAL,
+        /**
+         * Writing the node order of a tree.
+         */
+        SAVE
+
+    }
+
+    //estimated sizes on a 64-bit VM with compressed references
+    private static final int NODE_BYTES = 24;
+    private static final int STRING_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    private static final TraversalMetrics INSTANCE = new TraversalMetrics();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            } catch (JMException ex) {
+                //the metrics are still available through getInstance
+            }
+        }
+    }
+
+    private final List<TraversalMetricsListener> listeners = new CopyOnWriteArrayList<TraversalMetricsListener>();
+    private final AtomicLong nodesParsed = new AtomicLong();
+    private final AtomicLong charactersScanned = new AtomicLong();
+    private final AtomicLong parseTime = new AtomicLong();
+    private final AtomicLong maxDepth = new AtomicLong();
+    private final AtomicLong nodesTraversed = new AtomicLong();
+    private final AtomicLong traversalTime = new AtomicLong();
+    private final AtomicLong maxLevelWidth = new AtomicLong();
+    private final AtomicLong queueHighWaterMark = new AtomicLong();
+    private final AtomicLong nodesSaved = new AtomicLong();
+    private final AtomicLong outputLength = new AtomicLong();
+    private final AtomicLong saveTime = new AtomicLong();
+    private final AtomicLong estimatedAllocation = new AtomicLong();
+
+    private TraversalMetrics() {
+    }
+
+    /**
+     * Returns the metrics of the process.
+     *
+     * @return the metrics
+     */
+    public static TraversalMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Adds a listener of the completed phases.
+     *
+     * @param listener the listener
+     */
+    public void addListener(TraversalMetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener of the completed phases.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(TraversalMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Records a completed parse with the counters of its lexer.
+     *
+     * @param lexer the lexer of the parse
+     * @param elapsedNanos the duration of the parse
+     */
+    void recordParse(BinaryTreeLexer lexer, long elapsedNanos) {
+        recordParse(lexer.getWordCount(), lexer.getCharacterCount(), lexer.getWordCharacterCount(), lexer.getMaxDepth(), elapsedNanos);
+    }
+
+    /**
+     * Records a completed parse.
+     *
+     * @param nodeCount the number of nodes parsed
+     * @param characterCount the number of characters scanned
+     * @param nameCharacterCount the total length of the node names
+     * @param depth the depth of the tree
+     * @param elapsedNanos the duration of the parse
+     */
+    void recordParse(long nodeCount, long characterCount, long nameCharacterCount, int depth, long elapsedNanos) {
+        nodesParsed.addAndGet(nodeCount);
+        charactersScanned.addAndGet(characterCount);
+        parseTime.addAndGet(elapsedNanos);
+        updateMax(maxDepth, depth);
+        estimatedAllocation.addAndGet(nodeCount * (NODE_BYTES + STRING_BYTES + ARRAY_HEADER_BYTES) + 2 * nameCharacterCount);
+        fire(Phase.PARSE, nodeCount, elapsedNanos);
+    }
+
+    /**
+     * Records a completed breadth-first traversal.
+     *
+     * @param nodeCount the number of nodes visited
+     * @param levelWidth the width of the widest level
+     * @param highWaterMark the largest number of queued nodes
+     * @param queueCapacity the final capacity of the queue
+     * @param elapsedNanos the duration of the traversal
+     */
+    void recordTraversal(long nodeCount, int levelWidth, int highWaterMark, int queueCapacity, long elapsedNanos) {
+        nodesTraversed.addAndGet(nodeCount);
+        traversalTime.addAndGet(elapsedNanos);
+        updateMax(maxLevelWidth, levelWidth);
+        updateMax(queueHighWaterMark, highWaterMark);
+        //the queue doubled up to its capacity, the sum of the arrays is about twice the last one
+        estimatedAllocation.addAndGet(2L * (ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * queueCapacity));
+        fire(Phase.TRAVERSAL, nodeCount, elapsedNanos);
+    }
+
+    /**
+     * Records a completed save.
+     *
+     * @param nodeCount the number of names written
+     * @param length the number of characters or bytes written
+     * @param elapsedNanos the duration of the save
+     */
+    void recordSave(long nodeCount, long length, long elapsedNanos) {
+        nodesSaved.addAndGet(nodeCount);
+        outputLength.addAndGet(length);
+        saveTime.addAndGet(elapsedNanos);
+        fire(Phase.SAVE, nodeCount, elapsedNanos);
+    }
+
+    @Override
+    public long getNodesParsed() {
+        return nodesParsed.get();
+    }
+
+    @Override
+    public long getCharactersScanned() {
+        return charactersScanned.get();
+    }
+
+    @Override
+    public long getParseTime() {
+        return parseTime.get();
+    }
+
+    @Override
+    public double getNodesParsedPerSecond() {
+        long time = parseTime.get();
+        return time == 0 ? 0 : nodesParsed.get() * (double) TimeUnit.SECONDS.toNanos(1) / time;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return (int) maxDepth.get();
+    }
+
+    @Override
+    public long getNodesTraversed() {
+        return nodesTraversed.get();
+    }
+
+    @Override
+    public long getTraversalTime() {
+        return traversalTime.get();
+    }
+
+    @Override
+    public int getMaxLevelWidth() {
+        return (int) maxLevelWidth.get();
+    }
+
+    @Override
+    public int getQueueHighWaterMark() {
+        return (int) queueHighWaterMark.get();
+    }
+
+    @Override
+    public long getNodesSaved() {
+        return nodesSaved.get();
+    }
+
+    @Override
+    public long getOutputLength() {
+        return outputLength.get();
+    }
+
+    @Override
+    public long getSaveTime() {
+        return saveTime.get();
+    }
+
+    @Override
+    public long getEstimatedAllocation() {
+        return estimatedAllocation.get();
+    }
+
+    @Override
+    public void reset() {
+        nodesParsed.set(0);
+        charactersScanned.set(0);
+        parseTime.set(0);
+        maxDepth.set(0);
+        nodesTraversed.set(0);
+        traversalTime.set(0);
+        maxLevelWidth.set(0);
+        queueHighWaterMark.set(0);
+        nodesSaved.set(0);
+        outputLength.set(0);
+        saveTime.set(0);
+        estimatedAllocation.set(0);
+    }
+
+    /**
+     * Returns a human-readable summary of the metrics, one phase per line.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Parse: ").append(getNodesParsed()).append(" nodes, ")
+                .append(getCharactersScanned()).append(" characters, max depth ").append(getMaxDepth()).append(", ")
+                .append(toMillis(getParseTime())).append(" ms, ")
+                .append(Math.round(getNodesParsedPerSecond())).append(" nodes/s\n");
+        summary.append("Traversal: ").append(getNodesTraversed()).append(" nodes, max level width ")
+                .append(getMaxLevelWidth()).append(", queue high-water mark ").append(getQueueHighWaterMark()).append(", ")
+                .append(toMillis(getTraversalTime())).append(" ms\n");
+        summary.append("Save: ").append(getNodesSaved()).append(" nodes, output length ")
+                .append(getOutputLength()).append(", ").append(toMillis(getSaveTime())).append(" ms\n");
+        summary.append("Estimated allocation: ").append(getEstimatedAllocation()).append(" bytes\n");
+        return summary.toString();
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            //retry with the new maximum
+        }
+    }
+
+    private void fire(Phase phase, long nodeCount, long elapsedNanos) {
+        for (TraversalMetricsListener listener : listeners) {
+            listener.phaseCompleted(phase, nodeCount, elapsedNanos);
+        }
+    }
+
+}
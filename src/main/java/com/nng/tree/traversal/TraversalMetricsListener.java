@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * Receives the phases recorded by {@link TraversalMetrics}. Called on the
+ * thread that completed the phase, so it should return quickly.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public interface TraversalMetricsListener {
+
+    /**
+     * Called when a parse, a traversal or a save is completed.
+     *
+     * @param phase the completed phase
+     * @param nodeCount the number of nodes processed in the phase
+     * @param elapsedNanos the duration of the phase in nanoseconds
+     */
+    void phaseCompleted(TraversalMetrics.Phase phase, long nodeCount, long elapsedNanos);
+
+}
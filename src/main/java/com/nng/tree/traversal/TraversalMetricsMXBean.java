@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * Management interface of {@link TraversalMetrics}, registered on the
+ * platform MBean server under {@link TraversalMetrics#OBJECT_NAME}. The times
+ * are in nanoseconds.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public interface TraversalMetricsMXBean {
+
+    /**
+     * Returns the number of nodes parsed by the load methods.
+     *
+     * @return the number of nodes
+     */
+    long getNodesParsed();
+
+    /**
+     * Returns the number of input characters scanned by the load methods.
+     *
+     * @return the number of characters
+     */
+    long getCharactersScanned();
+
+    /**
+     * Returns the time spent in the load methods.
+     *
+     * @return the time in nanoseconds
+     */
+    long getParseTime();
+
+    /**
+     * Returns the parse throughput over all loads.
+     *
+     * @return the nodes parsed per second
+     */
+    double getNodesParsedPerSecond();
+
+    /**
+     * Returns the depth of the deepest tree parsed.
+     *
+     * @return the maximum depth
+     */
+    int getMaxDepth();
+
+    /**
+     * Returns the number of nodes visited by breadth-first iterators that
+     * were iterated to the end.
+     *
+     * @return the number of nodes
+     */
+    long getNodesTraversed();
+
+    /**
+     * Returns the time from the creation of the breadth-first iterators to
+     * their last node, including the work of the caller between the nodes.
+     *
+     * @return the time in nanoseconds
+     */
+    long getTraversalTime();
+
+    /**
+     * Returns the width of the widest level traversed.
+     *
+     * @return the maximum level width
+     */
+    int getMaxLevelWidth();
+
+    /**
+     * Returns the largest number of nodes queued by a breadth-first iterator.
+     *
+     * @return the queue high-water mark
+     */
+    int getQueueHighWaterMark();
+
+    /**
+     * Returns the number of node names written by the save methods.
+     *
+     * @return the number of nodes
+     */
+    long getNodesSaved();
+
+    /**
+     * Returns the output length of the save methods, in characters for a
+     * writer and in bytes for a channel.
+     *
+     * @return the output length
+     */
+    long getOutputLength();
+
+    /**
+     * Returns the time spent in the save methods.
+     *
+     * @return the time in nanoseconds
+     */
+    long getSaveTime();
+
+    /**
+     * Returns the estimated number of bytes allocated for the parsed nodes,
+     * their names and the queues of the traversals.
+     *
+     * @return the estimated allocation in bytes
+     */
+    long getEstimatedAllocation();
+
+    /**
+     * Sets all metrics to zero.
+     */
+    void reset();
+
+}
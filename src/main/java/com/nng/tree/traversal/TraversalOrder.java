@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The orders in which the nodes of a tree can be visited. Each order creates
+ * an iterator that keeps its state in reusable arrays instead of recursion,
+ * and can write the node order like {@link Node#save(Writer)}.
+ *
+ * Each order also creates a spliterator for {@link java.util.stream} use.
+ * The breadth-first and depth-first spliterators split the tree into level
+ * slices and subtrees, so parallel streams share out the nodes without
+ * copying them into a list first. The other orders are split by batches of
+ * their iterator.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public enum TraversalOrder {
+
+    /**
+     * The levels from top to bottom, every level from left to right, like
+     * {@link Node#widthIterator()}.
+     */
+    BREADTH_FIRST {
+        @Override
+        public Iterator<Node> iterator(Node tree) {
+            return new BreadthFirstIterator(nonEmpty(tree));
+        }
+
+        @Override
+        public Spliterator<Node> spliterator(Node tree) {
+            return new BreadthFirstSpliterator(nonEmpty(tree), nodeCount(tree));
+        }
+    },
+    /**
+     * The node, then its left subtree, then its right subtree.
+     */
+    PRE_ORDER {
+        @Override
+        public Iterator<Node> iterator(Node tree) {
+            return new PreOrderIterator(nonEmpty(tree));
+        }
+
+        @Override
+        public Spliterator<Node> spliterator(Node tree) {
+            return new DepthFirstSpliterator(this, nonEmpty(tree), nodeCount(tree));
+        }
+    },
+    /**
+     * The left subtree, then the node, then its right subtree.
+     */
+    IN_ORDER {
+        @Override
+        public Iterator<Node> iterator(Node tree) {
+            return new InOrderIterator(nonEmpty(tree));
+        }
+
+        @Override
+        public Spliterator<Node> spliterator(Node tree) {
+            return new DepthFirstSpliterator(this, nonEmpty(tree), nodeCount(tree));
+        }
+    },
+    /**
+     * The left subtree, then the right subtree, then the node.
+     */
+    POST_ORDER {
+        @Override
+        public Iterator<Node> iterator(Node tree) {
+            return new PostOrderIterator(nonEmpty(tree));
+        }
+
+        @Override
+        public Spliterator<Node> spliterator(Node tree) {
+            return new DepthFirstSpliterator(this, nonEmpty(tree), nodeCount(tree));
+        }
+    },
+    /**
+     * The same order as {@link #POST_ORDER}, without a stack. The tree is
+     * modified temporarily during the iteration, so the iteration must run to
+     * the end and the tree must not be used by anything else meanwhile. The
+     * nodes must support {@link Node#setRight(Node)}.
+     */
+    MORRIS_POST_ORDER {
+        @Override
+        public Iterator<Node> iterator(Node tree) {
+            return new MorrisPostOrderIterator(nonEmpty(tree));
+        }
+    },
+    /**
+     * The levels from bottom to top, every level from left to right. All
+     * nodes are collected before the first one is returned.
+     */
+    REVERSE_LEVEL_ORDER {
+        @Override
+        public Iterator<Node> iterator(Node tree) {
+            return new ReverseLevelOrderIterator(nonEmpty(tree));
+        }
+    },
+    /**
+     * The levels from top to bottom, the first level from left to right, then
+     * alternating.
+     */
+    ZIGZAG_LEVEL_ORDER {
+        @Override
+        public Iterator<Node> iterator(Node tree) {
+            return new ZigzagLevelOrderIterator(nonEmpty(tree));
+        }
+    };
+
+    private static final String OUTPUT_DELIMETER = " ";
+
+    /**
+     * Creates the iterator of the specified tree in this order.
+     *
+     * @param tree the root node, or null for an empty tree
+     * @return the iterator
+     */
+    public abstract Iterator<Node> iterator(Node tree);
+
+    /**
+     * Creates the spliterator of the specified tree in this order. The
+     * spliterator is {@link Spliterator#ORDERED}, and also
+     * {@link Spliterator#SIZED} if the tree is an {@link IndexedTree} and
+     * the order supports it.
+     *
+     * @param tree the root node, or null for an empty tree
+     * @return the spliterator
+     */
+    public Spliterator<Node> spliterator(Node tree) {
+        return Spliterators.spliteratorUnknownSize(iterator(tree), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Creates a sequential stream of the nodes of the specified tree in this
+     * order. The stream can be made parallel with
+     * {@link Stream#parallel()}, except in {@link #MORRIS_POST_ORDER} that
+     * modifies the tree.
+     *
+     * @param tree the root node, or null for an empty tree
+     * @return the stream
+     */
+    public Stream<Node> stream(Node tree) {
+        return StreamSupport.stream(spliterator(tree), false);
+    }
+
+    /**
+     * Writes the node order of the specified tree in this order to the
+     * specified writer, in the same format as {@link Node#save(Writer)}.
+     *
+     * @param tree the root node
+     * @param output the underlying writer
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Node tree, Writer output) throws IOException {
+        boolean isFirst = true;
+        try {
+            Iterator<Node> iterator = iterator(tree);
+            while (iterator.hasNext()) {
+                if (!isFirst) {
+                    output.append(OUTPUT_DELIMETER);
+                }
+                isFirst = false;
+                output.append(iterator.next().getName());
+            }
+        } finally {
+            output.flush();
+        }
+    }
+
+    private static Node nonEmpty(Node tree) {
+        return tree instanceof IndexedTree && ((IndexedTree) tree).getNodeCount() == 0 ? null : tree;
+    }
+
+    private static long nodeCount(Node tree) {
+        return tree instanceof IndexedTree ? ((IndexedTree) tree).getNodeCount() : -1;
+    }
+
+}
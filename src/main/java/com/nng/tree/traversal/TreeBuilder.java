@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+/**
+ * Receives the nodes of a tree from {@link IterativeTreeParser} in pre-order.
+ * The nodes are identified by handles chosen by the builder, the parser only
+ * keeps the handles of the nodes under construction.
+ *
+ * @author Richárd Ernő Kiss
+ */
+interface TreeBuilder {
+
+    /**
+     * Adds a node with the specified name to the tree. The characters of the
+     * name are only valid during the call.
+     *
+     * @param parent the handle of the parent node, or -1 for the root node
+     * @param isLeftChild indicates if it is the left or right child of the
+     * parent node
+     * @param name the array that holds the name
+     * @param offset the offset of the name in the array
+     * @param length the length of the name
+     * @return the handle of the new node
+     */
+    int addNode(int parent, boolean isLeftChild, char[] name, int offset, int length);
+
+}
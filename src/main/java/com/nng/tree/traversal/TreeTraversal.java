@@ -17,15 +17,56 @@
 
 package com.nng.tree.traversal;
 
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.ParseException;
 
 /**
  * Parses the input from stdin into a binary tree, then writes the node order of
- * a breadth-first tree traversal to stdout.
+ * a breadth-first tree traversal to stdout. If a file is given as the argument,
+ * it is memory-mapped and parsed instead of stdin.
  * Also validates the input syntax.
+ * <br>
+ * Options:
+ * <br>-stream writes the node order with {@link StreamingBreadthFirstTraversal}
+ * without building the tree in memory
+ * <br>-batch reads one tree per line and writes the node order of each tree
+ * as a line with {@link BatchTraversal}
+ * <br>-threads=&lt;n&gt; the number of worker threads of the batch mode
+ * <br>-inflight=&lt;n&gt; the maximum number of trees in flight in the batch
+ * mode
+ * <br>-binary reads the input file in the {@link BinaryTreeFormat} without
+ * parsing it, the nodes are validated when the file is opened
+ * <br>-convert=&lt;file&gt; parses the input and writes the tree to the
+ * specified file in the {@link BinaryTreeFormat} instead of the node order
+ * <br>-parallel parses the input with a {@link ParallelTreeParser} on all
+ * available processors
+ * <br>-pipeline reads, parses and writes on separate threads with a
+ * {@link PipelinedTraversal}, with -metrics the stall times of the stages are
+ * also printed
+ * <br>-offheap stores the tree outside of the Java heap, in a memory-mapped
+ * temporary file of an {@link OffHeapTree}, so the tree can be larger than
+ * the heap
+ * <br>-metrics collects {@link TraversalMetrics} and prints their summary to
+ * stderr at the end
+ * <br>-cache=&lt;dir&gt; takes the node order of an input that was already
+ * traversed from a {@link TraversalCache} stored in the specified directory,
+ * alone or with -batch
+ * <br>-server=&lt;port&gt; runs a {@link TreeTraversalServer} on the specified
+ * port of the loopback interface until the process is stopped
  * 
  * @author Richárd Ernő Kiss
  */
@@ -34,30 +75,189 @@ public class TreeTraversal {
     /**
      * Application entry point.
      * 
-     * @param args array of string arguemnts
+     * @param args array of string arguemnts, the options and the optional
+     * input file
      * @throws IOException if an I/O error occurs
      * @throws ParseException if the input contains a syntax error
+     * @throws InterruptedException if the server mode is interrupted
      */
-    public static void main(String args[]) throws IOException, ParseException {
+    public static void main(String args[]) throws IOException, ParseException, InterruptedException {
         InputStreamReader stdin = null;
         OutputStreamWriter stdout = null;
-        
+        FileChannel stdoutChannel = null;
+        boolean streaming = false;
+        boolean batch = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxInFlight = 0;
+        int serverPort = -1;
+        boolean binary = false;
+        boolean parallel = false;
+        boolean metrics = false;
+        boolean offHeap = false;
+        boolean pipelined = false;
+        String convertedFile = null;
+        String cacheDirectory = null;
+        String inputFile = null;
+        for (String arg : args) {
+            if ("-stream".equals(arg)) {
+                streaming = true;
+            } else if ("-batch".equals(arg)) {
+                batch = true;
+            } else if (arg.startsWith("-threads=")) {
+                threads = Integer.parseInt(arg.substring("-threads=".length()));
+            } else if ("-metrics".equals(arg)) {
+                metrics = true;
+                //must be set before the metrics class is initialized
+                System.setProperty(TraversalMetrics.ENABLED_PROPERTY, "true");
+            } else if ("-offheap".equals(arg)) {
+                offHeap = true;
+            } else if ("-pipeline".equals(arg)) {
+                pipelined = true;
+            } else if ("-parallel".equals(arg)) {
+                parallel = true;
+            } else if ("-binary".equals(arg)) {
+                binary = true;
+            } else if (arg.startsWith("-convert=")) {
+                convertedFile = arg.substring("-convert=".length());
+            } else if (arg.startsWith("-cache=")) {
+                cacheDirectory = arg.substring("-cache=".length());
+            } else if (arg.startsWith("-server=")) {
+                serverPort = Integer.parseInt(arg.substring("-server=".length()));
+            } else if (arg.startsWith("-inflight=")) {
+                maxInFlight = Integer.parseInt(arg.substring("-inflight=".length()));
+            } else {
+                inputFile = arg;
+            }
+        }
+        if (binary && inputFile == null) {
+            throw new IllegalArgumentException("The -binary option needs an input file");
+        }
+        if (cacheDirectory != null && (streaming || binary || offHeap || convertedFile != null || pipelined || parallel)) {
+            throw new IllegalArgumentException("The -cache option can only be used alone or with -batch");
+        }
+
+        if (serverPort >= 0) {
+            TreeTraversalServer server = new TreeTraversalServer(serverPort);
+            try {
+                server.start();
+                System.out.println("Listening on port " + server.getPort());
+                server.join();
+            } finally {
+                server.close();
+            }
+            System.exit(0);
+        }
+
         try {
-            System.out.println("Waiting for input:");
-            stdin = new InputStreamReader(System.in);
-            Node binaryTree = new BinaryTreeNode();
-            binaryTree.load(stdin);
-            stdout = new OutputStreamWriter(System.out);
-            System.out.println("Breadth-first traversal node order: ");
-            binaryTree.save(stdout);
+            if (inputFile == null) {
+                System.out.println("Waiting for input:");
+                stdin = new InputStreamReader(System.in);
+            }
+            TraversalCache cache = cacheDirectory != null ? new TraversalCache(TraversalCache.DEFAULT_MAX_BYTES, Paths.get(cacheDirectory)) : null;
+            if (batch) {
+                stdout = new OutputStreamWriter(System.out);
+                System.out.println("Breadth-first traversal node order: ");
+                BatchTraversal traversal = new BatchTraversal(threads, maxInFlight > 0 ? maxInFlight : threads * BatchTraversal.DEFAULT_IN_FLIGHT_PER_THREAD, cache);
+                Reader input = stdin != null ? stdin : Files.newBufferedReader(Paths.get(inputFile), Charset.defaultCharset());
+                try {
+                    traversal.traverse(input, new BufferedWriter(stdout, 1 << 16));
+                } finally {
+                    input.close();
+                    traversal.shutdown();
+                }
+            } else if (streaming) {
+                stdout = new OutputStreamWriter(System.out);
+                System.out.println("Breadth-first traversal node order: ");
+                StreamingBreadthFirstTraversal traversal = new StreamingBreadthFirstTraversal();
+                if (stdin != null) {
+                    traversal.traverse(stdin, stdout);
+                } else {
+                    traversal.traverse(Paths.get(inputFile), stdout);
+                }
+            } else if (binary) {
+                MappedTree tree = BinaryTreeFormat.map(Paths.get(inputFile));
+                System.out.println("Breadth-first traversal node order: ");
+                stdoutChannel = new FileOutputStream(FileDescriptor.out).getChannel();
+                tree.save(stdoutChannel);
+            } else if (offHeap) {
+                OffHeapTree tree = new OffHeapTree();
+                try {
+                    if (stdin != null) {
+                        tree.load(stdin);
+                    } else {
+                        tree.load(Paths.get(inputFile));
+                    }
+                    System.out.println("Breadth-first traversal node order: ");
+                    stdoutChannel = new FileOutputStream(FileDescriptor.out).getChannel();
+                    tree.save(stdoutChannel);
+                } finally {
+                    tree.close();
+                }
+            } else if (convertedFile != null) {
+                ColumnarTree tree = new ColumnarTree();
+                if (stdin != null) {
+                    tree.load(stdin);
+                } else {
+                    tree.load(Paths.get(inputFile));
+                }
+                BinaryTreeFormat.write(tree, Paths.get(convertedFile));
+                System.out.println("Tree written to " + convertedFile);
+            } else if (pipelined) {
+                //the input is read as raw bytes, the reader of stdin is not used
+                ReadableByteChannel input = stdin != null ? Channels.newChannel(System.in) : FileChannel.open(Paths.get(inputFile));
+                System.out.println("Breadth-first traversal node order: ");
+                stdoutChannel = new FileOutputStream(FileDescriptor.out).getChannel();
+                PipelinedTraversal traversal = new PipelinedTraversal();
+                try {
+                    traversal.traverse(input, stdoutChannel);
+                } finally {
+                    input.close();
+                }
+                if (metrics) {
+                    System.err.print(traversal.summary());
+                }
+            } else if (cache != null) {
+                //the input is hashed as raw bytes, the reader of stdin is not used
+                InputStream input = stdin != null ? System.in : Files.newInputStream(Paths.get(inputFile));
+                byte[] nodeOrder;
+                try {
+                    nodeOrder = cache.traverse(input);
+                } finally {
+                    input.close();
+                }
+                System.out.println("Breadth-first traversal node order: ");
+                stdoutChannel = new FileOutputStream(FileDescriptor.out).getChannel();
+                ByteBuffer buffer = ByteBuffer.wrap(nodeOrder);
+                while (buffer.hasRemaining()) {
+                    stdoutChannel.write(buffer);
+                }
+            } else {
+                BinaryTreeNode binaryTree = new BinaryTreeNode();
+                ParserMode mode = parallel ? ParserMode.PARALLEL : ParserMode.RECURSIVE;
+                if (stdin != null) {
+                    binaryTree.load(stdin, mode);
+                } else {
+                    binaryTree.load(Paths.get(inputFile), mode);
+                }
+                System.out.println("Breadth-first traversal node order: ");
+                //the header is flushed by println, the names go to the channel of stdout
+                stdoutChannel = new FileOutputStream(FileDescriptor.out).getChannel();
+                binaryTree.save(stdoutChannel);
+            }
         } finally {
             if (stdout != null) {
                 stdout.close();
             }
+            if (stdoutChannel != null) {
+                stdoutChannel.close();
+            }
             if (stdin != null) {
                 stdin.close();
             }
         }
+        if (metrics) {
+            System.err.print(TraversalMetrics.getInstance().summary());
+        }
         System.exit(0);
     }
 
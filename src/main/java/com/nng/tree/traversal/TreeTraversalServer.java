@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import static com.nng.tree.traversal.BinaryTreeInputParser.parseNodeIteratively;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running server that answers breadth-first traversal requests over a
+ * TCP socket on the loopback interface.
+ *
+ * A request is one line with one tree, the answer is one line with the node
+ * order that {@link BinaryTreeNode#save(java.io.Writer)} writes, or the
+ * message of the syntax error. A connection can send any number of requests,
+ * the answers come in request order. Blank lines are ignored.
+ *
+ * Every connection runs on its own thread: a virtual thread if the runtime
+ * has them, otherwise a pooled platform thread. At most
+ * {@link #MAX_VIRTUAL_CONNECTIONS} or {@link #MAX_PLATFORM_CONNECTIONS}
+ * connections are served at a time, the next ones wait in the backlog of the
+ * socket until a connection is closed.
+ *
+ * Only a small read buffer belongs to a connection, the line buffer, the
+ * lexer and the output buffers of a request are borrowed from a shared pool
+ * and returned after the answer, so idle connections cost little memory. The
+ * pool keeps at most {@link #MAX_POOLED_BYTES} of buffers. The line buffers
+ * of all requests, in use or pooled, grow within a shared budget of
+ * {@link #MAX_BUFFERED_REQUEST_BYTES}; a request that does not fit while the
+ * others hold the budget is answered with an error, so the memory of the
+ * server does not grow with the number of large requests.
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class TreeTraversalServer implements Closeable {
+
+    /**
+     * The maximum size of a request line in bytes.
+     */
+    public static final int MAX_REQUEST_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The maximum number of connections served at a time on virtual threads.
+     */
+    public static final int MAX_VIRTUAL_CONNECTIONS = 65536;
+    /**
+     * The maximum number of connections served at a time when the runtime has
+     * no virtual threads, one platform thread each.
+     */
+    public static final int MAX_PLATFORM_CONNECTIONS = 256;
+    /**
+     * The maximum total size of the buffers kept in the pool in bytes.
+     */
+    public static final long MAX_POOLED_BYTES = 16 * 1024 * 1024;
+    /**
+     * The maximum total size of the line buffers in bytes, enough for several
+     * requests of the maximum size.
+     */
+    public static final int MAX_BUFFERED_REQUEST_BYTES = 4 * MAX_REQUEST_SIZE;
+
+    private static final int BACKLOG = 1024;
+    private static final int CONNECTION_BUFFER_SIZE = 512;
+    private static final int INITIAL_LINE_SIZE = 256;
+    //contexts whose buffers grew larger are not pooled
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final Semaphore connectionPermits;
+    private final Semaphore requestBytes = new Semaphore(MAX_BUFFERED_REQUEST_BYTES);
+    private final Queue<RequestContext> contexts = new ConcurrentLinkedQueue<RequestContext>();
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final Set<Socket> connections = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private final Thread acceptor;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs a server that listens on the specified port of the loopback
+     * interface. The server starts to accept connections with
+     * {@link #start()}.
+     *
+     * @param port the port, or 0 for any free port
+     * @throws IOException if the port can not be bound
+     */
+    public TreeTraversalServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.executor = newConnectionExecutor();
+        this.connectionPermits = new Semaphore(executor instanceof ThreadPoolExecutor ? MAX_PLATFORM_CONNECTIONS : MAX_VIRTUAL_CONNECTIONS);
+        this.acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "tree-traversal-acceptor");
+    }
+
+    /**
+     * Creates the executor that runs one task per connection: a virtual
+     * thread per task executor if the runtime has one, otherwise a cached
+     * thread pool, whose threads are limited by the connection permits.
+     *
+     * @return the executor
+     */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException ex) {
+            //no virtual threads before Java 21
+        } catch (IllegalAccessException ex) {
+            //fall back to platform threads
+        } catch (InvocationTargetException ex) {
+            //fall back to platform threads
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Starts to accept connections on a separate thread.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Waits until the server is closed.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stops accepting connections and closes the open connections.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            serverSocket.close();
+        } finally {
+            for (Socket connection : connections) {
+                connection.close();
+            }
+            executor.shutdown();
+        }
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            //close() closes the served connections, which gives the permits back
+            connectionPermits.acquireUninterruptibly();
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException ex) {
+                connectionPermits.release();
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            connections.add(socket);
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            serve(socket);
+                        } finally {
+                            connectionPermits.release();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                //the server is closed
+                connectionPermits.release();
+                connections.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream input = new BufferedInputStream(socket.getInputStream(), CONNECTION_BUFFER_SIZE);
+            OutputStream output = socket.getOutputStream();
+            int first;
+            while ((first = input.read()) >= 0) {
+                RequestContext context = borrowContext();
+                try {
+                    context.readLine(first, input);
+                    context.answer(output);
+                } finally {
+                    releaseContext(context);
+                }
+            }
+        } catch (IOException ex) {
+            //the client went away, nothing to answer
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            //already closed
+        }
+    }
+
+    private RequestContext borrowContext() {
+        RequestContext context = contexts.poll();
+        if (context == null) {
+            return new RequestContext();
+        }
+        pooledBytes.addAndGet(-context.pooledSize);
+        return context;
+    }
+
+    private void releaseContext(RequestContext context) {
+        context.response.reset();
+        if (context.line.length <= MAX_POOLED_BUFFER_SIZE && context.response.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+            long size = context.retainedBytes();
+            if (pooledBytes.addAndGet(size) <= MAX_POOLED_BYTES) {
+                context.pooledSize = size;
+                contexts.offer(context);
+                return;
+            }
+            pooledBytes.addAndGet(-size);
+        }
+        //the grown line buffer of a dropped context goes back to the budget
+        requestBytes.release(context.line.length - INITIAL_LINE_SIZE);
+    }
+
+    /**
+     * The buffers of a request, reused by the later requests.
+     */
+    private class RequestContext {
+
+        private byte[] line = new byte[INITIAL_LINE_SIZE];
+        private int lineLength = 0;
+        private String error = null;
+        private long pooledSize = 0;
+        private final ByteArrayLexer lexer = new ByteArrayLexer();
+        private final ResponseBuffer response = new ResponseBuffer();
+        private final Writer responseWriter = new OutputStreamWriter(response, StandardCharsets.UTF_8);
+
+        /**
+         * Reads a request line without the line end.
+         */
+        void readLine(int first, InputStream input) throws IOException {
+            lineLength = 0;
+            error = null;
+            int b = first;
+            while (b >= 0 && b != '\n') {
+                if (lineLength == line.length) {
+                    if (error == null) {
+                        error = grow();
+                    }
+                    if (error != null) {
+                        //skip the rest of the line, only the error is answered
+                        lineLength = 0;
+                    }
+                }
+                line[lineLength++] = (byte) b;
+                b = input.read();
+            }
+            if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                lineLength--;
+            }
+        }
+
+        /**
+         * Doubles the line buffer within the budget of the server.
+         *
+         * @return the error message, or null if the buffer has grown
+         */
+        private String grow() {
+            if (line.length >= MAX_REQUEST_SIZE) {
+                return "Request exceeds the maximum size of " + MAX_REQUEST_SIZE + " bytes";
+            }
+            int length = Math.min(line.length * 2, MAX_REQUEST_SIZE);
+            if (!requestBytes.tryAcquire(length - line.length)) {
+                return "Request can not be buffered, the server is busy";
+            }
+            line = Arrays.copyOf(line, length);
+            return null;
+        }
+
+        /**
+         * Returns the number of bytes held by the buffers of the context.
+         */
+        long retainedBytes() {
+            return line.length + response.capacity() + 2L * lexer.getWordBufferSize();
+        }
+
+        /**
+         * Parses and traverses the tree of the request line and writes the
+         * answer line.
+         */
+        void answer(OutputStream output) throws IOException {
+            if (error != null) {
+                responseWriter.write(error);
+                responseWriter.flush();
+            } else {
+                if (isBlank()) {
+                    return;
+                }
+                lexer.reset(line, 0, lineLength);
+                BinaryTreeNode tree = new BinaryTreeNode();
+                try {
+                    parseNodeIteratively(tree, lexer);
+                    tree.save(responseWriter);
+                } catch (ParseException ex) {
+                    responseWriter.write(ex.getMessage());
+                    responseWriter.flush();
+                }
+            }
+            response.write('\n');
+            response.writeTo(output);
+            output.flush();
+        }
+
+        private boolean isBlank() {
+            for (int i = 0; i < lineLength; i++) {
+                if ((line[i] & 0xff) > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Output buffer that tells the size of its array.
+     */
+    private static class ResponseBuffer extends ByteArrayOutputStream {
+
+        ResponseBuffer() {
+            super(INITIAL_LINE_SIZE);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Zig-zag level-order tree traversal iterator: the levels from top to
+ * bottom, the even levels from left to right, the odd levels from right to
+ * left. The current level and the next level are kept on two
+ * {@link NodeStack}s, popping the current level reverses the order of its
+ * children on the next one, so the iteration allocates nothing per node.
+ *
+ * @author Richárd Ernő Kiss
+ */
+class ZigzagLevelOrderIterator implements Iterator<Node> {
+
+    private NodeStack currentLevel = new NodeStack();
+    private NodeStack nextLevel = new NodeStack();
+    private boolean isLeftToRight = true;
+
+    public ZigzagLevelOrderIterator(Node tree) {
+        if (tree != null) {
+            currentLevel.push(tree);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !currentLevel.isEmpty();
+    }
+
+    @Override
+    public Node next() {
+        if (currentLevel.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Node node = currentLevel.pop();
+        //the child pushed last comes first on the next level
+        Node first = isLeftToRight ? node.getLeft() : node.getRight();
+        Node second = isLeftToRight ? node.getRight() : node.getLeft();
+        if (first != null) {
+            nextLevel.push(first);
+        }
+        if (second != null) {
+            nextLevel.push(second);
+        }
+        if (currentLevel.isEmpty()) {
+            NodeStack visited = currentLevel;
+            currentLevel = nextLevel;
+            nextLevel = visited;
+            isLeftToRight = !isLeftToRight;
+        }
+        return node;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class BatchTraversalTest {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    public BatchTraversalTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of traverse method, of class BatchTraversal. The results must be
+     * written in input order with any number of threads and documents in
+     * flight.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverse() throws Exception {
+        Random random = new Random(42);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            if (i % 50 == 7) {
+                input.append("(root,(1L,,),)\n");
+                expected.append("Syntax error, node name can not start with a number: 1L").append(LINE_SEPARATOR);
+                continue;
+            }
+            Node tree = TestTrees.randomTree(1 + random.nextInt(2000), random);
+            input.append(TestTrees.toText(tree)).append(i % 2 == 0 ? "\n" : "\r\n");
+            StringWriter output = new StringWriter();
+            tree.save(output);
+            expected.append(output).append(LINE_SEPARATOR);
+        }
+        int[][] configurations = {{1, 1}, {4, 1}, {4, 3}, {3, 1000}};
+        for (int[] configuration : configurations) {
+            BatchTraversal traversal = new BatchTraversal(configuration[0], configuration[1]);
+            try {
+                StringWriter output = new StringWriter();
+                traversal.traverse(new StringReader(input.toString()), output);
+                assertEquals(expected.toString(), output.toString());
+            } finally {
+                traversal.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Test of traverse method with blank lines, of class BatchTraversal.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverseBlankLines() throws Exception {
+        BatchTraversal traversal = new BatchTraversal(2);
+        try {
+            StringWriter output = new StringWriter();
+            traversal.traverse(new StringReader("\n(a,(b,,),(c,,))\n  \n\n(d,,)"), output);
+            assertEquals("a b c" + LINE_SEPARATOR + "d" + LINE_SEPARATOR, output.toString());
+        } finally {
+            traversal.shutdown();
+        }
+    }
+
+}
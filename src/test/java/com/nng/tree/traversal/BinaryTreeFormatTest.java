@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.text.ParseException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class BinaryTreeFormatTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    public BinaryTreeFormatTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of write and map methods, of class BinaryTreeFormat. The mapped
+     * tree must have the same structure as the written one.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteAndMap() throws Exception {
+        ColumnarTree expected = new ColumnarTree();
+        expected.load(new StringReader("(root,(L1,   (L1L2    ,,(L1L2R3,   ,)),(L1R2,,)),(R1,    ,(R1R2,(R1R2L3,,    ),)))"));
+        File file = temporaryFolder.newFile("tree.bin");
+        BinaryTreeFormat.write(expected, file.toPath());
+        MappedTree instance = BinaryTreeFormat.map(file.toPath());
+        assertEquals(expected.getNodeCount(), instance.getNodeCount());
+        for (int i = 0; i < expected.getNodeCount(); i++) {
+            assertEquals(expected.getLeft(i), instance.getLeft(i));
+            assertEquals(expected.getRight(i), instance.getRight(i));
+            assertEquals(expected.getName(i), instance.getName(i));
+        }
+        StringWriter output = new StringWriter();
+        instance.save(output);
+        assertEquals("root L1 R1 L1L2 L1R2 R1R2 L1L2R3 R1R2L3", output.toString());
+        output = new StringWriter();
+        instance.getRight().save(output);
+        assertEquals("R1 R1R2 R1R2L3", output.toString());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        instance.save(Channels.newChannel(bytes));
+        assertEquals("root L1 R1 L1L2 L1R2 R1R2 L1L2R3 R1R2L3", bytes.toString());
+    }
+
+    /**
+     * Test of write method with trees of node objects, of class
+     * BinaryTreeFormat.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteNodes() throws Exception {
+        BinaryTreeNode deepTree = new BinaryTreeNode();
+        deepTree.load(new StringReader(TestTrees.leftChain(100000)), ParserMode.ITERATIVE);
+        Node[] trees = {TestTrees.randomTree(10000, new Random(42)), deepTree};
+        for (Node tree : trees) {
+            File file = temporaryFolder.newFile();
+            BinaryTreeFormat.write(tree, file.toPath());
+            StringWriter expected = new StringWriter();
+            tree.save(expected);
+            StringWriter output = new StringWriter();
+            BinaryTreeFormat.map(file.toPath()).save(output);
+            assertEquals(expected.toString(), output.toString());
+        }
+    }
+
+    /**
+     * Test of map method with a truncated file, of class BinaryTreeFormat.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMapTruncated() throws Exception {
+        ColumnarTree tree = new ColumnarTree();
+        tree.load(new StringReader("(root,(L1,,),)"));
+        File file = temporaryFolder.newFile("tree.bin");
+        BinaryTreeFormat.write(tree, file.toPath());
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(file.length() - 1);
+        } finally {
+            randomAccessFile.close();
+        }
+        exception.expect(IOException.class);
+        exception.expectMessage("Corrupt tree file");
+        BinaryTreeFormat.map(file.toPath());
+    }
+
+    /**
+     * Test of map method with a text file, of class BinaryTreeFormat.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMapText() throws Exception {
+        File file = temporaryFolder.newFile("tree.txt");
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.writeBytes("(root,(L1,,),(R1,,))");
+        } finally {
+            randomAccessFile.close();
+        }
+        exception.expect(IOException.class);
+        exception.expectMessage("Not a tree file");
+        BinaryTreeFormat.map(file.toPath());
+    }
+
+    /**
+     * Test of map method with a child index that points back to its parent,
+     * of class BinaryTreeFormat.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMapCycle() throws Exception {
+        File file = writeCorruptInt("cycle.bin", BinaryTreeFormat.HEADER_SIZE + 4, 0);
+        exception.expect(IOException.class);
+        exception.expectMessage("invalid left child of node 1: 0");
+        BinaryTreeFormat.map(file.toPath());
+    }
+
+    /**
+     * Test of map method with a child index past the last node, of class
+     * BinaryTreeFormat.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMapChildOutOfRange() throws Exception {
+        File file = writeCorruptInt("range.bin", BinaryTreeFormat.HEADER_SIZE, 3);
+        exception.expect(IOException.class);
+        exception.expectMessage("invalid left child of node 0: 3");
+        BinaryTreeFormat.map(file.toPath());
+    }
+
+    /**
+     * Test of map method with a node that is the child of two nodes, of class
+     * BinaryTreeFormat.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMapSharedChild() throws Exception {
+        File file = writeCorruptInt("shared.bin", BinaryTreeFormat.HEADER_SIZE + 4, 2);
+        exception.expect(IOException.class);
+        exception.expectMessage("node 2 has more than one parent");
+        BinaryTreeFormat.map(file.toPath());
+    }
+
+    /**
+     * Test of map method with a node that is not the child of any node, of
+     * class BinaryTreeFormat.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMapOrphan() throws Exception {
+        File file = writeCorruptInt("orphan.bin", BinaryTreeFormat.HEADER_SIZE + 3 * 4, -1);
+        exception.expect(IOException.class);
+        exception.expectMessage("node 2 has no parent");
+        BinaryTreeFormat.map(file.toPath());
+    }
+
+    /**
+     * Test of map method with a name offset past the name pool, of class
+     * BinaryTreeFormat.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMapNameOutOfRange() throws Exception {
+        File file = writeCorruptInt("name.bin", BinaryTreeFormat.HEADER_SIZE + 6 * 4 + 4, 1000);
+        exception.expect(IOException.class);
+        exception.expectMessage("invalid name of node 1 at offset 1000");
+        BinaryTreeFormat.map(file.toPath());
+    }
+
+    /**
+     * Test of map method without validation, of class BinaryTreeFormat. A
+     * corrupt node is only found when it is visited.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMapNotValidated() throws Exception {
+        File file = writeCorruptInt("trusted.bin", BinaryTreeFormat.HEADER_SIZE + 6 * 4 + 4, 1000);
+        MappedTree instance = BinaryTreeFormat.map(file.toPath(), false);
+        assertEquals(3, instance.getNodeCount());
+        assertEquals("root", instance.getName(0));
+        exception.expect(IndexOutOfBoundsException.class);
+        instance.getName(1);
+    }
+
+    private File writeCorruptInt(String fileName, long position, int value) throws IOException, ParseException {
+        ColumnarTree tree = new ColumnarTree();
+        tree.load(new StringReader("(root,(L1,,),(R1,,))"));
+        File file = temporaryFolder.newFile(fileName);
+        BinaryTreeFormat.write(tree, file.toPath());
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(position);
+            randomAccessFile.writeInt(Integer.reverseBytes(value));
+        } finally {
+            randomAccessFile.close();
+        }
+        return file;
+    }
+
+}
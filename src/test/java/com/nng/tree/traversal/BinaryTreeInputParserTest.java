@@ -20,12 +20,6 @@ package com.nng.tree.traversal;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PushbackReader;
-import java.io.Reader;
-import java.io.StreamTokenizer;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import org.junit.After;
 import org.junit.AfterClass;
 import static org.junit.Assert.*;
@@ -59,19 +53,19 @@ public class BinaryTreeInputParserTest {
     }
 
     /**
-     * Test of createConfiguredStreamTokenizer method, of class BinaryTreeInputParser.
+     * Test of parseNode method, of class BinaryTreeInputParser.
      *
-     * @throws java.io.IOException
+     * @throws java.lang.Exception
      */
     @Test
-    public void testCreateConfiguredStreamTokenizer() throws IOException {
-        Reader input = new InputStreamReader(new ByteArrayInputStream("(R1R2L3   ,,  )".getBytes()));
-        StreamTokenizer st = BinaryTreeInputParser.createConfiguredStreamTokenizer(input);
-        List<String> result = new ArrayList();
-        while (st.nextToken() != StreamTokenizer.TT_EOF) {
-            result.add(BinaryTreeInputParser.currentTokenToString(st));
-        }
-        assertEquals(Arrays.asList("(", "R1R2L3", ",", ",", ")"), result);
+    public void testParseNode() throws Exception {
+        Node currentNode = new BinaryTreeNode();
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new InputStreamReader(new ByteArrayInputStream("(root,(L1,,),)".getBytes())));
+        BinaryTreeInputParser.parseNode(currentNode, lexer);
+        assertEquals("root", currentNode.getName());
+        assertEquals("L1", currentNode.getLeft().getName());
+        assertNull(currentNode.getRight());
+        assertEquals(BinaryTreeLexer.TT_EOF, lexer.nextToken());
     }
 
     /**
@@ -82,8 +76,8 @@ public class BinaryTreeInputParserTest {
     @Test
     public void testParseNodeName() throws Exception {
         Node currentNode = new BinaryTreeNode();
-        StreamTokenizer st = new StreamTokenizer(new InputStreamReader(new ByteArrayInputStream("(root,".getBytes())));
-        BinaryTreeInputParser.parseNodeName(currentNode, st);
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new InputStreamReader(new ByteArrayInputStream("(root,".getBytes())));
+        BinaryTreeInputParser.parseNodeName(currentNode, lexer);
         assertEquals("Node name must be \"root\"", "root", currentNode.getName());
     }
 
@@ -103,40 +97,36 @@ public class BinaryTreeInputParserTest {
     public void testParseChildNodeLeft() throws Exception {
         Node parentNode = new BinaryTreeNode();
         InputStreamReader isr = new InputStreamReader(new ByteArrayInputStream("(L1,,),".getBytes()));
-        PushbackReader pr = new PushbackReader(isr);
-        StreamTokenizer st = new StreamTokenizer(pr);
-        Boolean isFirstChild = true;
-        BinaryTreeInputParser.parseChildNode(parentNode, st, pr, isFirstChild);
+        BinaryTreeLexer lexer = new BinaryTreeLexer(isr);
+        boolean isFirstChild = true;
+        BinaryTreeInputParser.parseChildNode(parentNode, lexer, isFirstChild);
         assertEquals("Left child name must be \"L1\"", "L1", parentNode.getLeft().getName());
     }
 
     public void testParseChildNodeLeftEmpty() throws Exception {
         Node parentNode = new BinaryTreeNode();
         InputStreamReader isr = new InputStreamReader(new ByteArrayInputStream(",".getBytes()));
-        PushbackReader pr = new PushbackReader(isr);
-        StreamTokenizer st = new StreamTokenizer(pr);
-        Boolean isFirstChild = true;
-        BinaryTreeInputParser.parseChildNode(parentNode, st, pr, isFirstChild);
+        BinaryTreeLexer lexer = new BinaryTreeLexer(isr);
+        boolean isFirstChild = true;
+        BinaryTreeInputParser.parseChildNode(parentNode, lexer, isFirstChild);
         assertNull("Left child must be 'null'", parentNode.getLeft());
     }
 
     public void testParseChildNodeRight() throws Exception {
         Node parentNode = new BinaryTreeNode();
         InputStreamReader isr = new InputStreamReader(new ByteArrayInputStream("(R1,,))".getBytes()));
-        PushbackReader pr = new PushbackReader(isr);
-        StreamTokenizer st = new StreamTokenizer(pr);
-        Boolean isFirstChild = false;
-        BinaryTreeInputParser.parseChildNode(parentNode, st, pr, isFirstChild);
+        BinaryTreeLexer lexer = new BinaryTreeLexer(isr);
+        boolean isFirstChild = false;
+        BinaryTreeInputParser.parseChildNode(parentNode, lexer, isFirstChild);
         assertEquals("Right child name must be be \"R1\"", "R1", parentNode.getRight().getName());
     }
 
     public void testParseChildNodeRightEmpty() throws Exception {
         Node parentNode = new BinaryTreeNode();
         InputStreamReader isr = new InputStreamReader(new ByteArrayInputStream(")".getBytes()));
-        PushbackReader pr = new PushbackReader(isr);
-        StreamTokenizer st = new StreamTokenizer(pr);
-        Boolean isFirstChild = false;
-        BinaryTreeInputParser.parseChildNode(parentNode, st, pr, isFirstChild);
+        BinaryTreeLexer lexer = new BinaryTreeLexer(isr);
+        boolean isFirstChild = false;
+        BinaryTreeInputParser.parseChildNode(parentNode, lexer, isFirstChild);
         assertNull("Right child must be 'null'", parentNode.getRight());
     }
 
@@ -150,9 +140,9 @@ public class BinaryTreeInputParserTest {
          //( -> 40
          //) -> 41
          //, -> 44
-        StreamTokenizer st = new StreamTokenizer(new InputStreamReader(new ByteArrayInputStream(",".getBytes())));
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new InputStreamReader(new ByteArrayInputStream(",".getBytes())));
         int expectedToken = 44;
-        BinaryTreeInputParser.checkNextToken(st, expectedToken);
+        BinaryTreeInputParser.checkNextToken(lexer, expectedToken);
     }
 
     /**
@@ -164,21 +154,30 @@ public class BinaryTreeInputParserTest {
     public void testCurrentTokenToString() throws IOException {
         testCurrentWordTokenToString();
         testCurrentCharTokenToString();
+        testCurrentEndOfLineTokenToString();
     }
 
     public void testCurrentWordTokenToString() throws IOException {
-        StreamTokenizer st = new StreamTokenizer(new InputStreamReader(new ByteArrayInputStream("test".getBytes())));
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new InputStreamReader(new ByteArrayInputStream("test".getBytes())));
         String expResult = "test";
-        st.nextToken();
-        String result = BinaryTreeInputParser.currentTokenToString(st);
+        lexer.nextToken();
+        String result = BinaryTreeInputParser.currentTokenToString(lexer);
         assertEquals(expResult, result);
     }
 
     public void testCurrentCharTokenToString() throws IOException {
-        StreamTokenizer st = new StreamTokenizer(new InputStreamReader(new ByteArrayInputStream(",".getBytes())));
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new InputStreamReader(new ByteArrayInputStream(",".getBytes())));
         String expResult = ",";
-        st.nextToken();
-        String result = BinaryTreeInputParser.currentTokenToString(st);
+        lexer.nextToken();
+        String result = BinaryTreeInputParser.currentTokenToString(lexer);
+        assertEquals(expResult, result);
+    }
+
+    public void testCurrentEndOfLineTokenToString() throws IOException {
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new InputStreamReader(new ByteArrayInputStream("\r\n".getBytes())));
+        String expResult = "EndOfLine";
+        lexer.nextToken();
+        String result = BinaryTreeInputParser.currentTokenToString(lexer);
         assertEquals(expResult, result);
     }
 
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.StreamTokenizer;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class BinaryTreeLexerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public BinaryTreeLexerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of nextToken method, of class BinaryTreeLexer.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testNextToken() throws IOException {
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new StringReader("(R1R2L3   ,,  )"));
+        assertEquals(Arrays.asList("(", "R1R2L3", ",", ",", ")"), tokens(lexer));
+    }
+
+    /**
+     * Test of nextToken method with words that do not fit into the buffer.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testNextTokenAcrossBuffer() throws IOException {
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new StringReader("(root,(L1L2L3L4L5,,),\r\n)"), 4);
+        assertEquals(Arrays.asList("(", "root", ",", "(", "L1L2L3L4L5", ",", ",", ")", ",", "EndOfLine", ")"), tokens(lexer));
+    }
+
+    /**
+     * Test of pushBack method, of class BinaryTreeLexer.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testPushBack() throws IOException {
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new StringReader("root,"));
+        assertEquals(BinaryTreeLexer.TT_WORD, lexer.nextToken());
+        lexer.pushBack();
+        assertEquals(BinaryTreeLexer.TT_WORD, lexer.nextToken());
+        assertEquals("root", lexer.getWord());
+        assertEquals(',', lexer.nextToken());
+        assertEquals(BinaryTreeLexer.TT_EOF, lexer.nextToken());
+    }
+
+    /**
+     * The lexer must split the input into the same tokens as the previously
+     * used stream tokenizer configuration.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testSameTokensAsStreamTokenizer() throws IOException {
+        String[] inputs = {
+            "(root,(L1,   (L1L2    ,,(L1L2R3,   ,)),(L1R2,,)),(R1,    ,(R1R2,(R1R2L3,,    ),)))",
+            "(1L,-2.5,)\r\n\r(a\n,b)",
+            "(root/comment (,,)\n,,)",
+            "(\"quoted \\\" name\",'single\nquote',)",
+            "(árvíztűrő,\u0080\u007f,٣x)",
+            "\t(x\u0000y,\r",};
+        for (String input : inputs) {
+            for (int bufferSize = 1; bufferSize <= 8; bufferSize++) {
+                StreamTokenizer streamTokenizer = createStreamTokenizer(new StringReader(input));
+                List<String> expected = new ArrayList<String>();
+                while (streamTokenizer.nextToken() != StreamTokenizer.TT_EOF) {
+                    expected.add(streamTokenizer.ttype == StreamTokenizer.TT_WORD ? streamTokenizer.sval : Integer.toString(streamTokenizer.ttype));
+                }
+                BinaryTreeLexer lexer = new BinaryTreeLexer(new StringReader(input), bufferSize);
+                List<String> result = new ArrayList<String>();
+                while (lexer.nextToken() != BinaryTreeLexer.TT_EOF) {
+                    result.add(lexer.getTokenType() == BinaryTreeLexer.TT_WORD ? lexer.getWord() : Integer.toString(lexer.getTokenType()));
+                }
+                assertEquals(input, expected, result);
+            }
+        }
+    }
+
+    /**
+     * Test of isNodeName method, of class BinaryTreeLexer. Must accept the
+     * same words as the formerly used node name pattern.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testIsNodeName() throws IOException {
+        Pattern nodeNamePattern = Pattern.compile("^[a-zA-z]{1}[0-9a-zA-z]*");
+        String input = "a Z0 root L1L2L3 1L 123 x\u00e1 \u00e1x \u0663x x\u0663 Lx9Lx9Lx9Lx9";
+        for (int bufferSize = 1; bufferSize <= 8; bufferSize++) {
+            BinaryTreeLexer lexer = new BinaryTreeLexer(new StringReader(input), bufferSize);
+            int words = 0;
+            while (lexer.nextToken() != BinaryTreeLexer.TT_EOF) {
+                assertEquals(lexer.getWord(), nodeNamePattern.matcher(lexer.getWord()).matches(), lexer.isNodeName());
+                words++;
+            }
+            assertEquals(11, words);
+        }
+        BinaryTreeLexer lexer = new BinaryTreeLexer(new StringReader("_"));
+        lexer.nextToken();
+        assertFalse(lexer.isNodeName());
+    }
+
+    /**
+     * Test of nextToken method, of class MappedFileLexer, with words and line
+     * ends split between the mapped windows.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testMappedFileLexer() throws IOException {
+        File file = temporaryFolder.newFile("tree.txt");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "US-ASCII");
+        try {
+            writer.write("(root,(L1L2L3L4L5,,),\r\n)");
+        } finally {
+            writer.close();
+        }
+        for (long windowSize = 1; windowSize <= 8; windowSize++) {
+            FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+            try {
+                MappedFileLexer lexer = new MappedFileLexer(channel, windowSize);
+                assertEquals(Arrays.asList("(", "root", ",", "(", "L1L2L3L4L5", ",", ",", ")", ",", "EndOfLine", ")"), tokens(lexer));
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private static List<String> tokens(BinaryTreeLexer lexer) throws IOException {
+        List<String> result = new ArrayList<String>();
+        while (lexer.nextToken() != BinaryTreeLexer.TT_EOF) {
+            result.add(BinaryTreeInputParser.currentTokenToString(lexer));
+        }
+        return result;
+    }
+
+    private static StreamTokenizer createStreamTokenizer(StringReader input) {
+        StreamTokenizer st = new StreamTokenizer(input);
+        for (char c = '0'; c <= '9'; c++) {
+            st.ordinaryChar(c);
+        }
+        st.ordinaryChar('.');
+        st.ordinaryChar('-');
+        st.wordChars('0', '9');
+        st.eolIsSignificant(true);
+        return st;
+    }
+
+}
@@ -18,10 +18,17 @@
 package com.nng.tree.traversal;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.channels.Channels;
 import java.text.ParseException;
+import java.util.Random;
 import org.junit.After;
 import org.junit.AfterClass;
 import static org.junit.Assert.*;
@@ -29,6 +36,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 /**
  *
@@ -54,6 +62,9 @@ public class BinaryTreeNodeTest {
     
     @Rule
     public ExpectedException exception = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
     
     /**
      *        root
@@ -157,6 +168,187 @@ public class BinaryTreeNodeTest {
         instance.load(input);
     }
     
+    /**
+     * Test of load method in iterative mode, of class BinaryTreeNode.
+     *
+     * @throws java.lang.Exception
+     */
+    @org.junit.Test
+    public void testLoadIteratively() throws Exception {
+        String input = "(root,(L1,   (L1L2    ,,(L1L2R3,   ,)),(L1R2,,)),(R1,    ,(R1R2,(R1R2L3,,    ),)))";
+        BinaryTreeNode expected = new BinaryTreeNode();
+        expected.load(new StringReader(input), ParserMode.RECURSIVE);
+        BinaryTreeNode instance = new BinaryTreeNode();
+        instance.load(new StringReader(input), ParserMode.ITERATIVE);
+        assertSameTree(expected, instance);
+    }
+
+    @org.junit.Test
+    public void testLoadIterativelyErrors() throws Exception {
+        String[][] cases = {
+            {"(root,(,,),(R1,,))", "Syntax error, expected node identifier, but found: ,"},
+            {"(root,(L1,,)(,(R1,,))", "Syntax error, expected ',', but found: ("},
+            {"(root,(L1,),(R1,,))", "Syntax error, expected '(' or ',', but found: )"},
+            {"(root,(L1,,),", "Syntax error, expected '(' or ')', but found: \uffff"},
+            {"(ro   ot,(1L,,),(1R,,))", "Syntax error, expected ',', but found: ot"},
+            {"(root,(1L,,),(1R,,))", "Syntax error, node name can not start with a number: 1L"},
+            {"(root,(L1,,),(R1,,),)", "Syntax error, expected ')', but found: ,"},
+            {"root", "Syntax error, expected '(', but found: root"},};
+        for (String[] testCase : cases) {
+            for (ParserMode mode : ParserMode.values()) {
+                try {
+                    new BinaryTreeNode().load(new StringReader(testCase[0]), mode);
+                    fail("ParseException expected for " + testCase[0] + " in " + mode + " mode");
+                } catch (ParseException e) {
+                    assertEquals(testCase[1], e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A left-leaning chain that is far too deep for the recursive parser.
+     *
+     * @throws java.lang.Exception
+     */
+    @org.junit.Test
+    public void testLoadIterativelyDeepTree() throws Exception {
+        int depth = 200000;
+        BinaryTreeNode instance = new BinaryTreeNode();
+        instance.load(new StringReader(TestTrees.leftChain(depth)), ParserMode.ITERATIVE);
+        Node node = instance;
+        for (int i = 0; i < depth; i++) {
+            assertEquals("n" + i, node.getName());
+            assertNull(node.getRight());
+            node = node.getLeft();
+        }
+        assertNull(node);
+    }
+
+    /**
+     * Test of load method in lazy mode, of class BinaryTreeNode. The lazily
+     * built nodes must form the same tree and stay modifiable.
+     *
+     * @throws java.lang.Exception
+     */
+    @org.junit.Test
+    public void testLoadLazily() throws Exception {
+        Node expected = TestTrees.randomTree(10000, new java.util.Random(42));
+        BinaryTreeNode instance = new BinaryTreeNode();
+        instance.load(new StringReader(TestTrees.toText(expected)), ParserMode.LAZY);
+        assertSameTree(expected, instance);
+
+        instance = new BinaryTreeNode();
+        instance.load(new StringReader("(root,(L1,(L1L2,,),),(R1,,))"), ParserMode.LAZY);
+        Node left = instance.getLeft();
+        left.setLeft(new BinaryTreeNode("X", null, null));
+        assertEquals("X", left.getLeft().getName());
+        assertNull(left.getRight());
+        StringWriter output = new StringWriter();
+        instance.save(output);
+        assertEquals("root L1 R1 X", output.toString());
+    }
+
+    /**
+     * Test of load method in deduplicated mode, of class BinaryTreeNode. The
+     * repeated subtrees must be shared, the traversals must still visit every
+     * occurrence.
+     *
+     * @throws java.lang.Exception
+     */
+    @org.junit.Test
+    public void testLoadDeduplicated() throws Exception {
+        String input = "(r,(a,(b,,),(c,,(b,,))),(a,(b,,),(c,,(b,,))))";
+        BinaryTreeNode instance = new BinaryTreeNode();
+        instance.load(new StringReader(input), ParserMode.DEDUPLICATED);
+        assertSame(instance.getLeft(), instance.getRight());
+        assertSame(instance.getLeft().getLeft(), instance.getLeft().getRight().getRight());
+        StringWriter output = new StringWriter();
+        instance.save(output);
+        assertEquals("r a a b c b c b b", output.toString());
+        assertEquals(input, TestTrees.toText(instance));
+
+        //trees loaded with the same table share their equal subtrees
+        SubtreeTable subtrees = new SubtreeTable();
+        BinaryTreeNode first = new BinaryTreeNode();
+        first.load(new StringReader("(x,(a,(b,,),),)"), subtrees);
+        BinaryTreeNode second = new BinaryTreeNode();
+        second.load(new StringReader("(y,,(a,(b,,),))"), subtrees);
+        assertSame(first.getLeft(), second.getRight());
+        assertEquals(2, subtrees.size());
+    }
+
+    /**
+     * Test of load method with a bounded subtree table, of class
+     * BinaryTreeNode. The table must clear itself when it is full, the trees
+     * must stay correct.
+     *
+     * @throws java.lang.Exception
+     */
+    @org.junit.Test
+    public void testLoadDeduplicatedBounded() throws Exception {
+        SubtreeTable subtrees = new SubtreeTable(4);
+        Random random = new Random(11);
+        for (int i = 0; i < 20; i++) {
+            Node expected = TestTrees.randomTree(1 + random.nextInt(30), random);
+            BinaryTreeNode instance = new BinaryTreeNode();
+            instance.load(new StringReader(TestTrees.toText(expected)), subtrees);
+            assertTrue(subtrees.size() <= 4);
+            StringWriter expectedOutput = new StringWriter();
+            expected.save(expectedOutput);
+            StringWriter output = new StringWriter();
+            instance.save(output);
+            assertEquals(expectedOutput.toString(), output.toString());
+        }
+        subtrees.clear();
+        assertEquals(0, subtrees.size());
+    }
+
+    /**
+     * Test of load method with a memory-mapped file, of class BinaryTreeNode.
+     *
+     * @throws java.lang.Exception
+     */
+    @org.junit.Test
+    public void testLoadFile() throws Exception {
+        String input = "(root,(L1,   (L1L2    ,,(L1L2R3,   ,)),(L1R2,,)),(R1,    ,(R1R2,(R1R2L3,,    ),)))";
+        File file = temporaryFolder.newFile("tree.txt");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "US-ASCII");
+        try {
+            writer.write(input);
+        } finally {
+            writer.close();
+        }
+        BinaryTreeNode expected = new BinaryTreeNode();
+        expected.load(new StringReader(input));
+        BinaryTreeNode instance = new BinaryTreeNode();
+        instance.load(file.toPath());
+        assertSameTree(expected, instance);
+        instance = new BinaryTreeNode();
+        instance.load(file.toPath(), ParserMode.ITERATIVE);
+        assertSameTree(expected, instance);
+    }
+
+    /**
+     * Test of load method with a symbol table, of class BinaryTreeNode. Equal
+     * names must share one string in both parser modes.
+     *
+     * @throws java.lang.Exception
+     */
+    @org.junit.Test
+    public void testLoadWithSymbolTable() throws Exception {
+        for (ParserMode mode : ParserMode.values()) {
+            BinaryTreeNode instance = new BinaryTreeNode();
+            instance.load(new StringReader("(A1,(B2,(A1,,),),(A1,,(B2,,)))"), mode, new SymbolTable());
+            assertSame(instance.getName(), instance.getLeft().getLeft().getName());
+            assertSame(instance.getName(), instance.getRight().getName());
+            assertSame(instance.getLeft().getName(), instance.getRight().getRight().getName());
+            StringWriter output = new StringWriter();
+            instance.save(output);
+            assertEquals("A1 B2 A1 A1 B2", output.toString());
+        }
+    }
+
     /**
      * Test of save method, of class BinaryTreeNode.
      *
@@ -178,4 +370,29 @@ public class BinaryTreeNodeTest {
         assertEquals(expected, output.toString());
     }
 
+    /**
+     * Test of save method with a channel, of class BinaryTreeNode.
+     *
+     * @throws java.lang.Exception
+     */
+    @org.junit.Test
+    public void testSaveChannel() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryTreeNode instance = new BinaryTreeNode();
+        instance.load(new StringReader("(root,(L1,   (L1L2    ,,(L1L2R3,   ,)),(L1R2,,)),(R1,    ,(R1R2,(R1R2L3,,    ),)))"));
+        instance.save(Channels.newChannel(output));
+        assertEquals("root L1 R1 L1L2 L1R2 R1R2 L1L2R3 R1R2L3", output.toString());
+    }
+
+    private static void assertSameTree(Node expected, Node actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.getName(), actual.getName());
+        assertSameTree(expected.getLeft(), actual.getLeft());
+        assertSameTree(expected.getRight(), actual.getRight());
+    }
+
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class BreadthFirstIteratorTest {
+
+    //complete tree, the node names are the breadth-first positions
+    private static final int NODE_COUNT = 1000;
+
+    public BreadthFirstIteratorTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of next method, of class BreadthFirstIterator.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testNext() throws Exception {
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(completeTree()));
+        assertBreadthFirstOrder(new BreadthFirstIterator(tree));
+    }
+
+    /**
+     * Test of next method, of class ColumnarBreadthFirstIterator.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testNextColumnar() throws Exception {
+        ColumnarTree tree = new ColumnarTree();
+        tree.load(new StringReader(completeTree()));
+        assertBreadthFirstOrder(tree.widthIterator());
+        ColumnarBreadthFirstIterator iterator = new ColumnarBreadthFirstIterator(tree, 0);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            assertEquals("n" + i, tree.getName(iterator.nextIndex()));
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    private static void assertBreadthFirstOrder(Iterator<Node> iterator) {
+        for (int i = 0; i < NODE_COUNT; i++) {
+            assertTrue(iterator.hasNext());
+            assertEquals("n" + i, iterator.next().getName());
+        }
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail("NoSuchElementException expected");
+        } catch (NoSuchElementException e) {
+        }
+    }
+
+    private static String completeTree() {
+        StringBuilder input = new StringBuilder();
+        appendNode(input, 0);
+        return input.toString();
+    }
+
+    private static void appendNode(StringBuilder input, int position) {
+        input.append("(n").append(position).append(',');
+        if (2 * position + 1 < NODE_COUNT) {
+            appendNode(input, 2 * position + 1);
+        }
+        input.append(',');
+        if (2 * position + 2 < NODE_COUNT) {
+            appendNode(input, 2 * position + 2);
+        }
+        input.append(')');
+    }
+
+}
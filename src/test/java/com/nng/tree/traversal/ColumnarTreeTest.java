@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.text.ParseException;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class ColumnarTreeTest {
+
+    private static final String INPUT = "(root,(L1,   (L1L2    ,,(L1L2R3,   ,)),(L1R2,,)),(R1,    ,(R1R2,(R1R2L3,,    ),)))";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    public ColumnarTreeTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of load method, of class ColumnarTree.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoad() throws Exception {
+        ColumnarTree instance = new ColumnarTree();
+        instance.load(new StringReader(INPUT));
+        BinaryTreeNode expected = new BinaryTreeNode();
+        expected.load(new StringReader(INPUT));
+
+        assertEquals(8, instance.getNodeCount());
+        assertSameTree(expected, instance);
+        //pre-order layout
+        assertEquals("root", instance.getName(0));
+        assertEquals("L1", instance.getName(1));
+        assertEquals("L1L2", instance.getName(2));
+        assertEquals(1, instance.getLeft(0));
+        assertEquals(5, instance.getRight(0));
+        assertEquals(ColumnarTree.NO_NODE, instance.getLeft(2));
+    }
+
+    /**
+     * Test of load method with names longer than a one byte length prefix.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoadLongName() throws Exception {
+        StringBuilder name = new StringBuilder("n");
+        for (int i = 0; i < 300; i++) {
+            name.append(i % 10);
+        }
+        ColumnarTree instance = new ColumnarTree(1);
+        instance.load(new StringReader("(" + name + ",(a,,),(" + name + "x,,))"));
+        assertEquals(name.toString(), instance.getName());
+        assertEquals("a", instance.getLeft().getName());
+        assertEquals(name + "x", instance.getRight().getName());
+    }
+
+    /**
+     * Test of load method with a syntax error, of class ColumnarTree.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoadError() throws Exception {
+        exception.expect(ParseException.class);
+        exception.expectMessage("Syntax error, node name can not start with a number: 1L");
+        ColumnarTree instance = new ColumnarTree();
+        instance.load(new StringReader("(root,(1L,,),(1R,,))"));
+    }
+
+    /**
+     * Test of save method, of class ColumnarTree.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSave() throws Exception {
+        ColumnarTree instance = new ColumnarTree();
+        instance.load(new StringReader(INPUT));
+        StringWriter output = new StringWriter();
+        instance.save(output);
+        assertEquals("root L1 R1 L1L2 L1R2 R1R2 L1L2R3 R1R2L3", output.toString());
+        output = new StringWriter();
+        instance.getRight().save(output);
+        assertEquals("R1 R1R2 R1R2L3", output.toString());
+    }
+
+    /**
+     * Test of getNameId method, of class ColumnarTree, with a symbol table.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetNameId() throws Exception {
+        ColumnarTree instance = new ColumnarTree(16, SymbolTable.DEFAULT_CAPACITY);
+        instance.load(new StringReader("(A1,(B2,(A1,,),),(A1,,(B2,,)))"));
+        assertEquals(instance.getNameId(0), instance.getNameId(2));
+        assertEquals(instance.getNameId(0), instance.getNameId(3));
+        assertEquals(instance.getNameId(1), instance.getNameId(4));
+        assertFalse(instance.getNameId(0) == instance.getNameId(1));
+        StringWriter output = new StringWriter();
+        instance.save(output);
+        assertEquals("A1 B2 A1 A1 B2", output.toString());
+    }
+
+    /**
+     * Test of save method with a channel, of class ColumnarTree.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSaveChannel() throws Exception {
+        ColumnarTree instance = new ColumnarTree();
+        instance.load(new StringReader(INPUT));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        instance.save(Channels.newChannel(output));
+        assertEquals("root L1 R1 L1L2 L1R2 R1R2 L1L2R3 R1R2L3", output.toString());
+    }
+
+    /**
+     * The nodes of a columnar tree can not be modified.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testReadOnly() throws Exception {
+        ColumnarTree instance = new ColumnarTree();
+        instance.load(new StringReader(INPUT));
+        exception.expect(UnsupportedOperationException.class);
+        instance.getLeft().setRight(null);
+    }
+
+    private static void assertSameTree(Node expected, Node actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.getName(), actual.getName());
+        assertSameTree(expected.getLeft(), actual.getLeft());
+        assertSameTree(expected.getRight(), actual.getRight());
+    }
+
+}
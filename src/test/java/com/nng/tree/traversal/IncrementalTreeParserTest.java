@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class IncrementalTreeParserTest {
+
+    public IncrementalTreeParserTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of feed method, of class IncrementalTreeParser, with fragments of
+     * different sizes.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testFeed() throws Exception {
+        String input = TestTrees.toText(TestTrees.randomTree(5000, new Random(42)));
+        Random random = new Random(7);
+        for (int maxFragment = 1; maxFragment <= 100000; maxFragment *= 10) {
+            IncrementalTreeParser parser = new IncrementalTreeParser();
+            int offset = 0;
+            boolean complete = false;
+            while (offset < input.length()) {
+                assertFalse(complete);
+                int count = Math.min(input.length() - offset, 1 + random.nextInt(maxFragment));
+                complete = parser.feed(CharBuffer.wrap(input, offset, offset + count));
+                offset += count;
+            }
+            assertTrue(complete);
+            assertTrue(parser.isComplete());
+            assertEquals(input, TestTrees.toText(parser.getTree()));
+        }
+    }
+
+    /**
+     * Test of feed method with byte buffers, of class IncrementalTreeParser.
+     * The input after the root node is ignored.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testFeedBytes() throws Exception {
+        byte[] input = "(root,(L1,\r\n".getBytes(Charset.forName("US-ASCII"));
+        IncrementalTreeParser parser = new IncrementalTreeParser();
+        try {
+            parser.feed(ByteBuffer.wrap(input, 0, 11));
+            parser.feed(ByteBuffer.wrap(input, 11, 1));
+            fail("ParseException expected");
+        } catch (ParseException e) {
+            assertEquals("Syntax error, expected '(' or ',', but found: EndOfLine", e.getMessage());
+        }
+
+        input = "(root,  (L1,,),(R1,,)) (ignored".getBytes(Charset.forName("US-ASCII"));
+        parser = new IncrementalTreeParser();
+        for (int i = 0; i < input.length; i++) {
+            ByteBuffer fragment = ByteBuffer.wrap(input, i, 1);
+            assertEquals(i >= 21, parser.feed(fragment));
+            assertFalse(fragment.hasRemaining());
+        }
+        assertEquals("(root,(L1,,),(R1,,))", TestTrees.toText(parser.finish()));
+    }
+
+    /**
+     * Malformed inputs must give the same exceptions as the load method of
+     * BinaryTreeNode, however they are split.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testFeedErrors() throws Exception {
+        String[] inputs = {
+            "(root,(,,),(R1,,))",
+            "(root,(L1,,)(,(R1,,))",
+            "(root,(L1,),(R1,,))",
+            "(root,(L1,,),",
+            "(ro   ot,(1L,,),(1R,,))",
+            "(root,(1L,,),(1R,,))",
+            "(root,(L1,,),(R1,,),)",
+            "root",
+            "",
+            "(root/comment (,,)\n,,)",
+            "(root,'quoted ( name',)",
+            "(root,\"escaped \\\" name\",)",
+            "(root,(L1,,)\r\n,)",
+            "(árvíztűrő,\u0080\u007f,٣x)",
+            "  (root,,)\r",};
+        for (String input : inputs) {
+            String expected = null;
+            try {
+                new BinaryTreeNode().load(new StringReader(input));
+            } catch (ParseException e) {
+                expected = e.getMessage();
+            }
+            for (int fragment = 1; fragment <= 4; fragment++) {
+                IncrementalTreeParser parser = new IncrementalTreeParser();
+                try {
+                    for (int offset = 0; offset < input.length(); offset += fragment) {
+                        parser.feed(input.toCharArray(), offset, Math.min(fragment, input.length() - offset));
+                    }
+                    parser.finish();
+                    assertNull(input, expected);
+                } catch (ParseException e) {
+                    assertEquals(input, expected, e.getMessage());
+                    //the parser stays failed
+                    try {
+                        parser.finish();
+                        fail("ParseException expected");
+                    } catch (ParseException again) {
+                        assertSame(e, again);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class LevelIndexTest {
+
+    private static final String INPUT = "(root,(L1,(L1L2,,(L1L2R3,,)),(L1R2,,)),(R1,,(R1R2,(R1R2L3,,),)))";
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    public LevelIndexTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of the level positions, of class LevelIndex.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLevels() throws Exception {
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(INPUT));
+        ColumnarTree columnarTree = new ColumnarTree();
+        columnarTree.load(new StringReader(INPUT));
+        for (Node root : new Node[]{tree, columnarTree}) {
+            LevelIndex instance = new LevelIndex(root);
+            assertEquals(8, instance.size());
+            assertEquals(4, instance.getLevelCount());
+            int[] starts = {0, 1, 3, 6};
+            int[] widths = {1, 2, 3, 2};
+            for (int level = 0; level < starts.length; level++) {
+                assertEquals(starts[level], instance.getLevelStart(level));
+                assertEquals(widths[level], instance.getLevelWidth(level));
+            }
+            int[] levels = {0, 1, 1, 2, 2, 2, 3, 3};
+            for (int position = 0; position < levels.length; position++) {
+                assertEquals(levels[position], instance.getLevel(position));
+            }
+            assertEquals("L1R2", instance.getNode(4).getName());
+            assertEquals("R1R2", nextNames(instance.levelIterator(2)).get(2));
+        }
+    }
+
+    /**
+     * Iterators from every position must give the rest of the node order of
+     * widthIterator.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testIterator() throws Exception {
+        Node tree = TestTrees.randomTree(2000, new Random(11));
+        List<String> expected = nextNames(tree.widthIterator());
+        LevelIndex instance = new LevelIndex(tree);
+        assertEquals(expected.size(), instance.size());
+        for (int position = 0; position <= expected.size(); position += 37) {
+            assertEquals(expected.subList(position, expected.size()), nextNames(instance.iterator(position)));
+        }
+        assertFalse(instance.iterator(instance.size()).hasNext());
+    }
+
+    /**
+     * Test of save methods with pages, of class LevelIndex.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSavePage() throws Exception {
+        ColumnarTree tree = new ColumnarTree();
+        tree.load(new StringReader(INPUT));
+        LevelIndex instance = new LevelIndex(tree);
+        StringWriter output = new StringWriter();
+        instance.save(output, 2, 3);
+        assertEquals("R1 L1L2 L1R2", output.toString());
+        output = new StringWriter();
+        instance.save(output, 6, Integer.MAX_VALUE);
+        assertEquals("L1L2R3 R1R2L3", output.toString());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        instance.save(Channels.newChannel(bytes), 5, 2);
+        assertEquals("R1R2 L1L2R3", bytes.toString());
+        output = new StringWriter();
+        instance.save(output, 8, 10);
+        assertEquals("", output.toString());
+    }
+
+    /**
+     * The index of an empty tree has no levels.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testEmpty() throws Exception {
+        LevelIndex instance = new LevelIndex(null);
+        assertEquals(0, instance.size());
+        assertEquals(0, instance.getLevelCount());
+        assertFalse(instance.iterator(0).hasNext());
+        exception.expect(IndexOutOfBoundsException.class);
+        instance.getNode(0);
+    }
+
+    /**
+     * A deep chain is indexed without recursion.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDeepChain() throws Exception {
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(TestTrees.leftChain(200000)), ParserMode.ITERATIVE);
+        LevelIndex instance = new LevelIndex(tree);
+        assertEquals(200000, instance.getLevelCount());
+        assertEquals(123456, instance.getLevel(123456));
+        assertEquals(1, instance.getLevelWidth(199999));
+    }
+
+    private static List<String> nextNames(Iterator<Node> iterator) {
+        List<String> names = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            names.add(iterator.next().getName());
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class NodeOrderOutputTest {
+
+    public NodeOrderOutputTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of writeName method, of class NodeOrderOutput, with names that do
+     * not fit into the buffer.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteNameAcrossBuffer() throws Exception {
+        Charset charset = Charset.forName("UTF-8");
+        for (int bufferSize = 1; bufferSize <= 40; bufferSize++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            NodeOrderOutput instance = new NodeOrderOutput(Channels.newChannel(output), charset, bufferSize);
+            instance.writeName("root");
+            instance.writeName("árvíztűrő");
+            byte[] name = "xL1L2L3L4L5x".getBytes(charset);
+            instance.writeName(name, 1, name.length - 2);
+            instance.writeName("L1");
+            instance.flush();
+            assertEquals("root árvíztűrő L1L2L3L4L5 L1", new String(output.toByteArray(), charset));
+        }
+    }
+
+    /**
+     * Test of write method, of class NodeOrderOutput, with a charset that is
+     * not ASCII compatible.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteUtf16() throws Exception {
+        Charset charset = Charset.forName("UTF-16BE");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        NodeOrderOutput instance = new NodeOrderOutput(Channels.newChannel(output), charset, 16);
+        instance.write(Arrays.<Node>asList(new BinaryTreeNode("root", null, null), new BinaryTreeNode("L1", null, null)).iterator());
+        byte[] name = "R1".getBytes("US-ASCII");
+        instance.writeName(name, 0, name.length);
+        instance.flush();
+        assertEquals("root L1 R1", new String(output.toByteArray(), charset));
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.nio.channels.Channels;
+import java.text.ParseException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class OffHeapTreeTest {
+
+    private static final String INPUT = "(root,(L1,   (L1L2    ,,(L1L2R3,   ,)),(L1R2,,)),(R1,    ,(R1R2,(R1R2L3,,    ),)))";
+    //the largest heap that the test of the direct memory limit runs with
+    private static final long MAX_LIMITED_HEAP = 256L << 20;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    public OffHeapTreeTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of load and save methods, of class OffHeapTree.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoad() throws Exception {
+        OffHeapTree instance = new OffHeapTree();
+        try {
+            instance.load(new StringReader(INPUT));
+            assertEquals(8, instance.getNodeCount());
+            assertEquals("L1L2R3", instance.getLeft().getLeft().getRight().getName());
+            StringWriter output = new StringWriter();
+            instance.save(output);
+            assertEquals("root L1 R1 L1L2 L1R2 R1R2 L1L2R3 R1R2L3", output.toString());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            instance.save(Channels.newChannel(bytes));
+            assertEquals("root L1 R1 L1L2 L1R2 R1R2 L1L2R3 R1R2L3", bytes.toString());
+        } finally {
+            instance.close();
+        }
+    }
+
+    /**
+     * Test of load method with a tree that spans several segments, of class
+     * OffHeapTree. A second load reuses the segments.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoadLargeTree() throws Exception {
+        Node expected = TestTrees.randomTree(600000, new Random(42));
+        String input = TestTrees.toText(expected);
+        StringWriter expectedOutput = new StringWriter();
+        expected.save(expectedOutput);
+        OffHeapTree instance = new OffHeapTree();
+        try {
+            for (int i = 0; i < 2; i++) {
+                instance.load(new StringReader(input));
+                assertEquals(600000, instance.getNodeCount());
+                StringWriter output = new StringWriter();
+                instance.save(output);
+                assertEquals(expectedOutput.toString(), output.toString());
+            }
+            assertTrue(instance.getAllocatedBytes() > 0);
+        } finally {
+            instance.close();
+        }
+        assertTrue(instance.isClosed());
+        assertEquals(0, instance.getAllocatedBytes());
+    }
+
+    /**
+     * Test of load method with a syntax error, of class OffHeapTree.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoadError() throws Exception {
+        OffHeapTree instance = new OffHeapTree();
+        try {
+            exception.expect(ParseException.class);
+            exception.expectMessage("Syntax error, node name can not start with a number: 1L");
+            instance.load(new StringReader("(root,(1L,,),(1R,,))"));
+        } finally {
+            instance.close();
+        }
+    }
+
+    /**
+     * A closed tree can not be read.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testClose() throws Exception {
+        OffHeapTree instance = new OffHeapTree();
+        instance.load(new StringReader(INPUT));
+        Node left = instance.getLeft();
+        instance.close();
+        instance.close();
+        assertEquals(0, instance.getNodeCount());
+        exception.expect(IllegalStateException.class);
+        left.getName();
+    }
+
+    /**
+     * Test of load method with a tree larger than the default direct memory
+     * limit, of class OffHeapTree. The limit is the maximum heap size, the
+     * test only runs with a small heap, see the offheap-test execution of the
+     * build.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoadLargerThanDirectMemoryLimit() throws Exception {
+        long limit = Runtime.getRuntime().maxMemory();
+        Assume.assumeTrue(limit <= MAX_LIMITED_HEAP);
+        int depth = 19;
+        int nodeCount = (1 << depth) - 1;
+        char[] name = new char[(int) (2 * limit / nodeCount) + 1];
+        Arrays.fill(name, 'n');
+        File input = temporaryFolder.newFile("tree.txt");
+        Writer writer = new BufferedWriter(new FileWriter(input));
+        try {
+            writeCompleteTree(writer, new String(name), depth);
+        } finally {
+            writer.close();
+        }
+        File directory = temporaryFolder.newFolder("segments");
+        OffHeapTree instance = new OffHeapTree(directory.toPath());
+        try {
+            instance.load(input.toPath());
+            assertEquals(nodeCount, instance.getNodeCount());
+            assertTrue(instance.getAllocatedBytes() > limit);
+            assertEquals(new String(name), instance.getName(nodeCount - 1));
+        } finally {
+            instance.close();
+        }
+        assertEquals(0, directory.list().length);
+    }
+
+    private static void writeCompleteTree(Writer output, String name, int depth) throws IOException {
+        output.write('(');
+        output.write(name);
+        output.write(',');
+        if (depth > 1) {
+            writeCompleteTree(output, name, depth - 1);
+        }
+        output.write(',');
+        if (depth > 1) {
+            writeCompleteTree(output, name, depth - 1);
+        }
+        output.write(')');
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.StringWriter;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class ParallelBreadthFirstTraversalTest {
+
+    public ParallelBreadthFirstTraversalTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of save method, of class ParallelBreadthFirstTraversal.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSave() throws Exception {
+        Node tree = TestTrees.randomTree(100000, new Random(42));
+        StringWriter expected = new StringWriter();
+        tree.save(expected);
+        int[][] configurations = {{1, 1}, {4, 1}, {4, 16}, {3, 1000}, {2, 1000000}};
+        for (int[] configuration : configurations) {
+            ParallelBreadthFirstTraversal traversal = new ParallelBreadthFirstTraversal(configuration[0], configuration[1]);
+            try {
+                StringWriter output = new StringWriter();
+                traversal.save(tree, output);
+                assertEquals(expected.toString(), output.toString());
+            } finally {
+                traversal.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Test of save method with a single node, of class
+     * ParallelBreadthFirstTraversal.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSaveSingleNode() throws Exception {
+        ParallelBreadthFirstTraversal traversal = new ParallelBreadthFirstTraversal(2, 1);
+        try {
+            StringWriter output = new StringWriter();
+            traversal.save(new BinaryTreeNode("root", null, null), output);
+            assertEquals("root", output.toString());
+        } finally {
+            traversal.shutdown();
+        }
+    }
+
+    /**
+     * Test of traverse method with an empty tree, of class
+     * ParallelBreadthFirstTraversal. No level must be visited.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverseEmptyTree() throws Exception {
+        ParallelBreadthFirstTraversal traversal = new ParallelBreadthFirstTraversal(2, 1);
+        try {
+            ParallelBreadthFirstTraversal.LevelVisitor visitor = new ParallelBreadthFirstTraversal.LevelVisitor() {
+                @Override
+                public void visitLevel(Node[] nodes, int count) {
+                    fail("No level expected");
+                }
+            };
+            traversal.traverse(null, visitor);
+            traversal.traverse(new ColumnarTree(), visitor);
+            StringWriter output = new StringWriter();
+            traversal.save(null, output);
+            assertEquals("", output.toString());
+        } finally {
+            traversal.shutdown();
+        }
+    }
+
+}
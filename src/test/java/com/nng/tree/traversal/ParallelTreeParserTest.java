@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class ParallelTreeParserTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public ParallelTreeParserTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of load method, of class ParallelTreeParser.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoad() throws Exception {
+        String input = TestTrees.toText(TestTrees.randomTree(100000, new Random(42)));
+        int[][] configurations = {{1, 1}, {4, 1}, {4, 64}, {3, 1000}, {2, 1 << 30}};
+        for (int[] configuration : configurations) {
+            ParallelTreeParser parser = new ParallelTreeParser(configuration[0], configuration[1]);
+            try {
+                BinaryTreeNode tree = new BinaryTreeNode();
+                parser.load(tree, new StringReader(input));
+                assertEquals(input, TestTrees.toText(tree));
+            } finally {
+                parser.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Test of load method with a memory-mapped file, of class
+     * ParallelTreeParser, and of load method in parallel mode, of class
+     * BinaryTreeNode.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoadFile() throws Exception {
+        String input = TestTrees.toText(TestTrees.randomTree(100000, new Random(7)));
+        File file = temporaryFolder.newFile("tree.txt");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "US-ASCII");
+        try {
+            writer.write(input);
+            writer.write("\r\n");
+        } finally {
+            writer.close();
+        }
+        ParallelTreeParser parser = new ParallelTreeParser(4, 16);
+        try {
+            BinaryTreeNode tree = new BinaryTreeNode();
+            parser.load(tree, file.toPath());
+            assertEquals(input, TestTrees.toText(tree));
+        } finally {
+            parser.shutdown();
+        }
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(file.toPath(), ParserMode.PARALLEL);
+        assertEquals(input, TestTrees.toText(tree));
+    }
+
+    /**
+     * Malformed inputs must give the same exception as the sequential parser,
+     * wherever the syntax error is.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoadErrors() throws Exception {
+        String input = TestTrees.toText(TestTrees.randomTree(20000, new Random(42)));
+        int middle = input.indexOf('(', input.length() / 2);
+        String[] inputs = {
+            input.substring(0, middle + 1) + "1" + input.substring(middle + 1),
+            input.substring(0, middle) + "(x,,)" + input.substring(middle),
+            input.substring(0, middle) + input.substring(middle + 1),
+            input.substring(0, middle) + " " + input.substring(middle),
+            input.substring(0, middle) + "\n" + input.substring(middle),
+            input.substring(0, middle) + "/" + input.substring(middle),
+            input.substring(0, middle) + "'(,'" + input.substring(middle),
+            input.substring(0, middle) + "#" + input.substring(middle),
+            input.substring(0, input.length() - 1),
+            input + input,
+            "x" + input,
+            "(root,(L1,,)(,(R1,,))",};
+        ParallelTreeParser parser = new ParallelTreeParser(4, 16);
+        try {
+            for (String malformed : inputs) {
+                String expected = null;
+                try {
+                    new BinaryTreeNode().load(new StringReader(malformed), ParserMode.ITERATIVE);
+                } catch (ParseException e) {
+                    expected = e.getMessage();
+                }
+                try {
+                    BinaryTreeNode tree = new BinaryTreeNode();
+                    parser.load(tree, new StringReader(malformed));
+                    assertNull(expected);
+                    assertEquals(input, TestTrees.toText(tree));
+                } catch (ParseException e) {
+                    assertEquals(expected, e.getMessage());
+                }
+            }
+        } finally {
+            parser.shutdown();
+        }
+    }
+
+    /**
+     * A degenerate tree can not be split, it must be parsed sequentially
+     * without recursion.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoadDeepTree() throws Exception {
+        int depth = 200000;
+        ParallelTreeParser parser = new ParallelTreeParser(4, 16);
+        try {
+            BinaryTreeNode tree = new BinaryTreeNode();
+            parser.load(tree, new StringReader(TestTrees.leftChain(depth)));
+            Node node = tree;
+            for (int i = 0; i < depth; i++) {
+                assertEquals("n" + i, node.getName());
+                assertNull(node.getRight());
+                node = node.getLeft();
+            }
+            assertNull(node);
+        } finally {
+            parser.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class PipelinedTraversalTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    public PipelinedTraversalTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of traverse method, of class PipelinedTraversal, with blocks and
+     * rings small enough to make every stage wait.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverse() throws Exception {
+        String input = TestTrees.toText(TestTrees.randomTree(20000, new Random(9)));
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(input));
+        StringWriter expected = new StringWriter();
+        tree.save(expected);
+        int[][] configurations = {{7, 1}, {100, 2}, {PipelinedTraversal.DEFAULT_BLOCK_SIZE, PipelinedTraversal.DEFAULT_RING_CAPACITY}};
+        for (int[] configuration : configurations) {
+            PipelinedTraversal instance = new PipelinedTraversal(configuration[0], configuration[1]);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            instance.traverse(channel(input), Channels.newChannel(output));
+            assertEquals(expected.toString(), output.toString("US-ASCII"));
+            assertTrue(instance.getReaderStallNanos() >= 0);
+            assertTrue(instance.getParserStallNanos() >= 0);
+            assertTrue(instance.getWriterStallNanos() >= 0);
+            assertTrue(instance.summary().startsWith("reader stall: "));
+        }
+    }
+
+    /**
+     * Test of traverse method with a syntax error, of class
+     * PipelinedTraversal. The same instance can be used again.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverseError() throws Exception {
+        PipelinedTraversal instance = new PipelinedTraversal(4, 1);
+        try {
+            instance.traverse(channel("(root,(1L,,),(1R,,))"), Channels.newChannel(new ByteArrayOutputStream()));
+            fail("ParseException expected");
+        } catch (ParseException e) {
+            assertEquals("Syntax error, node name can not start with a number: 1L", e.getMessage());
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        instance.traverse(channel("(root,(L1,,),(R1,,))"), Channels.newChannel(output));
+        assertEquals("root L1 R1", output.toString("US-ASCII"));
+    }
+
+    /**
+     * The error of the input channel is thrown by traverse.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testInputError() throws Exception {
+        final ReadableByteChannel input = channel("(root,(L1,,");
+        ReadableByteChannel failing = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer target) throws IOException {
+                int count = input.read(target);
+                if (count < 0) {
+                    throw new IOException("Input failed");
+                }
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        exception.expect(IOException.class);
+        exception.expectMessage("Input failed");
+        new PipelinedTraversal(4, 1).traverse(failing, Channels.newChannel(new ByteArrayOutputStream()));
+    }
+
+    /**
+     * The error of the output channel is thrown by traverse.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testOutputError() throws Exception {
+        WritableByteChannel failing = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                throw new IOException("Output failed");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        String input = TestTrees.toText(TestTrees.randomTree(5000, new Random(1)));
+        exception.expect(IOException.class);
+        exception.expectMessage("Output failed");
+        new PipelinedTraversal(16, 1).traverse(channel(input), failing);
+    }
+
+    private static ReadableByteChannel channel(String input) {
+        return Channels.newChannel(new ByteArrayInputStream(input.getBytes(ASCII)));
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.text.ParseException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class StreamingBreadthFirstTraversalTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public StreamingBreadthFirstTraversalTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of traverse method without spilling, of class
+     * StreamingBreadthFirstTraversal.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverse() throws Exception {
+        assertSameOutput(TestTrees.toText(TestTrees.randomTree(20000, new Random(7))), StreamingBreadthFirstTraversal.DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Test of traverse method with many spilled runs, of class
+     * StreamingBreadthFirstTraversal.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverseSpilled() throws Exception {
+        String input = TestTrees.toText(TestTrees.randomTree(20000, new Random(11)));
+        assertSameOutput(input, 64);
+        assertSameOutput(input, 4096);
+        assertSameOutput(TestTrees.leftChain(50000), 1024);
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    /**
+     * Test of traverse method with a deep chain, of class
+     * StreamingBreadthFirstTraversal. Every node is a level of its own, and
+     * the runs are merged in several passes.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverseDeepChain() throws Exception {
+        assertSameOutput(TestTrees.leftChain(20000), 64);
+        assertSameOutput(TestTrees.leftChain(200000), 64 * 1024);
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    /**
+     * Test of traverse method with a syntax error, of class
+     * StreamingBreadthFirstTraversal.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverseError() throws Exception {
+        exception.expect(ParseException.class);
+        exception.expectMessage("Syntax error, expected '(' or ',', but found: )");
+        StringWriter output = new StringWriter();
+        new StreamingBreadthFirstTraversal(64, temporaryFolder.getRoot().toPath()).traverse(new StringReader("(root,(L1,),(R1,,))"), output);
+    }
+
+    private void assertSameOutput(String input, int memoryBudget) throws Exception {
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(input), ParserMode.ITERATIVE);
+        StringWriter expected = new StringWriter();
+        tree.save(expected);
+        StringWriter output = new StringWriter();
+        new StreamingBreadthFirstTraversal(memoryBudget, temporaryFolder.getRoot().toPath()).traverse(new StringReader(input), output);
+        assertEquals(expected.toString(), output.toString());
+    }
+
+}
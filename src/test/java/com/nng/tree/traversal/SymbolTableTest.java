@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class SymbolTableTest {
+
+    public SymbolTableTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of intern method, of class SymbolTable.
+     */
+    @Test
+    public void testIntern() {
+        SymbolTable instance = new SymbolTable();
+        char[] chars = "xA1B2A1".toCharArray();
+        String first = instance.intern(chars, 1, 2);
+        assertEquals("A1", first);
+        assertEquals("B2", instance.intern(chars, 3, 2));
+        assertSame(first, instance.intern(chars, 5, 2));
+        assertEquals(1, instance.getHitCount());
+        assertEquals(2, instance.getMissCount());
+    }
+
+    /**
+     * The table must not grow beyond its capacity and must evict the least
+     * recently used name of a full set.
+     */
+    @Test
+    public void testEviction() {
+        SymbolTable instance = new SymbolTable(SymbolTable.WAYS);
+        assertEquals(SymbolTable.WAYS, instance.getCapacity());
+        String[] names = new String[SymbolTable.WAYS + 1];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = intern(instance, "n" + i);
+        }
+        //n0 was the least recently used when n4 was added
+        assertEquals("n0", intern(instance, "n0"));
+        assertNotSame(names[0], intern(instance, "n0"));
+        assertSame(names[4], intern(instance, "n4"));
+        assertSame(names[3], intern(instance, "n3"));
+        assertSame(names[2], intern(instance, "n2"));
+        //n1 was evicted by the new n0
+        assertNotSame(names[1], intern(instance, "n1"));
+    }
+
+    private static String intern(SymbolTable table, String name) {
+        return table.intern(name.toCharArray(), 0, name.length());
+    }
+
+}
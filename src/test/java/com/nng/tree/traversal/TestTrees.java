@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates trees and their textual form for the tests.
+ *
+ * @author Richárd Ernő Kiss
+ */
+final class TestTrees {
+
+    private TestTrees() {
+    }
+
+    /**
+     * Creates a tree of random shape, the names are "n" and the creation
+     * index.
+     *
+     * @param nodeCount the number of nodes
+     * @param random the source of the shape
+     * @return the root node
+     */
+    static Node randomTree(int nodeCount, Random random) {
+        List<Node> free = new ArrayList<Node>();
+        Node root = new BinaryTreeNode("n0", null, null);
+        free.add(root);
+        for (int i = 1; i < nodeCount; i++) {
+            int index = random.nextInt(free.size());
+            Node parent = free.get(index);
+            Node child = new BinaryTreeNode("n" + i, null, null);
+            if (parent.getLeft() == null && (parent.getRight() != null || random.nextBoolean())) {
+                parent.setLeft(child);
+            } else {
+                parent.setRight(child);
+            }
+            if (parent.getLeft() != null && parent.getRight() != null) {
+                free.set(index, free.get(free.size() - 1));
+                free.remove(free.size() - 1);
+            }
+            free.add(child);
+        }
+        return root;
+    }
+
+    /**
+     * Creates the textual form of a left-leaning chain.
+     *
+     * @param depth the number of nodes
+     * @return the input text
+     */
+    static String leftChain(int depth) {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            input.append("(n").append(i).append(',');
+        }
+        for (int i = 0; i < depth; i++) {
+            input.append(",)");
+        }
+        return input.toString();
+    }
+
+    /**
+     * Converts the specified tree to the textual form of the grammar.
+     *
+     * @param tree the root node
+     * @return the input text
+     */
+    static String toText(Node tree) {
+        StringBuilder text = new StringBuilder();
+        appendNode(text, tree);
+        return text.toString();
+    }
+
+    private static void appendNode(StringBuilder text, Node node) {
+        text.append('(').append(node.getName()).append(',');
+        if (node.getLeft() != null) {
+            appendNode(text, node.getLeft());
+        }
+        text.append(',');
+        if (node.getRight() != null) {
+            appendNode(text, node.getRight());
+        }
+        text.append(')');
+    }
+
+}
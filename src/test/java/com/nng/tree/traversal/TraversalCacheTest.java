@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class TraversalCacheTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final String INPUT = "(root,(L1,(L1L2,,),),(R1,,(R1R2,,)))";
+    private static final String OUTPUT = "root L1 R1 L1L2 R1R2";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public TraversalCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of traverse method, of class TraversalCache. The second traversal
+     * of the same input is a hit.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverse() throws Exception {
+        TraversalCache instance = new TraversalCache(TraversalCache.DEFAULT_MAX_BYTES);
+        byte[] input = INPUT.getBytes(ASCII);
+        assertEquals(OUTPUT, new String(instance.traverse(new ByteArrayInputStream(input)), ASCII));
+        assertEquals(0, instance.getHitCount());
+        assertEquals(1, instance.getMissCount());
+        assertEquals(OUTPUT, new String(instance.traverse(input, 0, input.length), ASCII));
+        assertEquals(1, instance.getHitCount());
+        assertEquals(1, instance.getMissCount());
+        assertEquals(1, instance.getEntryCount());
+        assertEquals(OUTPUT.length(), instance.getSize());
+
+        //a different input is a miss, even if its tree is the same
+        byte[] spaced = (" " + INPUT).getBytes(ASCII);
+        assertEquals(OUTPUT, new String(instance.traverse(spaced, 0, spaced.length), ASCII));
+        assertEquals(2, instance.getMissCount());
+    }
+
+    /**
+     * Test of traverse method with a syntax error, of class TraversalCache.
+     * Failed inputs are not cached.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testTraverseError() throws Exception {
+        TraversalCache instance = new TraversalCache(TraversalCache.DEFAULT_MAX_BYTES);
+        byte[] input = "(root,(1L,,),(1R,,))".getBytes(ASCII);
+        for (int i = 0; i < 2; i++) {
+            try {
+                instance.traverse(input, 0, input.length);
+                fail("ParseException expected");
+            } catch (ParseException e) {
+                assertEquals("Syntax error, node name can not start with a number: 1L", e.getMessage());
+            }
+        }
+        assertEquals(2, instance.getMissCount());
+        assertEquals(0, instance.getEntryCount());
+    }
+
+    /**
+     * The least recently used entries are evicted when the memory tier is
+     * full.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testEviction() throws Exception {
+        TraversalCache instance = new TraversalCache(10);
+        instance.put(key("a"), new byte[4]);
+        instance.put(key("b"), new byte[4]);
+        assertNotNull(instance.get(key("a")));
+        instance.put(key("c"), new byte[4]);
+        assertNull(instance.get(key("b")));
+        assertNotNull(instance.get(key("a")));
+        assertNotNull(instance.get(key("c")));
+        assertEquals(8, instance.getSize());
+        //larger than the whole tier
+        instance.put(key("d"), new byte[11]);
+        assertNull(instance.get(key("d")));
+        assertEquals(2, instance.getEntryCount());
+    }
+
+    /**
+     * The disk tier keeps the results for a new cache in the same directory.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDiskTier() throws Exception {
+        byte[] input = INPUT.getBytes(ASCII);
+        TraversalCache first = new TraversalCache(0, folder.getRoot().toPath());
+        assertEquals(OUTPUT, new String(first.traverse(input, 0, input.length), ASCII));
+        assertEquals(0, first.getEntryCount());
+
+        TraversalCache second = new TraversalCache(TraversalCache.DEFAULT_MAX_BYTES, folder.getRoot().toPath());
+        assertEquals(OUTPUT, new String(second.traverse(input, 0, input.length), ASCII));
+        assertEquals(1, second.getDiskHitCount());
+        assertEquals(0, second.getMissCount());
+        //promoted to memory
+        assertEquals(OUTPUT, new String(second.traverse(input, 0, input.length), ASCII));
+        assertEquals(1, second.getHitCount());
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    /**
+     * Test of traverse method of BatchTraversal with a cache.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testBatchTraversal() throws Exception {
+        TraversalCache cache = new TraversalCache(TraversalCache.DEFAULT_MAX_BYTES);
+        BatchTraversal traversal = new BatchTraversal(1, 1, cache);
+        StringWriter output = new StringWriter();
+        try {
+            traversal.traverse(new StringReader(INPUT + "\n(a,,)\n" + INPUT + "\n"), output);
+        } finally {
+            traversal.shutdown();
+        }
+        String separator = System.getProperty("line.separator");
+        assertEquals(OUTPUT + separator + "a" + separator + OUTPUT + separator, output.toString());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    /**
+     * Batch mode and the single tree path share one cache directory. A line
+     * with a syntax error must not be stored as a node order.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testBatchTraversalSharedDirectory() throws Exception {
+        String invalid = "(a,(b,,),";
+        BatchTraversal traversal = new BatchTraversal(1, 1, new TraversalCache(TraversalCache.DEFAULT_MAX_BYTES, folder.getRoot().toPath()));
+        StringWriter output = new StringWriter();
+        try {
+            traversal.traverse(new StringReader(invalid + "\n" + INPUT + "\n"), output);
+        } finally {
+            traversal.shutdown();
+        }
+        String separator = System.getProperty("line.separator");
+        assertTrue(output.toString().startsWith("Syntax error"));
+        assertTrue(output.toString().endsWith(separator + OUTPUT + separator));
+
+        TraversalCache instance = new TraversalCache(TraversalCache.DEFAULT_MAX_BYTES, folder.getRoot().toPath());
+        byte[] input = invalid.getBytes(ASCII);
+        try {
+            instance.traverse(input, 0, input.length);
+            fail("ParseException expected");
+        } catch (ParseException e) {
+            assertTrue(e.getMessage().startsWith("Syntax error"));
+        }
+        assertEquals(0, instance.getDiskHitCount());
+        input = INPUT.getBytes(ASCII);
+        assertEquals(OUTPUT, new String(instance.traverse(input, 0, input.length), ASCII));
+        assertEquals(1, instance.getDiskHitCount());
+    }
+
+    /**
+     * Only the hashes of inputs are accepted as keys, so a key can not name
+     * a file outside of the directory.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testInvalidKey() throws Exception {
+        File directory = folder.newFolder("cache");
+        TraversalCache instance = new TraversalCache(TraversalCache.DEFAULT_MAX_BYTES, directory.toPath());
+        String[] keys = {"../x", "", key("a").toUpperCase(), key("a") + "0", key("a").substring(1) + "/"};
+        for (String key : keys) {
+            try {
+                instance.put(key, new byte[4]);
+                fail("IllegalArgumentException expected: " + key);
+            } catch (IllegalArgumentException e) {
+            }
+            try {
+                instance.get(key);
+                fail("IllegalArgumentException expected: " + key);
+            } catch (IllegalArgumentException e) {
+            }
+        }
+        assertFalse(new File(folder.getRoot(), "x").exists());
+        assertEquals(0, directory.list().length);
+        assertEquals(0, instance.getEntryCount());
+    }
+
+    private static String key(String input) {
+        byte[] bytes = input.getBytes(ASCII);
+        return TraversalCache.hash(bytes, 0, bytes.length);
+    }
+
+}
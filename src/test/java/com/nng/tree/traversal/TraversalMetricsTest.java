@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class TraversalMetricsTest {
+
+    private static final String INPUT = "(root,(L1,   (L1L2    ,,(L1L2R3,   ,)),(L1R2,,)),(R1,    ,(R1R2,(R1R2L3,,    ),)))";
+
+    public TraversalMetricsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        TraversalMetrics.getInstance().reset();
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of the metrics of load, widthIterator and save, of class
+     * BinaryTreeNode.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMetrics() throws Exception {
+        Assume.assumeTrue(TraversalMetrics.ENABLED);
+        TraversalMetrics metrics = TraversalMetrics.getInstance();
+        final List<TraversalMetrics.Phase> phases = new ArrayList<TraversalMetrics.Phase>();
+        TraversalMetricsListener listener = new TraversalMetricsListener() {
+
+            @Override
+            public void phaseCompleted(TraversalMetrics.Phase phase, long nodeCount, long elapsedNanos) {
+                assertEquals(8, nodeCount);
+                assertTrue(elapsedNanos >= 0);
+                phases.add(phase);
+            }
+        };
+        metrics.addListener(listener);
+        try {
+            BinaryTreeNode tree = new BinaryTreeNode();
+            tree.load(new StringReader(INPUT));
+            assertEquals(8, metrics.getNodesParsed());
+            assertEquals(INPUT.length(), metrics.getCharactersScanned());
+            assertEquals(4, metrics.getMaxDepth());
+            assertTrue(metrics.getEstimatedAllocation() > 0);
+
+            StringWriter output = new StringWriter();
+            tree.save(output);
+            assertEquals(8, metrics.getNodesTraversed());
+            assertEquals(3, metrics.getMaxLevelWidth());
+            assertEquals(3, metrics.getQueueHighWaterMark());
+            assertEquals(8, metrics.getNodesSaved());
+            assertEquals(output.toString().length(), metrics.getOutputLength());
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            tree.save(Channels.newChannel(bytes));
+            assertEquals(16, metrics.getNodesSaved());
+            assertEquals(2L * output.toString().length(), metrics.getOutputLength());
+        } finally {
+            metrics.removeListener(listener);
+        }
+        assertEquals(5, phases.size());
+        assertEquals(TraversalMetrics.Phase.PARSE, phases.get(0));
+        assertEquals(TraversalMetrics.Phase.TRAVERSAL, phases.get(1));
+        assertEquals(TraversalMetrics.Phase.SAVE, phases.get(2));
+        assertTrue(metrics.summary().startsWith("Parse: 8 nodes, " + INPUT.length() + " characters, max depth 4, "));
+
+        metrics.reset();
+        assertEquals(0, metrics.getNodesParsed());
+        assertEquals(0, metrics.getMaxLevelWidth());
+    }
+
+    /**
+     * The parallel parser must count the same nodes and depth as the
+     * sequential one.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testParallelParseMetrics() throws Exception {
+        Assume.assumeTrue(TraversalMetrics.ENABLED);
+        TraversalMetrics metrics = TraversalMetrics.getInstance();
+        String input = TestTrees.toText(TestTrees.randomTree(20000, new Random(42)));
+        new BinaryTreeNode().load(new StringReader(input), ParserMode.ITERATIVE);
+        long nodes = metrics.getNodesParsed();
+        int depth = metrics.getMaxDepth();
+        metrics.reset();
+        ParallelTreeParser parser = new ParallelTreeParser(4, 16);
+        try {
+            parser.load(new BinaryTreeNode(), new StringReader(input));
+        } finally {
+            parser.shutdown();
+        }
+        assertEquals(nodes, metrics.getNodesParsed());
+        assertEquals(depth, metrics.getMaxDepth());
+        assertEquals(input.length(), metrics.getCharactersScanned());
+    }
+
+    /**
+     * Nothing is recorded if the metrics are disabled, the default.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDisabled() throws Exception {
+        Assume.assumeTrue(!TraversalMetrics.ENABLED);
+        TraversalMetrics metrics = TraversalMetrics.getInstance();
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(INPUT));
+        tree.save(new StringWriter());
+        tree.save(Channels.newChannel(new ByteArrayOutputStream()));
+        assertEquals(0, metrics.getNodesParsed());
+        assertEquals(0, metrics.getCharactersScanned());
+        assertEquals(0, metrics.getNodesTraversed());
+        assertEquals(0, metrics.getNodesSaved());
+        assertEquals(0, metrics.getEstimatedAllocation());
+    }
+
+    /**
+     * The metrics must be registered on the platform MBean server.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMXBean() throws Exception {
+        Assume.assumeTrue(TraversalMetrics.ENABLED);
+        new BinaryTreeNode().load(new StringReader(INPUT));
+        Object nodesParsed = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(TraversalMetrics.OBJECT_NAME), "NodesParsed");
+        assertEquals(8L, nodesParsed);
+    }
+
+}
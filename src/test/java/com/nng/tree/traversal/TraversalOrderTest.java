@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class TraversalOrderTest {
+
+    private static final String INPUT = "(root,(L1,   (L1L2    ,,(L1L2R3,   ,)),(L1R2,,)),(R1,    ,(R1R2,(R1R2L3,,    ),)))";
+
+    public TraversalOrderTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of save method, of class TraversalOrder.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSave() throws Exception {
+        String[][] cases = {
+            {"BREADTH_FIRST", "root L1 R1 L1L2 L1R2 R1R2 L1L2R3 R1R2L3"},
+            {"PRE_ORDER", "root L1 L1L2 L1L2R3 L1R2 R1 R1R2 R1R2L3"},
+            {"IN_ORDER", "L1L2 L1L2R3 L1 L1R2 root R1 R1R2L3 R1R2"},
+            {"POST_ORDER", "L1L2R3 L1L2 L1R2 L1 R1R2L3 R1R2 R1 root"},
+            {"MORRIS_POST_ORDER", "L1L2R3 L1L2 L1R2 L1 R1R2L3 R1R2 R1 root"},
+            {"REVERSE_LEVEL_ORDER", "L1L2R3 R1R2L3 L1L2 L1R2 R1R2 L1 R1 root"},
+            {"ZIGZAG_LEVEL_ORDER", "root R1 L1 L1L2 L1R2 R1R2 R1R2L3 L1L2R3"},};
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(INPUT));
+        for (String[] testCase : cases) {
+            StringWriter output = new StringWriter();
+            tree.save(output, TraversalOrder.valueOf(testCase[0]));
+            assertEquals(testCase[0], testCase[1], output.toString());
+        }
+    }
+
+    /**
+     * The iterators must visit the nodes of random trees in the same order as
+     * the recursive definitions, Morris post-order must restore the tree.
+     */
+    @Test
+    public void testRandomTrees() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            Node tree = TestTrees.randomTree(1 + random.nextInt(i < 100 ? 20 : 2000), random);
+            String text = TestTrees.toText(tree);
+            List<Node> preOrder = new ArrayList<Node>();
+            List<Node> inOrder = new ArrayList<Node>();
+            List<Node> postOrder = new ArrayList<Node>();
+            visit(tree, preOrder, inOrder, postOrder);
+            List<List<Node>> levels = new ArrayList<List<Node>>();
+            collectLevels(tree, 0, levels);
+            List<Node> reverseLevelOrder = new ArrayList<Node>();
+            List<Node> zigzagLevelOrder = new ArrayList<Node>();
+            for (int level = 0; level < levels.size(); level++) {
+                reverseLevelOrder.addAll(levels.get(levels.size() - 1 - level));
+                List<Node> nodes = levels.get(level);
+                for (int j = 0; j < nodes.size(); j++) {
+                    zigzagLevelOrder.add(nodes.get(level % 2 == 0 ? j : nodes.size() - 1 - j));
+                }
+            }
+            assertOrder(preOrder, TraversalOrder.PRE_ORDER.iterator(tree));
+            assertOrder(inOrder, TraversalOrder.IN_ORDER.iterator(tree));
+            assertOrder(postOrder, TraversalOrder.POST_ORDER.iterator(tree));
+            assertOrder(postOrder, TraversalOrder.MORRIS_POST_ORDER.iterator(tree));
+            assertEquals(text, TestTrees.toText(tree));
+            assertOrder(reverseLevelOrder, TraversalOrder.REVERSE_LEVEL_ORDER.iterator(tree));
+            assertOrder(zigzagLevelOrder, TraversalOrder.ZIGZAG_LEVEL_ORDER.iterator(tree));
+        }
+    }
+
+    /**
+     * The depth-first iterators must not be limited by the thread stack.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDeepTree() throws Exception {
+        int depth = 200000;
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(TestTrees.leftChain(depth)), ParserMode.ITERATIVE);
+        for (TraversalOrder order : TraversalOrder.values()) {
+            int count = 0;
+            Iterator<Node> iterator = order.iterator(tree);
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            assertEquals(order.name(), depth, count);
+            assertEquals(order.name(), depth, order.stream(tree).parallel().count());
+        }
+        Iterator<Node> iterator = TraversalOrder.POST_ORDER.iterator(tree);
+        assertEquals("n" + (depth - 1), iterator.next().getName());
+    }
+
+    /**
+     * The iterators of an empty tree must have no nodes.
+     */
+    @Test
+    public void testEmptyTree() {
+        for (TraversalOrder order : TraversalOrder.values()) {
+            Iterator<Node> iterator = order.iterator(null);
+            assertFalse(order.name(), iterator.hasNext());
+            try {
+                iterator.next();
+                fail("NoSuchElementException expected");
+            } catch (NoSuchElementException e) {
+            }
+        }
+    }
+
+    /**
+     * An indexed tree without nodes must be empty in every order, also when
+     * it is saved.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testEmptyIndexedTree() throws Exception {
+        ColumnarTree tree = new ColumnarTree();
+        for (TraversalOrder order : TraversalOrder.values()) {
+            assertFalse(order.name(), order.iterator(tree).hasNext());
+            assertEquals(order.name(), 0, order.stream(tree).count());
+            StringWriter output = new StringWriter();
+            order.save(tree, output);
+            assertEquals(order.name(), "", output.toString());
+        }
+    }
+
+    /**
+     * The parts of recursively split spliterators must give the order of the
+     * iterators, one after the other.
+     */
+    @Test
+    public void testSpliterator() {
+        Random random = new Random(5);
+        for (int i = 0; i < 100; i++) {
+            Node tree = TestTrees.randomTree(1 + random.nextInt(i < 50 ? 20 : 2000), random);
+            for (TraversalOrder order : TraversalOrder.values()) {
+                List<Node> expected = new ArrayList<Node>();
+                Iterator<Node> iterator = order.iterator(tree);
+                while (iterator.hasNext()) {
+                    expected.add(iterator.next());
+                }
+                for (int depth = 0; depth <= 12; depth += 4) {
+                    List<Node> actual = new ArrayList<Node>();
+                    split(order.spliterator(tree), depth, actual);
+                    assertEquals(order.name(), expected, actual);
+                }
+            }
+        }
+    }
+
+    /**
+     * The spliterators of an indexed tree know their size.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSpliteratorSize() throws Exception {
+        ColumnarTree tree = new ColumnarTree();
+        tree.load(new StringReader(INPUT));
+        Spliterator<Node> spliterator = TraversalOrder.BREADTH_FIRST.spliterator(tree);
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+        assertEquals(8, spliterator.estimateSize());
+        //the narrow levels are handed off together, the last level is halved
+        Spliterator<Node> prefix = spliterator.trySplit();
+        assertEquals(6, prefix.getExactSizeIfKnown());
+        assertEquals(2, spliterator.getExactSizeIfKnown());
+        prefix = spliterator.trySplit();
+        assertEquals(1, prefix.getExactSizeIfKnown());
+        assertEquals(1, spliterator.getExactSizeIfKnown());
+        assertNull(spliterator.trySplit());
+
+        spliterator = TraversalOrder.PRE_ORDER.spliterator(tree);
+        assertEquals(8, spliterator.getExactSizeIfKnown());
+        assertNotNull(spliterator.trySplit());
+        assertEquals(-1, spliterator.getExactSizeIfKnown());
+        assertEquals(4, spliterator.estimateSize());
+
+        assertEquals(0, TraversalOrder.BREADTH_FIRST.spliterator(new ColumnarTree()).getExactSizeIfKnown());
+        assertEquals(-1, TraversalOrder.BREADTH_FIRST.spliterator(tree.getLeft()).getExactSizeIfKnown());
+    }
+
+    /**
+     * Test of stream method, of interface Node, sequential and parallel.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testStream() throws Exception {
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(INPUT));
+        String expected = "root L1 R1 L1L2 L1R2 R1R2 L1L2R3 R1R2L3";
+        assertEquals(expected, tree.stream().map(Node::getName).collect(Collectors.joining(" ")));
+        assertEquals(expected, tree.stream().parallel().map(Node::getName).collect(Collectors.joining(" ")));
+        assertEquals(4, tree.stream().parallel().filter(node -> node.getName().startsWith("L")).count());
+
+        Node random = TestTrees.randomTree(10000, new Random(3));
+        for (TraversalOrder order : new TraversalOrder[]{TraversalOrder.PRE_ORDER, TraversalOrder.IN_ORDER, TraversalOrder.POST_ORDER}) {
+            assertEquals(order.stream(random).map(Node::getName).collect(Collectors.toList()),
+                    order.stream(random).parallel().map(Node::getName).collect(Collectors.toList()));
+        }
+        assertEquals(0, TraversalOrder.BREADTH_FIRST.stream(null).parallel().count());
+    }
+
+    /**
+     * Parallel streams must stop splitting at their target size instead of
+     * creating a task per node, with and without a known size.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSplitCount() throws Exception {
+        StringBuilder text = new StringBuilder();
+        appendCompleteTree(text, 18, 1);
+        BinaryTreeNode tree = new BinaryTreeNode();
+        tree.load(new StringReader(text.toString()), ParserMode.ITERATIVE);
+        ColumnarTree columnarTree = new ColumnarTree();
+        columnarTree.load(new StringReader(text.toString()));
+        BinaryTreeNode chain = new BinaryTreeNode();
+        chain.load(new StringReader(TestTrees.leftChain(100000)), ParserMode.ITERATIVE);
+        TraversalOrder[] orders = {TraversalOrder.BREADTH_FIRST, TraversalOrder.PRE_ORDER, TraversalOrder.IN_ORDER, TraversalOrder.POST_ORDER};
+        for (Node root : new Node[]{tree, columnarTree, chain}) {
+            for (TraversalOrder order : orders) {
+                AtomicInteger splits = new AtomicInteger();
+                long count = StreamSupport.stream(new CountingSpliterator(order.spliterator(root), splits), true)
+                        .filter(node -> node.getName() != null).count();
+                assertEquals(root == chain ? 100000 : (1 << 18) - 1, count);
+                assertTrue(order + ": " + splits.get() + " splits", splits.get() < 1000);
+            }
+        }
+    }
+
+    private static void split(Spliterator<Node> spliterator, int depth, List<Node> nodes) {
+        Spliterator<Node> prefix = depth > 0 ? spliterator.trySplit() : null;
+        if (prefix != null) {
+            split(prefix, depth - 1, nodes);
+            split(spliterator, depth - 1, nodes);
+        } else {
+            spliterator.forEachRemaining(nodes::add);
+        }
+    }
+
+    private static void assertOrder(List<Node> expected, Iterator<Node> iterator) {
+        for (Node node : expected) {
+            assertTrue(iterator.hasNext());
+            assertSame(node, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    private static void visit(Node node, List<Node> preOrder, List<Node> inOrder, List<Node> postOrder) {
+        if (node == null) {
+            return;
+        }
+        preOrder.add(node);
+        visit(node.getLeft(), preOrder, inOrder, postOrder);
+        inOrder.add(node);
+        visit(node.getRight(), preOrder, inOrder, postOrder);
+        postOrder.add(node);
+    }
+
+    private static void collectLevels(Node node, int level, List<List<Node>> levels) {
+        if (node == null) {
+            return;
+        }
+        if (levels.size() == level) {
+            levels.add(new ArrayList<Node>());
+        }
+        levels.get(level).add(node);
+        collectLevels(node.getLeft(), level + 1, levels);
+        collectLevels(node.getRight(), level + 1, levels);
+    }
+
+    private static void appendCompleteTree(StringBuilder text, int depth, int id) {
+        text.append("(n").append(id).append(',');
+        if (depth > 1) {
+            appendCompleteTree(text, depth - 1, 2 * id);
+        }
+        text.append(',');
+        if (depth > 1) {
+            appendCompleteTree(text, depth - 1, 2 * id + 1);
+        }
+        text.append(')');
+    }
+
+    /**
+     * Counts the successful splits of a spliterator and of its parts.
+     */
+    private static class CountingSpliterator implements Spliterator<Node> {
+
+        private final Spliterator<Node> spliterator;
+        private final AtomicInteger splits;
+
+        CountingSpliterator(Spliterator<Node> spliterator, AtomicInteger splits) {
+            this.spliterator = spliterator;
+            this.splits = splits;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Node> action) {
+            return spliterator.tryAdvance(action);
+        }
+
+        @Override
+        public Spliterator<Node> trySplit() {
+            Spliterator<Node> prefix = spliterator.trySplit();
+            if (prefix == null) {
+                return null;
+            }
+            splits.incrementAndGet();
+            return new CountingSpliterator(prefix, splits);
+        }
+
+        @Override
+        public long estimateSize() {
+            return spliterator.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return spliterator.characteristics();
+        }
+
+    }
+
+}
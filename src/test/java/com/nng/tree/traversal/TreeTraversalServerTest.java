@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2014 Richárd Ernő Kiss
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.nng.tree.traversal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Richárd Ernő Kiss
+ */
+public class TreeTraversalServerTest {
+
+    private TreeTraversalServer server;
+
+    public TreeTraversalServerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TreeTraversalServer(0);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    /**
+     * Several requests on one connection must be answered in order.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRequests() throws Exception {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        try {
+            OutputStream output = socket.getOutputStream();
+            output.write("(a,(b,,),(c,,))\r\n\n  \n(x,,(1y,,))\n(d,,)\n".getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("a b c", input.readLine());
+            assertEquals("Syntax error, node name can not start with a number: 1y", input.readLine());
+            assertEquals("d", input.readLine());
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Concurrent connections must get the answers of their own requests.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testConcurrentConnections() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int i = 0; i < 200; i++) {
+                final int seed = i;
+                results.add(clients.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        Random random = new Random(seed);
+                        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                        try {
+                            OutputStream output = socket.getOutputStream();
+                            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                            for (int request = 0; request < 10; request++) {
+                                Node tree = TestTrees.randomTree(1 + random.nextInt(500), random);
+                                output.write((TestTrees.toText(tree) + "\n").getBytes(StandardCharsets.US_ASCII));
+                                output.flush();
+                                StringWriter expected = new StringWriter();
+                                tree.save(expected);
+                                assertEquals(expected.toString(), input.readLine());
+                            }
+                        } finally {
+                            socket.close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    /**
+     * Without virtual threads a connection over the limit must wait until a
+     * served connection is closed.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testConnectionLimit() throws Exception {
+        ExecutorService executor = TreeTraversalServer.newConnectionExecutor();
+        executor.shutdown();
+        Assume.assumeTrue(executor instanceof ThreadPoolExecutor);
+        List<Socket> sockets = new ArrayList<Socket>();
+        try {
+            for (int i = 0; i < TreeTraversalServer.MAX_PLATFORM_CONNECTIONS; i++) {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                sockets.add(socket);
+                assertEquals("a", request(socket, "(a,,)"));
+            }
+            Socket waiting = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            sockets.add(waiting);
+            waiting.setSoTimeout(500);
+            try {
+                request(waiting, "(b,,)");
+                fail("SocketTimeoutException expected");
+            } catch (SocketTimeoutException e) {
+            }
+            sockets.remove(0).close();
+            waiting.setSoTimeout(10000);
+            assertEquals("b", new BufferedReader(new InputStreamReader(waiting.getInputStream(), StandardCharsets.UTF_8)).readLine());
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private static String request(Socket socket, String tree) throws IOException {
+        OutputStream output = socket.getOutputStream();
+        output.write((tree + "\n").getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+        //one byte at a time, the answer of a later request is not consumed
+        InputStream input = socket.getInputStream();
+        StringBuilder answer = new StringBuilder();
+        int b;
+        while ((b = input.read()) >= 0 && b != '\n') {
+            answer.append((char) b);
+        }
+        return answer.toString();
+    }
+
+}